@@ -22,7 +22,9 @@ public @interface BRpcConsumer {
     /**
      * 负载均衡策略设置
      * 可选：
-     *      RpcLoadBalanceRoundRobin.class(default) / RpcLoadBalanceRandom.class / RpcLoadBalanceConsistentHash.class
+     *      RpcLoadBalanceRoundRobin.class(default) / RpcLoadBalanceRandom.class / RpcLoadBalancePeakEwma.class
+     *      RpcLoadBalanceWeightedRoundRobin.class / RpcLoadBalanceWeightedRandom.class(按服务端发布的权重)
+     *      RpcLoadBalanceConsistentHash.class(按 @RouteKey 声明的参数 未声明时按首个参数路由)
      */
     Class<?> loadBalanceStrategy() default RpcLoadBalanceRoundRobin.class;
 
@@ -30,4 +32,63 @@ public @interface BRpcConsumer {
      * 接口超时时间
      */
     long timeOutLength() default 3000L;
-}
\ No newline at end of file
+
+    /**
+     * 序列化方式
+     * 可选：
+     *      kryo / hessian / protostuff / json
+     * 为空时使用服务端偏好 服务端未设置则使用连接默认(bRPC.client.serializer)
+     */
+    String serializer() default "";
+
+    /**
+     * 请求体压缩方式
+     * 可选：
+     *      none / deflate / lz4
+     * 为空时使用连接默认(bRPC.client.compressor)
+     */
+    String compressor() default "";
+
+    /**
+     * 压缩阈值(字节) 请求体达到该长度才压缩
+     * 小于0时使用连接默认(bRPC.client.compressThreshold)
+     */
+    int compressThreshold() default -1;
+
+    /**
+     * 该代理专用的拦截器 须实现 com.polyu.rpc.client.interceptor.Interceptor 且无状态
+     * 容器中存在该类型的 bean 时使用 bean 否则以无参构造创建
+     * 容器中的 Interceptor bean 对所有代理生效 无需在此声明
+     */
+    Class<?>[] interceptors() default {};
+
+    /**
+     * 对冲请求 每次调用最多追加的请求数 0 表示不对冲
+     * 请求超过对冲延迟仍未响应时 向负载均衡选出的其他节点发送相同请求 首个响应生效
+     * 仅用于幂等方法 追加请求受全局预算(bRPC.client.hedge.budgetRatio)限制 方法上的 @Hedge 优先
+     */
+    int maxHedges() default 0;
+
+    /**
+     * 对冲延迟(毫秒) 延迟统计不足时使用 同时为自适应延迟的下限
+     * 0 表示统计不足时不对冲
+     */
+    long hedgeAfterMillis() default 0L;
+
+    /**
+     * 对冲延迟按方法延迟的该分位数自适应 0 表示固定使用 hedgeAfterMillis
+     */
+    double hedgePercentile() default 95.0;
+
+    /**
+     * 失败重试 连接不可用或请求写出失败时最多重试次数 0 表示不重试
+     * 重试发往未用过的节点 超时与服务端错误不重试 受全局预算(bRPC.client.retry.budgetRatio)限制
+     * 仅用于幂等方法 方法上的 @Failover 优先
+     */
+    int retries() default 0;
+
+    /**
+     * 首次重试的退避时间(毫秒) 之后逐次翻倍 实际等待在 [一半, 全部] 间随机
+     */
+    long retryBackoffMillis() default 10L;
+}
@@ -36,4 +36,26 @@ public @interface BRpcProvider {
      * 否则配置无效 走默认设置参数值
      */
     int maxThreadPoolSize() default 65;
+
+    /**
+     * 偏好的序列化方式 通过握手告知client
+     * 可选：
+     *      kryo / hessian / protostuff / json
+     * 为空表示无偏好 client 未指定时使用连接默认
+     */
+    String serializer() default "";
+
+    /**
+     * 响应体压缩方式
+     * 可选：
+     *      none / deflate / lz4
+     * 为空时使用连接默认(bRPC.server.compressor)
+     */
+    String compressor() default "";
+
+    /**
+     * 压缩阈值(字节) 响应体达到该长度才压缩
+     * 小于0时使用连接默认(bRPC.server.compressThreshold)
+     */
+    int compressThreshold() default -1;
 }
@@ -0,0 +1,25 @@
+package com.polyu.rpc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 方法级失败重试 声明在服务接口方法上 覆盖 @BRpcConsumer 的 retries / retryBackoffMillis
+ * 非幂等方法可声明 @Failover(retries = 0) 关闭重试
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Failover {
+
+    /**
+     * 最多重试次数 0 表示不重试
+     */
+    int retries();
+
+    /**
+     * 首次重试的退避时间(毫秒) 之后逐次翻倍 实际等待在 [一半, 全部] 间随机
+     */
+    long backoffMillis() default 10L;
+}
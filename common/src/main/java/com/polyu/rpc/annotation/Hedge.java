@@ -0,0 +1,31 @@
+package com.polyu.rpc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 方法级对冲请求 声明在服务接口方法上 覆盖 @BRpcConsumer 的 maxHedges / hedgeAfterMillis / hedgePercentile
+ * 幂等方法可单独开启对冲 非幂等方法可声明 @Hedge(maxHedges = 0) 关闭对冲
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Hedge {
+
+    /**
+     * 每次调用最多追加的请求数 0 表示不对冲
+     */
+    int maxHedges();
+
+    /**
+     * 对冲延迟(毫秒) 延迟统计不足时使用 同时为自适应延迟的下限
+     * 0 表示统计不足时不对冲
+     */
+    long hedgeAfterMillis() default 0L;
+
+    /**
+     * 对冲延迟按方法延迟的该分位数自适应 0 表示固定使用 hedgeAfterMillis
+     */
+    double percentile() default 95.0;
+}
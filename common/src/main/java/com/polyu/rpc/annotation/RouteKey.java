@@ -0,0 +1,24 @@
+package com.polyu.rpc.annotation;
+
+import com.polyu.rpc.route.RouteKeyExtractor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 一致性哈希路由键 声明在服务接口方法上
+ * 标注参数时以该参数为路由键 标注方法时以 extractor 从参数中提取路由键
+ * 路由键须为 String / Number / byte[] 其他类型的参数需通过 extractor 转换
+ * 未声明时使用负载均衡配置的参数下标
+ */
+@Target({ElementType.PARAMETER, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RouteKey {
+
+    /**
+     * 路由键提取器 标注方法时必须指定 需有无参构造
+     */
+    Class<? extends RouteKeyExtractor> extractor() default RouteKeyExtractor.class;
+}
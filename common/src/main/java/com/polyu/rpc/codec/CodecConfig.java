@@ -0,0 +1,57 @@
+package com.polyu.rpc.codec;
+
+import com.polyu.rpc.compress.CompressorRegistry;
+import com.polyu.rpc.serializer.SerializerRegistry;
+import lombok.Data;
+
+/**
+ * 编解码配置
+ */
+@Data
+public class CodecConfig {
+
+    /**
+     * 默认单帧最大长度 16M
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * 默认压缩阈值 16K
+     */
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 16 * 1024;
+
+    /**
+     * 单帧最大长度
+     * 长度字段超过该值视为非法帧 直接关闭连接 避免按损坏的长度分配内存
+     */
+    private int maxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
+
+    /**
+     * 是否直接序列化进出站 ByteBuf(预留长度字段 写完回填)
+     * 关闭则走 byte[] 序列化后拷贝的旧路径
+     */
+    private boolean directEncode = true;
+
+    /**
+     * 兼容开关 开启后使用旧协议(int length + 消息体 字符串requestId)
+     * 用于与旧版本节点互通
+     */
+    private boolean legacyProtocol = false;
+
+    /**
+     * 连接默认序列化方式 kryo / hessian / protostuff / json
+     * 用于未指定序列化方式的请求及控制帧 旧协议固定为 kryo
+     */
+    private String serializer = SerializerRegistry.DEFAULT_SERIALIZER;
+
+    /**
+     * 连接默认压缩方式 none / deflate / lz4
+     * 未在注解中指定压缩方式的服务使用
+     */
+    private String compressor = CompressorRegistry.NONE;
+
+    /**
+     * 默认压缩阈值 消息体达到该长度(字节)才压缩
+     */
+    private int compressThreshold = DEFAULT_COMPRESS_THRESHOLD;
+}
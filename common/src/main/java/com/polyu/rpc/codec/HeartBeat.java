@@ -4,13 +4,21 @@ public final class HeartBeat {
 
     public static final int BEAT_INTERVAL = 30;
     public static final int BEAT_TIMEOUT = 3 * BEAT_INTERVAL;
+    /**
+     * 旧协议中心跳包的 requestId
+     */
     public static final String BEAT_ID = "BEAT_PING_PONG";
 
-    public static RpcRequest BEAT_PING;
+    /**
+     * 心跳包 编码为仅有帧头的 HEARTBEAT 帧
+     */
+    public static final HeartBeat BEAT_PING = new HeartBeat();
 
-    static {
-        BEAT_PING = new RpcRequest() {};
-        BEAT_PING.setRequestId(BEAT_ID);
+    private HeartBeat() {
     }
 
+    @Override
+    public String toString() {
+        return BEAT_ID;
+    }
 }
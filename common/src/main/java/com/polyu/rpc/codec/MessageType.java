@@ -0,0 +1,42 @@
+package com.polyu.rpc.codec;
+
+/**
+ * 帧消息类型
+ */
+public enum MessageType {
+
+    REQUEST((byte) 1),
+    RESPONSE((byte) 2),
+    HEARTBEAT((byte) 3),
+    CONTROL((byte) 4);
+
+    private final byte code;
+
+    MessageType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * 由帧头中的类型码获取消息类型
+     * @param code 类型码
+     * @return 消息类型 未知类型返回 null
+     */
+    public static MessageType fromCode(byte code) {
+        switch (code) {
+            case 1:
+                return REQUEST;
+            case 2:
+                return RESPONSE;
+            case 3:
+                return HEARTBEAT;
+            case 4:
+                return CONTROL;
+            default:
+                return null;
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package com.polyu.rpc.codec;
 
+import com.polyu.rpc.codec.legacy.LegacyMessageConverter;
+import com.polyu.rpc.compress.CompressionStats;
+import com.polyu.rpc.compress.Compressor;
+import com.polyu.rpc.compress.CompressorRegistry;
 import com.polyu.rpc.serializer.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -14,43 +21,198 @@ import java.util.List;
  */
 public class RpcDecoder extends ByteToMessageDecoder {
     private static final Logger logger = LoggerFactory.getLogger(RpcDecoder.class);
+
+    /**
+     * 旧协议长度字段字节数
+     */
+    private static final int LEGACY_LENGTH_FIELD_LENGTH = 4;
+
+    private static final CompressionStats INBOUND_STATS = CompressionStats.of(CompressionStats.INBOUND);
+
     private Class<?> genericClass;
-    private Serializer serializer;
+    private MessageType genericType;
+    private SerializerSelector serializerSelector;
+    private int maxFrameLength;
+    /**
+     * 非空时按旧协议(int length + 消息体)解码
+     */
+    private LegacyMessageConverter legacyConverter;
 
     public RpcDecoder(Class<?> genericClass, Serializer serializer) {
+        this(genericClass, new SerializerSelector(serializer), CodecConfig.DEFAULT_MAX_FRAME_LENGTH, null);
+    }
+
+    public RpcDecoder(Class<?> genericClass, SerializerSelector serializerSelector, int maxFrameLength, LegacyMessageConverter legacyConverter) {
         this.genericClass = genericClass;
-        this.serializer = serializer;
+        this.genericType = RpcRequest.class.equals(genericClass) ? MessageType.REQUEST : MessageType.RESPONSE;
+        this.serializerSelector = serializerSelector;
+        this.maxFrameLength = maxFrameLength;
+        this.legacyConverter = legacyConverter;
     }
 
     /**
-     * 解码 缓冲区头记录消息包载体长度
-     * 如果不足4字节 int说明未读完 直接返回
-     * 如果后续包长度不足 重置ByteBuf读取 直接返回
+     * 解码 帧头定长 不足帧头长度说明未读完 直接返回
+     * magic / version 不匹配或消息体长度非法(负数或超过 maxFrameLength) 抛出异常由 handler 关闭连接
+     * 消息体不足 等待后续数据
+     * 心跳帧只看帧头即可处理 请求/响应消息体以 retainedSlice 的方式交给序列化器 不拷贝出中间 byte[]
      *
      * @param ctx
      * @param in 缓冲区
      * @param out
      */
     @Override
-    public final void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-        if (in.readableBytes() < 4) {
+    public final void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (legacyConverter != null) {
+            decodeLegacy(in, out);
+            return;
+        }
+        if (in.readableBytes() < RpcProtocol.HEADER_LENGTH) {
+            return;
+        }
+        int frameIndex = in.readerIndex();
+        short magic = in.getShort(frameIndex + RpcProtocol.MAGIC_OFFSET);
+        if (magic != RpcProtocol.MAGIC) {
+            in.skipBytes(in.readableBytes());
+            throw new CorruptedFrameException("Invalid magic number: " + magic);
+        }
+        byte version = in.getByte(frameIndex + RpcProtocol.VERSION_OFFSET);
+        if (version != RpcProtocol.VERSION) {
+            in.skipBytes(in.readableBytes());
+            throw new CorruptedFrameException("Unsupported protocol version: " + version);
+        }
+        int bodyLength = checkFrameLength(in, in.getInt(frameIndex + RpcProtocol.BODY_LENGTH_OFFSET));
+        if (in.readableBytes() < RpcProtocol.HEADER_LENGTH + bodyLength) {
+            return;
+        }
+        MessageType type = MessageType.fromCode(in.getByte(frameIndex + RpcProtocol.TYPE_OFFSET));
+        long requestId = in.getLong(frameIndex + RpcProtocol.REQUEST_ID_OFFSET);
+        byte serializerId = in.getByte(frameIndex + RpcProtocol.SERIALIZER_OFFSET);
+        int compressorId = in.getByte(frameIndex + RpcProtocol.FLAGS_OFFSET) & RpcProtocol.FLAG_COMPRESSOR_MASK;
+        in.skipBytes(RpcProtocol.HEADER_LENGTH);
+
+        if (type == MessageType.HEARTBEAT) {
+            in.skipBytes(bodyLength);
+            out.add(HeartBeat.BEAT_PING);
+            return;
+        }
+        if (type == MessageType.CONTROL) {
+            decodeBody(in, bodyLength, 0, serializerSelector.getShared(serializerId), serializerId, RpcHandshake.class, requestId, out);
             return;
         }
-        in.markReaderIndex();
-        int dataLength = in.readInt();
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
+        if (type != genericType) {
+            in.skipBytes(bodyLength);
+            logger.warn("Drop unexpected frame, type: {}, requestId: {}.", type, requestId);
+            return;
+        }
+        decodeBody(in, bodyLength, compressorId, serializerSelector.get(serializerId), serializerId, genericClass, requestId, out);
+    }
+
+    /**
+     * 按帧头中的序列化方式反序列化消息体 并设置帧头中的 requestId / serializer
+     * 压缩的消息体先解压
+     * 本地不支持的序列化方式 跳过该帧
+     */
+    private void decodeBody(ByteBuf in, int bodyLength, int compressorId, Serializer bodySerializer, byte serializerId,
+                            Class<?> bodyClass, long requestId, List<Object> out) {
+        if (bodySerializer == null) {
+            in.skipBytes(bodyLength);
+            logger.error("Drop frame with unsupported serializer: {}, requestId: {}.", serializerId, requestId);
             return;
         }
-        byte[] data = new byte[dataLength];
-        in.readBytes(data);
-        Object obj;
+        ByteBuf body = in.readRetainedSlice(bodyLength);
         try {
-            obj = serializer.deserialize(data, genericClass);
+            if (compressorId != 0) {
+                ByteBuf compressed = body;
+                body = null;
+                try {
+                    body = decompress(compressed, compressorId);
+                } finally {
+                    compressed.release();
+                }
+            }
+            Object obj = bodySerializer.deserialize(body, bodyClass);
+            if (obj instanceof RpcRequest) {
+                ((RpcRequest) obj).setRequestId(requestId);
+                ((RpcRequest) obj).setSerializer(serializerId);
+            } else if (obj instanceof RpcResponse) {
+                ((RpcResponse) obj).setRequestId(requestId);
+                ((RpcResponse) obj).setSerializer(serializerId);
+            }
             out.add(obj);
         } catch (Exception ex) {
             logger.error("Decode error: {}", ex.toString());
+        } finally {
+            if (body != null) {
+                body.release();
+            }
+        }
+    }
+
+    /**
+     * 解压消息体 返回新分配的缓冲区
+     * @param body 压缩的消息体 int 原始长度 + 压缩数据
+     * @param compressorId 压缩方式id
+     * @return 解压后的消息体
+     */
+    private ByteBuf decompress(ByteBuf body, int compressorId) throws IOException {
+        Compressor compressor = CompressorRegistry.get(compressorId);
+        if (compressor == null) {
+            throw new IOException("Unsupported compressor: " + compressorId);
+        }
+        int originalLength = body.readInt();
+        if (originalLength < 0 || originalLength > maxFrameLength) {
+            throw new IOException("Invalid original length: " + originalLength);
+        }
+        long start = System.nanoTime();
+        int compressedLength = body.readableBytes();
+        ByteBuf plain = body.alloc().buffer(originalLength);
+        try {
+            compressor.decompress(body, plain, originalLength);
+        } catch (IOException | RuntimeException e) {
+            plain.release();
+            throw e;
+        }
+        INBOUND_STATS.record(originalLength, compressedLength + RpcProtocol.COMPRESSED_LENGTH_FIELD_LENGTH, System.nanoTime() - start);
+        return plain;
+    }
+
+    /**
+     * 旧协议解码 int length + 消息体
+     */
+    private void decodeLegacy(ByteBuf in, List<Object> out) {
+        if (in.readableBytes() < LEGACY_LENGTH_FIELD_LENGTH) {
+            return;
+        }
+        int dataLength = checkFrameLength(in, in.getInt(in.readerIndex()));
+        if (in.readableBytes() < LEGACY_LENGTH_FIELD_LENGTH + dataLength) {
+            return;
+        }
+        in.skipBytes(LEGACY_LENGTH_FIELD_LENGTH);
+        ByteBuf frame = in.readRetainedSlice(dataLength);
+        try {
+            Object legacyMsg = serializerSelector.getDefault().deserialize(frame, legacyConverter.legacyClassOf(genericClass));
+            out.add(legacyConverter.fromLegacy(legacyMsg));
+        } catch (Exception ex) {
+            logger.error("Decode error: {}", ex.toString());
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * 长度非法时丢弃缓冲区并抛出异常
+     * @return 合法长度
+     */
+    private int checkFrameLength(ByteBuf in, int length) {
+        if (length < 0) {
+            in.skipBytes(in.readableBytes());
+            throw new CorruptedFrameException("Negative frame length: " + length);
+        }
+        if (length > maxFrameLength) {
+            in.skipBytes(in.readableBytes());
+            throw new TooLongFrameException("Frame length " + length + " exceeds max frame length " + maxFrameLength);
         }
+        return length;
     }
 
 }
@@ -1,41 +1,214 @@
 package com.polyu.rpc.codec;
 
+import com.polyu.rpc.codec.legacy.LegacyMessageConverter;
+import com.polyu.rpc.compress.CompressionPolicy;
 import com.polyu.rpc.serializer.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToByteEncoder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * rpc编码
  */
 public class RpcEncoder extends MessageToByteEncoder {
-    private static final Logger logger = LoggerFactory.getLogger(RpcEncoder.class);
+
+    /**
+     * 出站缓冲区初始最小容量
+     */
+    private static final int MIN_BUFFER_SIZE = 256;
+
     private Class<?> genericClass;
-    private Serializer serializer;
+    private SerializerSelector serializerSelector;
+    private boolean directEncode;
+    /**
+     * 非空时按旧协议(int length + 消息体)编码
+     */
+    private LegacyMessageConverter legacyConverter;
+    /**
+     * 连接默认压缩策略
+     */
+    private CompressionPolicy defaultCompression;
+    /**
+     * 对端支持的压缩方式 握手后设置 仅在 event loop 中读写
+     */
+    private int peerCompressors;
+
+    /**
+     * 按最近帧长度估计下一次分配的缓冲区大小 仅在 event loop 中读写
+     */
+    private int bufferSizeEstimate = MIN_BUFFER_SIZE;
 
     public RpcEncoder(Class<?> genericClass, Serializer serializer) {
+        this(genericClass, new SerializerSelector(serializer), true, null, CompressionPolicy.NONE);
+    }
+
+    public RpcEncoder(Class<?> genericClass, SerializerSelector serializerSelector, boolean directEncode,
+                      LegacyMessageConverter legacyConverter, CompressionPolicy defaultCompression) {
         this.genericClass = genericClass;
-        this.serializer = serializer;
+        this.serializerSelector = serializerSelector;
+        this.directEncode = directEncode;
+        this.legacyConverter = legacyConverter;
+        this.defaultCompression = defaultCompression;
+    }
+
+    /**
+     * 握手后设置对端支持的压缩方式
+     * @param peerCompressors 第id位为1表示支持
+     */
+    public void setPeerCompressors(int peerCompressors) {
+        this.peerCompressors = peerCompressors;
     }
 
     /**
      * 编码
+     * 心跳只写帧头 请求/响应写帧头后序列化消息体 再回填消息体长度
+     * 请求/响应指定了序列化方式时使用指定方式 否则使用连接默认
+     * 消息体达到压缩阈值且对端支持时 压缩消息体并在 flags 中标记
+     * directEncode 模式下直接序列化进 netty 分配的(池化 direct)缓冲区
+     * 编码失败时丢弃已写入的部分并抛出 EncoderException 使本次写出的 promise 失败
      * @param ctx
      * @param in
      * @param out
      */
     @Override
     public void encode(ChannelHandlerContext ctx, Object in, ByteBuf out) {
-        if (genericClass.isInstance(in)) {
-            try {
-                byte[] data = serializer.serialize(in);
-                out.writeInt(data.length);
-                out.writeBytes(data);
-            } catch (Exception ex) {
-                logger.error("Encode error: {}", ex.toString());
+        if (!(in instanceof HeartBeat) && !(in instanceof RpcHandshake) && !genericClass.isInstance(in)) {
+            return;
+        }
+        int frameIndex = out.writerIndex();
+        try {
+            if (legacyConverter != null) {
+                encodeLegacy(in, out);
+            } else if (in instanceof HeartBeat) {
+                writeHeader(out, MessageType.HEARTBEAT, serializerSelector.getDefault(), 0L);
+            } else if (in instanceof RpcHandshake) {
+                Serializer controlSerializer = serializerSelector.getShared(serializerSelector.getDefault().getId());
+                writeHeader(out, MessageType.CONTROL, controlSerializer, 0L);
+                writeBody(controlSerializer, in, out, frameIndex + RpcProtocol.BODY_LENGTH_OFFSET);
+            } else if (in instanceof RpcRequest) {
+                RpcRequest request = (RpcRequest) in;
+                Serializer bodySerializer = serializerOf(request.getSerializer());
+                writeHeader(out, MessageType.REQUEST, bodySerializer, request.getRequestId());
+                writeBody(bodySerializer, in, out, frameIndex + RpcProtocol.BODY_LENGTH_OFFSET);
+                compressBody(out, frameIndex, request.getCompression());
+            } else {
+                RpcResponse response = (RpcResponse) in;
+                Serializer bodySerializer = serializerOf(response.getSerializer());
+                writeHeader(out, MessageType.RESPONSE, bodySerializer, response.getRequestId());
+                writeBody(bodySerializer, in, out, frameIndex + RpcProtocol.BODY_LENGTH_OFFSET);
+                compressBody(out, frameIndex, response.getCompression());
             }
+            updateBufferSizeEstimate(out.writerIndex() - frameIndex);
+        } catch (Exception ex) {
+            out.writerIndex(frameIndex);
+            throw new EncoderException("Encode " + in.getClass().getSimpleName() + " error: " + ex, ex);
         }
     }
+
+    /**
+     * 写入帧头 消息体长度先写 0 由 writeBody 回填
+     */
+    private static void writeHeader(ByteBuf out, MessageType type, Serializer bodySerializer, long requestId) {
+        out.writeShort(RpcProtocol.MAGIC);
+        out.writeByte(RpcProtocol.VERSION);
+        out.writeByte(type.getCode());
+        out.writeByte(bodySerializer.getId());
+        out.writeByte(0);
+        out.writeLong(requestId);
+        out.writeInt(0);
+    }
+
+    /**
+     * 消息指定的序列化方式 未指定或本地不可用时使用连接默认
+     * @param serializerId 序列化方式id
+     * @return 序列化方式
+     */
+    private Serializer serializerOf(byte serializerId) {
+        Serializer bodySerializer = serializerId == 0 ? null : serializerSelector.get(serializerId);
+        return bodySerializer != null ? bodySerializer : serializerSelector.getDefault();
+    }
+
+    /**
+     * 写入消息体并回填长度字段
+     * @param bodySerializer 序列化方式
+     * @param msg 消息
+     * @param out 缓冲区
+     * @param lengthIndex 长度字段位置
+     */
+    private void writeBody(Serializer bodySerializer, Object msg, ByteBuf out, int lengthIndex) {
+        int bodyIndex = out.writerIndex();
+        if (directEncode) {
+            bodySerializer.serialize(msg, out);
+        } else {
+            out.writeBytes(bodySerializer.serialize(msg));
+        }
+        out.setInt(lengthIndex, out.writerIndex() - bodyIndex);
+    }
+
+    /**
+     * 按策略压缩已写入的消息体 压缩无收益时保持原文
+     * @param out 缓冲区
+     * @param frameIndex 帧起始位置
+     * @param compression 消息指定的压缩策略 null表示使用连接默认
+     */
+    private void compressBody(ByteBuf out, int frameIndex, CompressionPolicy compression) throws Exception {
+        CompressionPolicy policy = compression != null ? compression : defaultCompression;
+        int bodyIndex = frameIndex + RpcProtocol.HEADER_LENGTH;
+        int bodyLength = out.writerIndex() - bodyIndex;
+        if (!policy.shouldCompress(bodyLength, peerCompressors)) {
+            return;
+        }
+        long start = System.nanoTime();
+        ByteBuf compressed = out.alloc().buffer(bodyLength >>> 1);
+        try {
+            policy.getCompressor().compress(out.slice(bodyIndex, bodyLength), compressed);
+            int compressedLength = RpcProtocol.COMPRESSED_LENGTH_FIELD_LENGTH + compressed.readableBytes();
+            if (compressedLength >= bodyLength) {
+                policy.getStats().recordSkipped(System.nanoTime() - start);
+                return;
+            }
+            out.writerIndex(bodyIndex);
+            out.writeInt(bodyLength);
+            out.writeBytes(compressed);
+            out.setByte(frameIndex + RpcProtocol.FLAGS_OFFSET, policy.getCompressor().getId());
+            out.setInt(frameIndex + RpcProtocol.BODY_LENGTH_OFFSET, compressedLength);
+            policy.getStats().record(bodyLength, compressedLength, System.nanoTime() - start);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    /**
+     * 旧协议编码 int length + 消息体
+     * 旧协议没有控制帧 握手信息直接丢弃
+     */
+    private void encodeLegacy(Object in, ByteBuf out) {
+        Object legacyMsg = legacyConverter.toLegacy(in);
+        if (legacyMsg == null) {
+            return;
+        }
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        writeBody(serializerSelector.getDefault(), legacyMsg, out, lengthIndex);
+    }
+
+    /**
+     * 按估计大小分配缓冲区 减少序列化过程中的扩容
+     */
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, Object msg, boolean preferDirect) {
+        if (preferDirect) {
+            return ctx.alloc().ioBuffer(bufferSizeEstimate);
+        }
+        return ctx.alloc().heapBuffer(bufferSizeEstimate);
+    }
+
+    /**
+     * 估计值取本次帧长与历史估计的折中 大帧之后逐步回落
+     * @param frameLength 本次帧长
+     */
+    private void updateBufferSizeEstimate(int frameLength) {
+        bufferSizeEstimate = Math.max(MIN_BUFFER_SIZE, Math.max(frameLength, (bufferSizeEstimate + frameLength) >>> 1));
+    }
 }
@@ -0,0 +1,37 @@
+package com.polyu.rpc.codec;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 连接建立后交换的握手信息 以 CONTROL 帧传输
+ */
+@Data
+public class RpcHandshake {
+
+    /**
+     * 服务端方法表 methodKey -> methodId
+     * methodKey 由 ServiceUtil.makeMethodKey 生成
+     */
+    private Map<String, Integer> methodIds;
+
+    /**
+     * 服务端(@BRpcProvider)偏好的序列化方式 下标为 methodId 0表示无偏好
+     * client 未在 @BRpcConsumer 指定时采用
+     */
+    private byte[] methodSerializers;
+
+    /**
+     * 服务端 Kryo 服务类型注册表 下标决定注册id
+     * client 按此列表注册本连接的 Kryo 双方类型编码一致
+     */
+    private List<String> kryoTypes;
+
+    /**
+     * 本端支持的压缩方式 第id位为1表示支持
+     * 对端只使用双方都支持的压缩方式 握手完成前不压缩
+     */
+    private int compressors;
+}
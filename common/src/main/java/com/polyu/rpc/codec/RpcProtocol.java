@@ -0,0 +1,38 @@
+package com.polyu.rpc.codec;
+
+/**
+ * 传输协议定义
+ * 帧结构(定长头 + 消息体):
+ * +--------+---------+------+------------+-------+-----------+------------+
+ * | magic  | version | type | serializer | flags | requestId | bodyLength |
+ * | 2 byte | 1 byte  | 1 B  | 1 byte     | 1 B   | 8 byte    | 4 byte     |
+ * +--------+---------+------+------------+-------+-----------+------------+
+ * 心跳等无消息体的帧 bodyLength 为 0 不需要反序列化即可处理
+ * serializer 为 Serializer.getId() 接收方按该字段选择反序列化方式
+ * flags 低4位为 Compressor.getId() 非0时消息体为压缩数据
+ */
+public final class RpcProtocol {
+
+    public static final short MAGIC = (short) 0xAE52;
+    public static final byte VERSION = 1;
+
+    public static final int HEADER_LENGTH = 18;
+
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = 2;
+    public static final int TYPE_OFFSET = 3;
+    public static final int SERIALIZER_OFFSET = 4;
+    public static final int FLAGS_OFFSET = 5;
+    public static final int REQUEST_ID_OFFSET = 6;
+    public static final int BODY_LENGTH_OFFSET = 14;
+
+    /**
+     * flags 低4位 消息体压缩方式id 0表示未压缩
+     * 压缩后的消息体 = int 原始长度 + 压缩数据
+     */
+    public static final int FLAG_COMPRESSOR_MASK = 0x0F;
+    public static final int COMPRESSED_LENGTH_FIELD_LENGTH = 4;
+
+    private RpcProtocol() {
+    }
+}
@@ -1,13 +1,70 @@
 package com.polyu.rpc.codec;
 
+import com.polyu.rpc.compress.CompressionPolicy;
 import lombok.Data;
 
 @Data
 public class RpcRequest {
-    private String requestId;
+    /**
+     * 请求id 由帧头携带 不进入消息体
+     */
+    private transient long requestId;
+    /**
+     * 客户端方法标识 用于查找连接握手得到的 methodId 不进入消息体
+     */
+    private transient String methodKey;
+    /**
+     * 序列化方式id 由帧头携带 不进入消息体 0表示使用连接默认
+     */
+    private transient byte serializer;
+    /**
+     * 出站压缩策略(@BRpcConsumer) 不进入消息体 null表示使用连接默认
+     */
+    private transient CompressionPolicy compression;
+    /**
+     * 握手得到的方法id 有效(>= 0)时服务端直接按id分派
+     * className / methodName / parameterTypes / version 可不传
+     */
+    private int methodId = -1;
     private String className;
     private String methodName;
     private Class<?>[] parameterTypes;
     private Object[] parameters;
     private String version;
-}
\ No newline at end of file
+
+    /**
+     * 生成只携带 methodId 与参数的精简请求
+     * @param methodId 握手得到的方法id
+     * @return 精简请求
+     */
+    public RpcRequest compact(int methodId) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(this.requestId);
+        request.setMethodKey(this.methodKey);
+        request.setSerializer(this.serializer);
+        request.setCompression(this.compression);
+        request.setMethodId(methodId);
+        request.setParameters(this.parameters);
+        return request;
+    }
+
+    /**
+     * 复制请求 使用新的请求id 用于向其他节点再次发送同一调用
+     * @param requestId 新请求id
+     * @return 全量请求
+     */
+    public RpcRequest copy(long requestId) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(requestId);
+        request.setMethodKey(this.methodKey);
+        request.setSerializer(this.serializer);
+        request.setCompression(this.compression);
+        request.setMethodId(this.methodId);
+        request.setClassName(this.className);
+        request.setMethodName(this.methodName);
+        request.setParameterTypes(this.parameterTypes);
+        request.setParameters(this.parameters);
+        request.setVersion(this.version);
+        return request;
+    }
+}
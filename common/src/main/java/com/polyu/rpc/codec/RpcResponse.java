@@ -1,10 +1,22 @@
 package com.polyu.rpc.codec;
 
+import com.polyu.rpc.compress.CompressionPolicy;
 import lombok.Data;
 
 @Data
 public class RpcResponse {
-    private String requestId;
+    /**
+     * 请求id 由帧头携带 不进入消息体
+     */
+    private transient long requestId;
+    /**
+     * 序列化方式id 由帧头携带 不进入消息体 服务端与请求保持一致
+     */
+    private transient byte serializer;
+    /**
+     * 出站压缩策略(@BRpcProvider) 不进入消息体 null表示使用连接默认
+     */
+    private transient CompressionPolicy compression;
     private String error;
     private Object result;
 
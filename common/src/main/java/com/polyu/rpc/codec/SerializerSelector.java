@@ -0,0 +1,65 @@
+package com.polyu.rpc.codec;
+
+import com.polyu.rpc.serializer.Serializer;
+import com.polyu.rpc.serializer.SerializerRegistry;
+
+/**
+ * 连接级序列化方式选择 同一连接的编解码器共享
+ * 握手后可按id替换为本连接专用的实现(如带服务类型注册表的 Kryo)
+ * 控制帧不受替换影响 始终使用公共实现 保证握手前后双方都能解析
+ * 只在 event loop 中读写
+ */
+public class SerializerSelector {
+
+    /**
+     * 连接默认序列化方式(公共实现)
+     */
+    private final Serializer defaultSerializer;
+    private final Serializer[] overrides = new Serializer[Byte.MAX_VALUE + 1];
+
+    public SerializerSelector(Serializer defaultSerializer) {
+        this.defaultSerializer = defaultSerializer;
+    }
+
+    /**
+     * 连接默认序列化方式 已替换时返回替换后的实现
+     * @return 序列化方式
+     */
+    public Serializer getDefault() {
+        return get(defaultSerializer.getId());
+    }
+
+    /**
+     * 按id选择 优先使用本连接替换的实现
+     * @param id 序列化方式id
+     * @return 不存在返回null
+     */
+    public Serializer get(byte id) {
+        Serializer serializer = getShared(id);
+        if (serializer == null) {
+            return null;
+        }
+        Serializer override = overrides[id];
+        return override != null ? override : serializer;
+    }
+
+    /**
+     * 按id选择公共实现 用于控制帧
+     * @param id 序列化方式id
+     * @return 不存在返回null
+     */
+    public Serializer getShared(byte id) {
+        if (id == defaultSerializer.getId()) {
+            return defaultSerializer;
+        }
+        return SerializerRegistry.get(id);
+    }
+
+    /**
+     * 替换本连接中同id的序列化方式
+     * @param serializer 连接专用实现
+     */
+    public void override(Serializer serializer) {
+        overrides[serializer.getId()] = serializer;
+    }
+}
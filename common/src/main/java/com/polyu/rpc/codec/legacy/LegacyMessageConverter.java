@@ -0,0 +1,112 @@
+package com.polyu.rpc.codec.legacy;
+
+import com.polyu.rpc.codec.HeartBeat;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.codec.RpcResponse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 新旧协议消息转换 每个连接一个实例 由该连接的编码器和解码器共享
+ * 旧协议的 requestId 为字符串(旧版客户端为 UUID) 无法解析为数字的 id
+ * 分配本地负数 id 并在回写响应时还原
+ */
+public class LegacyMessageConverter {
+
+    private final Map<Long, String> foreignRequestIds = new ConcurrentHashMap<>();
+    private final AtomicLong localIdGenerator = new AtomicLong();
+
+    /**
+     * 获取旧协议中与新消息类型对应的消息体类型
+     * @param genericClass RpcRequest.class / RpcResponse.class
+     * @return 旧协议消息体类型
+     */
+    public Class<?> legacyClassOf(Class<?> genericClass) {
+        return RpcRequest.class.equals(genericClass) ? LegacyRpcRequest.class : LegacyRpcResponse.class;
+    }
+
+    /**
+     * 新消息 -> 旧协议消息
+     * @param msg HeartBeat / RpcRequest / RpcResponse
+     * @return 旧协议消息 不支持的类型返回 null
+     */
+    public Object toLegacy(Object msg) {
+        if (msg instanceof HeartBeat) {
+            LegacyRpcRequest beat = new LegacyRpcRequest();
+            beat.setRequestId(HeartBeat.BEAT_ID);
+            return beat;
+        }
+        if (msg instanceof RpcRequest) {
+            RpcRequest request = (RpcRequest) msg;
+            LegacyRpcRequest legacyRequest = new LegacyRpcRequest();
+            legacyRequest.setRequestId(Long.toString(request.getRequestId()));
+            legacyRequest.setClassName(request.getClassName());
+            legacyRequest.setMethodName(request.getMethodName());
+            legacyRequest.setParameterTypes(request.getParameterTypes());
+            legacyRequest.setParameters(request.getParameters());
+            legacyRequest.setVersion(request.getVersion());
+            return legacyRequest;
+        }
+        if (msg instanceof RpcResponse) {
+            RpcResponse response = (RpcResponse) msg;
+            String requestId = foreignRequestIds.remove(response.getRequestId());
+            LegacyRpcResponse legacyResponse = new LegacyRpcResponse();
+            legacyResponse.setRequestId(requestId != null ? requestId : Long.toString(response.getRequestId()));
+            legacyResponse.setError(response.getError());
+            legacyResponse.setResult(response.getResult());
+            return legacyResponse;
+        }
+        return null;
+    }
+
+    /**
+     * 旧协议消息 -> 新消息
+     * @param legacyMsg LegacyRpcRequest / LegacyRpcResponse
+     * @return HeartBeat / RpcRequest / RpcResponse
+     */
+    public Object fromLegacy(Object legacyMsg) {
+        if (legacyMsg instanceof LegacyRpcRequest) {
+            LegacyRpcRequest legacyRequest = (LegacyRpcRequest) legacyMsg;
+            if (HeartBeat.BEAT_ID.equalsIgnoreCase(legacyRequest.getRequestId())) {
+                return HeartBeat.BEAT_PING;
+            }
+            RpcRequest request = new RpcRequest();
+            request.setRequestId(toLocalRequestId(legacyRequest.getRequestId()));
+            request.setClassName(legacyRequest.getClassName());
+            request.setMethodName(legacyRequest.getMethodName());
+            request.setParameterTypes(legacyRequest.getParameterTypes());
+            request.setParameters(legacyRequest.getParameters());
+            request.setVersion(legacyRequest.getVersion());
+            return request;
+        }
+        LegacyRpcResponse legacyResponse = (LegacyRpcResponse) legacyMsg;
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(parseRequestId(legacyResponse.getRequestId()));
+        response.setError(legacyResponse.getError());
+        response.setResult(legacyResponse.getResult());
+        return response;
+    }
+
+    private long toLocalRequestId(String requestId) {
+        long id = parseRequestId(requestId);
+        if (id >= 0) {
+            return id;
+        }
+        long localId = localIdGenerator.decrementAndGet();
+        foreignRequestIds.put(localId, String.valueOf(requestId));
+        return localId;
+    }
+
+    private static long parseRequestId(String requestId) {
+        if (requestId == null) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(requestId);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
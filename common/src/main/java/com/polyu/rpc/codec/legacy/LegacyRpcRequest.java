@@ -0,0 +1,16 @@
+package com.polyu.rpc.codec.legacy;
+
+import lombok.Data;
+
+/**
+ * 旧协议请求体 字段与旧版 RpcRequest 保持一致 保证序列化结果兼容
+ */
+@Data
+public class LegacyRpcRequest {
+    private String requestId;
+    private String className;
+    private String methodName;
+    private Class<?>[] parameterTypes;
+    private Object[] parameters;
+    private String version;
+}
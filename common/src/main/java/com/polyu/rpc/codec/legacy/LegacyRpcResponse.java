@@ -0,0 +1,13 @@
+package com.polyu.rpc.codec.legacy;
+
+import lombok.Data;
+
+/**
+ * 旧协议响应体 字段与旧版 RpcResponse 保持一致 保证序列化结果兼容
+ */
+@Data
+public class LegacyRpcResponse {
+    private String requestId;
+    private String error;
+    private Object result;
+}
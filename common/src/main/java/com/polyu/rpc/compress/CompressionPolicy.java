@@ -0,0 +1,50 @@
+package com.polyu.rpc.compress;
+
+import lombok.Getter;
+
+/**
+ * 出站压缩策略 消息体长度达到阈值时压缩
+ */
+@Getter
+public class CompressionPolicy {
+
+    /**
+     * 不压缩
+     */
+    public static final CompressionPolicy NONE = new CompressionPolicy(null, Integer.MAX_VALUE, null);
+
+    private final Compressor compressor;
+    private final int threshold;
+    private final CompressionStats stats;
+
+    private CompressionPolicy(Compressor compressor, int threshold, CompressionStats stats) {
+        this.compressor = compressor;
+        this.threshold = threshold;
+        this.stats = stats;
+    }
+
+    /**
+     * 创建策略
+     * @param compressorName 压缩方式名称 空或 none 表示不压缩
+     * @param threshold 压缩阈值(字节)
+     * @param statsName 统计名称 一般为 serviceKey
+     * @return 策略
+     */
+    public static CompressionPolicy of(String compressorName, int threshold, String statsName) {
+        Compressor compressor = CompressorRegistry.get(compressorName);
+        if (compressor == null) {
+            return NONE;
+        }
+        return new CompressionPolicy(compressor, Math.max(threshold, 0), CompressionStats.of(statsName));
+    }
+
+    /**
+     * 是否需要压缩
+     * @param bodyLength 消息体长度
+     * @param peerCompressors 对端支持的压缩方式
+     * @return boolean
+     */
+    public boolean shouldCompress(int bodyLength, int peerCompressors) {
+        return compressor != null && bodyLength >= threshold && (peerCompressors & (1 << compressor.getId())) != 0;
+    }
+}
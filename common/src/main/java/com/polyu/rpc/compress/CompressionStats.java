@@ -0,0 +1,124 @@
+package com.polyu.rpc.compress;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压缩统计 用于按服务调整压缩阈值
+ * 出站按服务(serviceKey)统计压缩 入站统一统计解压
+ */
+public class CompressionStats {
+
+    /**
+     * 入站解压统计
+     */
+    public static final String INBOUND = "inbound";
+    /**
+     * 使用连接默认压缩策略的出站统计
+     */
+    public static final String DEFAULT = "default";
+
+    private static final ConcurrentHashMap<String, CompressionStats> ALL_STATS = new ConcurrentHashMap<>();
+
+    private final String name;
+    /**
+     * 压缩后写出的帧
+     */
+    private final LongAdder compressedFrames = new LongAdder();
+    /**
+     * 超过阈值但压缩无收益 按原文写出的帧
+     */
+    private final LongAdder skippedFrames = new LongAdder();
+    private final LongAdder originalBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+
+    private CompressionStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 获取统计 不存在则创建
+     * @param name serviceKey 或 INBOUND
+     * @return 统计
+     */
+    public static CompressionStats of(String name) {
+        return ALL_STATS.computeIfAbsent(name, CompressionStats::new);
+    }
+
+    /**
+     * 全部统计
+     * @return name -> 统计
+     */
+    public static Map<String, CompressionStats> getAll() {
+        return Collections.unmodifiableMap(ALL_STATS);
+    }
+
+    /**
+     * 记录一次压缩/解压
+     * @param originalLength 原始长度
+     * @param compressedLength 压缩后长度
+     * @param nanos 耗时
+     */
+    public void record(int originalLength, int compressedLength, long nanos) {
+        compressedFrames.increment();
+        originalBytes.add(originalLength);
+        compressedBytes.add(compressedLength);
+        cpuNanos.add(nanos);
+    }
+
+    /**
+     * 记录一次无收益的压缩
+     * @param nanos 耗时
+     */
+    public void recordSkipped(long nanos) {
+        skippedFrames.increment();
+        cpuNanos.add(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCompressedFrames() {
+        return compressedFrames.sum();
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames.sum();
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos.sum();
+    }
+
+    /**
+     * 压缩比 压缩后/原始 越小越好
+     * @return 无数据时为 1
+     */
+    public double getCompressionRatio() {
+        long original = getOriginalBytes();
+        return original == 0 ? 1D : (double) getCompressedBytes() / original;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStats(name=" + name
+                + ", compressedFrames=" + getCompressedFrames()
+                + ", skippedFrames=" + getSkippedFrames()
+                + ", originalBytes=" + getOriginalBytes()
+                + ", compressedBytes=" + getCompressedBytes()
+                + ", ratio=" + String.format("%.3f", getCompressionRatio())
+                + ", cpuMillis=" + getCpuNanos() / 1000000 + ")";
+    }
+}
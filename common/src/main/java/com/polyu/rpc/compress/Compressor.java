@@ -0,0 +1,40 @@
+package com.polyu.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+
+/**
+ * 消息体压缩方式 实现类需线程安全 通过 CompressorRegistry 以单例使用
+ */
+public interface Compressor {
+
+    /**
+     * 压缩方式id 写入帧头 flags 低4位 需全局唯一且不可变更
+     * @return 1 ~ 15
+     */
+    byte getId();
+
+    /**
+     * 压缩方式名称 用于注解及配置选择
+     * @return 名称
+     */
+    String getName();
+
+    /**
+     * 压缩 in 的全部可读字节 写入 out
+     * @param in 原始数据
+     * @param out 目标缓冲区
+     * @throws IOException
+     */
+    void compress(ByteBuf in, ByteBuf out) throws IOException;
+
+    /**
+     * 解压 in 的全部可读字节 写入 out
+     * @param in 压缩数据
+     * @param out 目标缓冲区
+     * @param originalLength 原始长度
+     * @throws IOException 数据损坏或长度不符
+     */
+    void decompress(ByteBuf in, ByteBuf out, int originalLength) throws IOException;
+}
@@ -0,0 +1,96 @@
+package com.polyu.rpc.compress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * 压缩方式注册表
+ * 通过 ServiceLoader 加载 META-INF/services/com.polyu.rpc.compress.Compressor 中声明的实现
+ * 依赖缺失(如未引入 lz4-java)的实现加载失败时跳过
+ */
+public final class CompressorRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(CompressorRegistry.class);
+
+    /**
+     * 不压缩
+     */
+    public static final String NONE = "none";
+    public static final int MAX_ID = 15;
+
+    private static final Compressor[] ID_2_COMPRESSOR = new Compressor[MAX_ID + 1];
+    private static final Map<String, Compressor> NAME_2_COMPRESSOR = new HashMap<>();
+    /**
+     * 本地支持的压缩方式 第id位为1表示支持 握手时告知对端
+     */
+    private static int supportedMask;
+
+    static {
+        Iterator<Compressor> iterator = ServiceLoader.load(Compressor.class, CompressorRegistry.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                register(iterator.next());
+            } catch (ServiceConfigurationError | LinkageError e) {
+                logger.warn("Skip unavailable compressor: {}.", e.getMessage());
+            }
+        }
+    }
+
+    private CompressorRegistry() {
+    }
+
+    private static void register(Compressor compressor) {
+        byte id = compressor.getId();
+        if (id <= 0 || id > MAX_ID) {
+            logger.warn("Skip compressor {} with invalid id {}.", compressor.getName(), id);
+            return;
+        }
+        Compressor exist = ID_2_COMPRESSOR[id];
+        if (exist != null) {
+            logger.warn("Compressor id {} conflict between {} and {}, keep the former.", id, exist.getName(), compressor.getName());
+            return;
+        }
+        ID_2_COMPRESSOR[id] = compressor;
+        NAME_2_COMPRESSOR.put(compressor.getName(), compressor);
+        supportedMask |= 1 << id;
+        logger.info("Compressor {} registered with id {}.", compressor.getName(), id);
+    }
+
+    /**
+     * 按帧头中的id查找
+     * @param id 压缩方式id
+     * @return 不存在返回null
+     */
+    public static Compressor get(int id) {
+        return id > 0 && id <= MAX_ID ? ID_2_COMPRESSOR[id] : null;
+    }
+
+    /**
+     * 按名称查找 空名称或 none 返回null
+     * @param name 压缩方式名称
+     * @return 压缩方式
+     * @throws IllegalArgumentException 不存在
+     */
+    public static Compressor get(String name) {
+        if (name == null || name.isEmpty() || NONE.equals(name)) {
+            return null;
+        }
+        Compressor compressor = NAME_2_COMPRESSOR.get(name);
+        if (compressor == null) {
+            throw new IllegalArgumentException("Unknown or unavailable compressor: " + name);
+        }
+        return compressor;
+    }
+
+    public static int getSupportedMask() {
+        return supportedMask;
+    }
+}
@@ -0,0 +1,91 @@
+package com.polyu.rpc.compress.deflate;
+
+import com.polyu.rpc.compress.Compressor;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * jdk Deflater 压缩 无需额外依赖
+ * Deflater / Inflater 按线程复用 使用 BEST_SPEED 以降低 CPU 开销
+ */
+public class DeflateCompressor implements Compressor {
+    public static final byte ID = 1;
+    public static final String NAME = "deflate";
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<byte[]> CHUNK = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Deflater deflater = DEFLATER.get();
+        byte[] chunk = CHUNK.get();
+        deflater.reset();
+        setInput(in, deflater::setInput);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.writeBytes(chunk, 0, length);
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int originalLength) throws IOException {
+        Inflater inflater = INFLATER.get();
+        byte[] chunk = CHUNK.get();
+        inflater.reset();
+        setInput(in, inflater::setInput);
+        int total = 0;
+        try {
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated deflate data.");
+                }
+                total += length;
+                if (total > originalLength) {
+                    throw new IOException("Inflated length exceeds " + originalLength);
+                }
+                out.writeBytes(chunk, 0, length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        if (total != originalLength) {
+            throw new IOException("Inflated length " + total + " mismatch " + originalLength);
+        }
+    }
+
+    /**
+     * 堆内缓冲区直接使用底层数组 否则拷贝
+     */
+    private static void setInput(ByteBuf in, InputSetter setter) {
+        if (in.hasArray()) {
+            setter.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+        } else {
+            byte[] bytes = new byte[in.readableBytes()];
+            in.getBytes(in.readerIndex(), bytes);
+            setter.setInput(bytes, 0, bytes.length);
+        }
+    }
+
+    private interface InputSetter {
+        void setInput(byte[] bytes, int offset, int length);
+    }
+}
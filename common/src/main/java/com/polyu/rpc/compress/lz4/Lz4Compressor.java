@@ -0,0 +1,67 @@
+package com.polyu.rpc.compress.lz4;
+
+import com.polyu.rpc.compress.Compressor;
+import io.netty.buffer.ByteBuf;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * lz4 压缩 需引入 org.lz4:lz4-java
+ * 直接读写 ByteBuf 底层 nio 缓冲区
+ * 解压使用 safe decompressor 以压缩数据长度为界 损坏或伪造的数据不会越界读写
+ */
+public class Lz4Compressor implements Compressor {
+    public static final byte ID = 2;
+    public static final String NAME = "lz4";
+
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    public Lz4Compressor() {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.safeDecompressor();
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        int length = in.readableBytes();
+        int maxLength = compressor.maxCompressedLength(length);
+        out.ensureWritable(maxLength);
+        ByteBuffer src = in.nioBuffer();
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxLength);
+        int written = compressor.compress(src, src.position(), length, dest, dest.position(), maxLength);
+        out.writerIndex(out.writerIndex() + written);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int originalLength) throws IOException {
+        out.ensureWritable(originalLength);
+        ByteBuffer src = in.nioBuffer();
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), originalLength);
+        try {
+            int written = decompressor.decompress(src, src.position(), src.remaining(), dest, dest.position(), originalLength);
+            if (written != originalLength) {
+                throw new IOException("Lz4 decompressed length " + written + " mismatch " + originalLength);
+            }
+        } catch (LZ4Exception e) {
+            throw new IOException(e);
+        }
+        out.writerIndex(out.writerIndex() + originalLength);
+    }
+}
@@ -0,0 +1,89 @@
+package com.polyu.rpc.info;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 服务节点地址 host:port 全局唯一实例(驻留)
+ * 同一地址始终为同一对象 可直接按引用比较
+ * 连接表、路由快照及注册中心节点对比均以此为键 节点提供的服务列表只是节点的属性
+ */
+public final class Endpoint {
+
+    /**
+     * host -> port -> endpoint 查找时不拼接地址字符串
+     */
+    private static final ConcurrentMap<String, ConcurrentMap<Integer, Endpoint>> ENDPOINTS = new ConcurrentHashMap<>();
+
+    private final String host;
+    private final int port;
+    private final String address;
+    private final int hash;
+
+    private Endpoint(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.address = host + ":" + port;
+        this.hash = 31 * host.hashCode() + port;
+    }
+
+    /**
+     * 获取地址对应的唯一实例
+     * 地址数量即历史上出现过的节点数 实例不回收
+     * @param host ip
+     * @param port 端口
+     * @return endpoint
+     */
+    public static Endpoint of(String host, int port) {
+        ConcurrentMap<Integer, Endpoint> ports = ENDPOINTS.get(host);
+        if (ports == null) {
+            ports = ENDPOINTS.computeIfAbsent(host, k -> new ConcurrentHashMap<>(4));
+        }
+        Endpoint endpoint = ports.get(port);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        return ports.computeIfAbsent(port, k -> new Endpoint(host, port));
+    }
+
+    /**
+     * 节点地址 结果缓存在元信息上 地址未变时直接返回
+     * @param rpcMetaData 节点元信息
+     * @return endpoint
+     */
+    public static Endpoint of(RpcMetaData rpcMetaData) {
+        Endpoint endpoint = rpcMetaData.endpoint;
+        if (endpoint != null && endpoint.port == rpcMetaData.getPort() && endpoint.host.equals(rpcMetaData.getHost())) {
+            return endpoint;
+        }
+        endpoint = of(rpcMetaData.getHost(), rpcMetaData.getPort());
+        rpcMetaData.endpoint = endpoint;
+        return endpoint;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * 驻留实例 按引用比较
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return address;
+    }
+}
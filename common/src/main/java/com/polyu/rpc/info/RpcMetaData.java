@@ -1,7 +1,10 @@
 package com.polyu.rpc.info;
 
 import com.polyu.rpc.util.JsonUtil;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.util.List;
 import java.util.Objects;
@@ -12,12 +15,28 @@ import java.util.Objects;
 @Data
 public class RpcMetaData {
 
+    /**
+     * 未发布权重的节点(旧版本服务端)按此权重处理
+     */
+    public static final int DEFAULT_WEIGHT = 100;
+
     private String host;
     private int port;
+    /**
+     * 节点权重 仅加权负载均衡(WeightedRoundRobin / WeightedRandom)使用
+     * 0 表示加权负载均衡不再选择该节点(全部节点为 0 时退化为随机) 其他负载均衡策略及对冲/重试不受影响
+     */
+    private int weight = DEFAULT_WEIGHT;
     /**
      * 服务列表list
      */
     private List<RpcServiceInfo> serviceInfoList;
+    /**
+     * 节点地址缓存 由 Endpoint.of 维护 不参与序列化与比较
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    transient volatile Endpoint endpoint;
 
     public String toJson() {
         return JsonUtil.objectToJson(this);
@@ -33,6 +52,7 @@ public class RpcMetaData {
         if (o == null || getClass() != o.getClass()) return false;
         RpcMetaData that = (RpcMetaData) o;
         return port == that.port &&
+                weight == that.weight &&
                 Objects.equals(host, that.host) &&
                 isListEquals(serviceInfoList, that.getServiceInfoList());
     }
@@ -48,12 +68,12 @@ public class RpcMetaData {
     }
 
     /**
-     * 服务列表不一样 即使ip & port相同也不属于同一个zk节点
+     * 服务列表或权重不一样 即使ip & port相同也不属于同一个zk节点
      * @return
      */
     @Override
     public int hashCode() {
-        return Objects.hash(host, port, serviceInfoList.hashCode());
+        return Objects.hash(host, port, weight, serviceInfoList.hashCode());
     }
 
     @Override
@@ -1,5 +1,7 @@
 package com.polyu.rpc.registry;
 
+import com.polyu.rpc.info.RpcMetaData;
+
 import java.util.Map;
 
 public interface ServiceRegistry {
@@ -10,7 +12,24 @@ public interface ServiceRegistry {
      * @param port 服务提供者端口号
      * @param serviceKey2BeanMap serviceKey -> bean 映射
      */
-    void registerService(String host, int port, Map<String, Object> serviceKey2BeanMap);
+    default void registerService(String host, int port, Map<String, Object> serviceKey2BeanMap) {
+        registerService(host, port, serviceKey2BeanMap, RpcMetaData.DEFAULT_WEIGHT);
+    }
+
+    /**
+     * 服务注册 并发布节点权重
+     * @param host 服务提供者ip
+     * @param port 服务提供者端口号
+     * @param serviceKey2BeanMap serviceKey -> bean 映射
+     * @param weight 节点权重
+     */
+    void registerService(String host, int port, Map<String, Object> serviceKey2BeanMap, int weight);
+
+    /**
+     * 更新已注册节点的权重 订阅方以节点更新(CHILD_UPDATED)接收 不重建连接
+     * @param weight 节点权重
+     */
+    void updateWeight(int weight);
 
     /**
      * 注销服务
@@ -0,0 +1,36 @@
+package com.polyu.rpc.route;
+
+/**
+ * 节点(或连接)负载 供负载均衡参考
+ */
+public interface EndpointLoad {
+
+    /**
+     * 尚无延迟数据但有待响应请求时的代价 使其排在有数据的节点之后
+     */
+    double NO_LATENCY_PENALTY = (double) (Long.MAX_VALUE >> 16);
+
+    /**
+     * 待响应的请求数
+     */
+    int getPending();
+
+    /**
+     * 衰减后的峰值敏感延迟均值(纳秒) 无数据时为 0
+     */
+    double getLatencyEwma();
+
+    /**
+     * 负载代价 延迟均值 * (待响应数 + 1) 越小越空闲
+     */
+    default double getCost() {
+        return cost(getPending(), getLatencyEwma());
+    }
+
+    static double cost(int pending, double latencyEwma) {
+        if (latencyEwma <= 0D) {
+            return pending <= 0 ? 0D : NO_LATENCY_PENALTY + pending;
+        }
+        return latencyEwma * (pending + 1);
+    }
+}
@@ -0,0 +1,15 @@
+package com.polyu.rpc.route;
+
+import com.polyu.rpc.info.RpcMetaData;
+
+/**
+ * 按节点查询负载 由 client 连接层提供
+ */
+public interface EndpointLoadView {
+
+    /**
+     * @param rpcMetaData 节点
+     * @return 负载 节点无连接时返回 null
+     */
+    EndpointLoad loadOf(RpcMetaData rpcMetaData);
+}
@@ -0,0 +1,96 @@
+package com.polyu.rpc.route;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 单个连接的负载统计 待响应请求数与峰值敏感的指数衰减延迟均值(peak EWMA)
+ * 延迟高于均值时均值直接取该延迟 低于时按距上次观测的时间衰减 即慢节点被立即感知 恢复后逐步回落
+ */
+public class EndpointStats implements EndpointLoad {
+
+    /**
+     * 衰减时间常数(纳秒) 默认 10s
+     */
+    private static volatile double decayNanos = TimeUnit.SECONDS.toNanos(10);
+
+    private volatile int pending;
+    private static final AtomicIntegerFieldUpdater<EndpointStats> PENDING_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(EndpointStats.class, "pending");
+
+    /**
+     * 仅在持有 this 锁时修改
+     */
+    private volatile double latencyEwma;
+    private volatile long stamp = System.nanoTime();
+
+    /**
+     * 设置衰减时间
+     * @param decayTimeMillis 毫秒
+     */
+    public static void setDecayTime(long decayTimeMillis) {
+        if (decayTimeMillis <= 0) {
+            throw new IllegalArgumentException("Decay time must be positive: " + decayTimeMillis);
+        }
+        decayNanos = TimeUnit.MILLISECONDS.toNanos(decayTimeMillis);
+    }
+
+    /**
+     * 发出请求
+     */
+    public void requestStarted() {
+        PENDING_UPDATER.incrementAndGet(this);
+    }
+
+    /**
+     * 请求结束 无可用延迟(发送失败/超时/取消)
+     */
+    public void requestFinished() {
+        PENDING_UPDATER.decrementAndGet(this);
+    }
+
+    /**
+     * 请求结束并记录延迟
+     * @param latencyNanos 延迟(纳秒)
+     */
+    public void requestFinished(long latencyNanos) {
+        PENDING_UPDATER.decrementAndGet(this);
+        observe(Math.max(latencyNanos, 0L));
+    }
+
+    private synchronized void observe(double latency) {
+        long now = System.nanoTime();
+        double ewma = latencyEwma;
+        if (latency > ewma) {
+            latencyEwma = latency;
+        } else {
+            double w = Math.exp(-Math.max(now - stamp, 0L) / decayNanos);
+            latencyEwma = ewma * w + latency * (1D - w);
+        }
+        stamp = now;
+    }
+
+    @Override
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * 读取时按距上次观测的时间衰减 长时间无响应的节点逐步恢复被选择的机会
+     */
+    @Override
+    public double getLatencyEwma() {
+        double ewma = latencyEwma;
+        if (ewma <= 0D) {
+            return 0D;
+        }
+        long elapsed = System.nanoTime() - stamp;
+        return elapsed <= 0L ? ewma : ewma * Math.exp(-elapsed / decayNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointStats(pending=" + pending
+                + ", latencyEwmaMicros=" + (long) (getLatencyEwma() / 1000D) + ")";
+    }
+}
@@ -1,100 +1,150 @@
 package com.polyu.rpc.route;
 
+import com.polyu.rpc.info.Endpoint;
 import com.polyu.rpc.info.RpcMetaData;
 import com.polyu.rpc.info.RpcServiceInfo;
 import com.polyu.rpc.util.ServiceUtil;
-import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 用于route的快速选择
+ * 各 serviceKey 的不可变路由快照整体经一个 volatile 引用发布 读取无锁
+ * 节点以地址(Endpoint)区分 服务列表为节点属性
+ * 节点变化(低频)时加锁复制重建
  */
 public class MetaDataKeeper {
     private static final Logger logger = LoggerFactory.getLogger(MetaDataKeeper.class);
 
-    private static Map<String, RpcMetaDataContainer> key2MetaDatas = new ConcurrentHashMap<>();
+    /**
+     * serviceKey -> 路由快照 发布后不再修改
+     */
+    private static volatile Map<String, RouteSnapshot> snapshots = Collections.emptyMap();
+
+    private static final AtomicLong VERSION_GENERATOR = new AtomicLong();
 
-    @Data
-    private static class RpcMetaDataContainer {
-        private List<RpcMetaData> rpcMetaData = new CopyOnWriteArrayList<>();
-        private Map<RpcMetaData, Integer> metaData2Index = new HashMap<>();
+    /**
+     * 节点地址 -> 当前元信息(所提供的服务列表) 仅在加锁的变更方法中访问
+     */
+    private static final Map<Endpoint, RpcMetaData> NODES = new HashMap<>();
+
+    /**
+     * zk发生加入新的RpcProtocol 时更新路由快照
+     * @param rpcMetaData 注册信息
+     */
+    public static void addZkChild(RpcMetaData rpcMetaData) {
+        addZkChild(rpcMetaData, null);
     }
 
     /**
-     * zk发生加入新的RpcProtocol 时更新key2Protocols
+     * 加入节点并关联节点连接 地址已存在时原位替换元信息
+     * 不再提供的服务在同一次发布中移除 读取方不会看到节点缺失的中间状态
      * @param rpcMetaData 注册信息
+     * @param load 节点连接 client 端为连接池
      */
-    public synchronized static void addZkChild(RpcMetaData rpcMetaData) {
+    public synchronized static void addZkChild(RpcMetaData rpcMetaData, EndpointLoad load) {
         if (Objects.isNull(rpcMetaData)) {
             return;
         }
-        List<RpcServiceInfo> serviceInfos = rpcMetaData.getServiceInfoList();
-        for (RpcServiceInfo serviceInfo : serviceInfos) {
+        long version = VERSION_GENERATOR.incrementAndGet();
+        Endpoint endpoint = Endpoint.of(rpcMetaData);
+        RpcMetaData previous = NODES.put(endpoint, rpcMetaData);
+        Map<String, RouteSnapshot> next = new HashMap<>(snapshots);
+        List<RpcServiceInfo> serviceInfoList = serviceInfoListOf(rpcMetaData);
+        for (RpcServiceInfo serviceInfo : serviceInfoListOf(previous)) {
+            if (!serviceInfoList.contains(serviceInfo)) {
+                remove(next, serviceInfo, endpoint, version);
+            }
+        }
+        for (RpcServiceInfo serviceInfo : serviceInfoList) {
             try {
                 String serviceKey = ServiceUtil.makeServiceKey(serviceInfo.getServiceName(), serviceInfo.getVersion());
-                RpcMetaDataContainer rpcMetaDataContainer = key2MetaDatas.get(serviceKey);
-                if (Objects.isNull(rpcMetaDataContainer)) {
-                    rpcMetaDataContainer = new RpcMetaDataContainer();
-                    key2MetaDatas.put(serviceKey, rpcMetaDataContainer);
-                }
-                List<RpcMetaData> rpcMetaDatas = rpcMetaDataContainer.getRpcMetaData();
-                Map<RpcMetaData, Integer> protocol2Index = rpcMetaDataContainer.getMetaData2Index();
-
-                Integer index = protocol2Index.get(rpcMetaData);
-                // 如果已经存在 移除进行更新
-                if (Objects.nonNull(index)) {
-                    rpcMetaDatas.remove(index.intValue());
+                RouteSnapshot snapshot = next.get(serviceKey);
+                if (snapshot == null) {
+                    snapshot = RouteSnapshot.empty(serviceKey);
                 }
-                protocol2Index.put(rpcMetaData, rpcMetaDatas.size());
-                rpcMetaDatas.add(rpcMetaData);
+                next.put(serviceKey, snapshot.with(endpoint, rpcMetaData, load, version));
             } catch (Exception e) {
                 logger.error("addZkChild operation exception, serviceInfo: {}, exception: {}", serviceInfo, e.getMessage());
             }
         }
+        snapshots = next;
     }
 
     /**
-     * 删除rpcProtocol 更新key2Protocols
+     * 删除节点 按地址从其当前提供的全部服务中移除
      * @param rpcMetaData
      */
     public synchronized static void removeZkChild(RpcMetaData rpcMetaData) {
         if (Objects.isNull(rpcMetaData)) {
             return;
         }
-        List<RpcServiceInfo> serviceInfos = rpcMetaData.getServiceInfoList();
-        for (RpcServiceInfo serviceInfo : serviceInfos) {
-            try {
-                String serviceKey = ServiceUtil.makeServiceKey(serviceInfo.getServiceName(), serviceInfo.getVersion());
-                RpcMetaDataContainer rpcMetaDataContainer = key2MetaDatas.get(serviceKey);
-                if (Objects.isNull(rpcMetaDataContainer)) {
-                    continue;
-                }
-                Map<RpcMetaData, Integer> protocol2Index = rpcMetaDataContainer.getMetaData2Index();
-                List<RpcMetaData> rpcMetaDatas = rpcMetaDataContainer.getRpcMetaData();
+        Endpoint endpoint = Endpoint.of(rpcMetaData);
+        RpcMetaData previous = NODES.remove(endpoint);
+        if (previous == null) {
+            return;
+        }
+        long version = VERSION_GENERATOR.incrementAndGet();
+        Map<String, RouteSnapshot> next = new HashMap<>(snapshots);
+        for (RpcServiceInfo serviceInfo : serviceInfoListOf(previous)) {
+            remove(next, serviceInfo, endpoint, version);
+        }
+        snapshots = next;
+    }
 
-                Integer index = protocol2Index.get(rpcMetaData);
-                if (Objects.isNull(index)) {
-                    continue;
-                }
-                rpcMetaDatas.remove(index.intValue());
-                protocol2Index.remove(rpcMetaData);
-            } catch (Exception e) {
-                logger.error("removeZkChild operation exception, serviceInfo: {}, exception: {}", serviceInfo, e.getMessage());
+    private static void remove(Map<String, RouteSnapshot> next, RpcServiceInfo serviceInfo, Endpoint endpoint, long version) {
+        try {
+            String serviceKey = ServiceUtil.makeServiceKey(serviceInfo.getServiceName(), serviceInfo.getVersion());
+            RouteSnapshot snapshot = next.get(serviceKey);
+            if (Objects.isNull(snapshot)) {
+                return;
             }
+            RouteSnapshot removed = snapshot.without(endpoint, version);
+            if (removed.isEmpty()) {
+                next.remove(serviceKey);
+            } else {
+                next.put(serviceKey, removed);
+            }
+        } catch (Exception e) {
+            logger.error("removeZkChild operation exception, serviceInfo: {}, exception: {}", serviceInfo, e.getMessage());
+        }
+    }
+
+    private static List<RpcServiceInfo> serviceInfoListOf(RpcMetaData rpcMetaData) {
+        if (rpcMetaData == null || rpcMetaData.getServiceInfoList() == null) {
+            return Collections.emptyList();
         }
+        return rpcMetaData.getServiceInfoList();
+    }
+
+    /**
+     * 获取路由快照
+     * @param serviceKey serviceName & version
+     * @return 快照 无该服务时返回 null
+     */
+    public static RouteSnapshot getSnapshot(String serviceKey) {
+        return snapshots.get(serviceKey);
     }
 
     public static List<RpcMetaData> getProtocolsFromServiceKey(String serviceKey) {
-        RpcMetaDataContainer rpcMetaDataContainer = key2MetaDatas.get(serviceKey);
-        if (Objects.isNull(rpcMetaDataContainer)) {
+        RouteSnapshot snapshot = snapshots.get(serviceKey);
+        if (Objects.isNull(snapshot)) {
             logger.warn("there is no service for serviceKey: {}.", serviceKey);
             return null;
         }
-        return rpcMetaDataContainer.getRpcMetaData();
+        return snapshot.asList();
+    }
+
+    /**
+     * 节点变化版本号 用于判断基于节点列表构建的路由结构是否需要重建
+     * @param serviceKey serviceName & version
+     * @return 版本号 无该服务时为 -1
+     */
+    public static long getVersion(String serviceKey) {
+        RouteSnapshot snapshot = snapshots.get(serviceKey);
+        return snapshot == null ? -1L : snapshot.getVersion();
     }
 }
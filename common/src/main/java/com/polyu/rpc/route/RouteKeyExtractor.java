@@ -0,0 +1,13 @@
+package com.polyu.rpc.route;
+
+/**
+ * 从调用参数中提取一致性哈希路由键 实现须无状态
+ */
+public interface RouteKeyExtractor {
+
+    /**
+     * @param args 调用参数
+     * @return 路由键 String / Number / byte[] 为 null 时随机选择节点
+     */
+    Object extract(Object[] args);
+}
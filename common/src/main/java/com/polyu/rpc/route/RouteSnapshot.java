@@ -0,0 +1,200 @@
+package com.polyu.rpc.route;
+
+import com.polyu.rpc.info.Endpoint;
+import com.polyu.rpc.info.RpcMetaData;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 某个 serviceKey 的路由快照 不可变 节点变化时整体替换
+ * 下标 i 处为节点地址、节点元信息、节点连接(client 端为连接池)及权重 负载均衡只需按下标选择 无需哈希查找
+ * 节点以地址(Endpoint)区分 同一地址的元信息变化(如权重)时原位替换
+ */
+public final class RouteSnapshot implements EndpointLoadView {
+
+    private final String serviceKey;
+    /**
+     * 快照版本 每次重建递增
+     */
+    private final long version;
+    private final Endpoint[] endpoints;
+    private final RpcMetaData[] metaData;
+    private final EndpointLoad[] loads;
+    private final List<RpcMetaData> metaDataList;
+    private final int[] weights;
+    /**
+     * 权重前缀和 prefixWeights[i] = weights[0..i] 之和
+     */
+    private final long[] prefixWeights;
+    private final long totalWeight;
+
+    private RouteSnapshot(String serviceKey, long version, Endpoint[] endpoints, RpcMetaData[] metaData, EndpointLoad[] loads) {
+        this.serviceKey = serviceKey;
+        this.version = version;
+        this.endpoints = endpoints;
+        this.metaData = metaData;
+        this.loads = loads;
+        this.metaDataList = Collections.unmodifiableList(Arrays.asList(metaData));
+        this.weights = new int[metaData.length];
+        this.prefixWeights = new long[metaData.length];
+        long total = 0;
+        for (int i = 0; i < metaData.length; i++) {
+            weights[i] = Math.max(metaData[i].getWeight(), 0);
+            total += weights[i];
+            prefixWeights[i] = total;
+        }
+        this.totalWeight = total;
+    }
+
+    static RouteSnapshot empty(String serviceKey) {
+        return new RouteSnapshot(serviceKey, 0L, new Endpoint[0], new RpcMetaData[0], new EndpointLoad[0]);
+    }
+
+    /**
+     * 加入或替换(地址相同)节点 替换时下标不变
+     * @return 新快照
+     */
+    RouteSnapshot with(Endpoint endpoint, RpcMetaData rpcMetaData, EndpointLoad load, long newVersion) {
+        int index = indexOf(endpoint);
+        Endpoint[] newEndpoints;
+        RpcMetaData[] newMetaData;
+        EndpointLoad[] newLoads;
+        if (index >= 0) {
+            newEndpoints = endpoints;
+            newMetaData = metaData.clone();
+            newLoads = loads.clone();
+        } else {
+            index = endpoints.length;
+            newEndpoints = Arrays.copyOf(endpoints, index + 1);
+            newEndpoints[index] = endpoint;
+            newMetaData = Arrays.copyOf(metaData, index + 1);
+            newLoads = Arrays.copyOf(loads, index + 1);
+        }
+        newMetaData[index] = rpcMetaData;
+        newLoads[index] = load;
+        return new RouteSnapshot(serviceKey, newVersion, newEndpoints, newMetaData, newLoads);
+    }
+
+    /**
+     * 移除节点
+     * @return 新快照 节点不存在时返回 this
+     */
+    RouteSnapshot without(Endpoint endpoint, long newVersion) {
+        int index = indexOf(endpoint);
+        if (index < 0) {
+            return this;
+        }
+        return new RouteSnapshot(serviceKey, newVersion,
+                remove(endpoints, index), remove(metaData, index), remove(loads, index));
+    }
+
+    private static <T> T[] remove(T[] array, int index) {
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    /**
+     * 节点下标 按引用查找
+     * @return 不存在时返回 -1
+     */
+    public int indexOf(Endpoint endpoint) {
+        for (int i = 0; i < endpoints.length; i++) {
+            if (endpoints[i] == endpoint) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 节点下标 先按元信息引用再按地址查找
+     * @return 不存在时返回 -1
+     */
+    public int indexOf(RpcMetaData rpcMetaData) {
+        for (int i = 0; i < metaData.length; i++) {
+            if (metaData[i] == rpcMetaData) {
+                return i;
+            }
+        }
+        return rpcMetaData == null ? -1 : indexOf(Endpoint.of(rpcMetaData));
+    }
+
+    @Override
+    public EndpointLoad loadOf(RpcMetaData rpcMetaData) {
+        int index = indexOf(rpcMetaData);
+        return index < 0 ? null : loads[index];
+    }
+
+    public String getServiceKey() {
+        return serviceKey;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return metaData.length;
+    }
+
+    public boolean isEmpty() {
+        return metaData.length == 0;
+    }
+
+    public Endpoint getEndpoint(int index) {
+        return endpoints[index];
+    }
+
+    public RpcMetaData getMetaData(int index) {
+        return metaData[index];
+    }
+
+    /**
+     * 节点连接 client 端为该节点的连接池 未关联时为 null
+     */
+    public EndpointLoad getLoad(int index) {
+        return loads[index];
+    }
+
+    public int getWeight(int index) {
+        return weights[index];
+    }
+
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * 按权重定位节点
+     * @param target [0, totalWeight)
+     * @return 第一个权重前缀和大于 target 的下标 权重为 0 的节点不会被选中
+     */
+    public int indexOfWeight(long target) {
+        int low = 0;
+        int high = prefixWeights.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prefixWeights[mid] > target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 节点列表 不可修改
+     */
+    public List<RpcMetaData> asList() {
+        return metaDataList;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteSnapshot(serviceKey=" + serviceKey + ", version=" + version + ", size=" + metaData.length + ")";
+    }
+}
@@ -1,5 +1,6 @@
 package com.polyu.rpc.route;
 
+import com.polyu.rpc.codec.RpcRequest;
 import com.polyu.rpc.info.RpcMetaData;
 
 public interface RpcLoadBalance {
@@ -11,4 +12,54 @@ public interface RpcLoadBalance {
      */
     RpcMetaData route(String serviceKey) throws Exception;
 
+    /**
+     * 结合节点负载做负载均衡 默认忽略负载
+     * @param serviceKey serviceName & version
+     * @param loadView 节点负载
+     * @return RpcProtocol
+     */
+    default RpcMetaData route(String serviceKey, EndpointLoadView loadView) throws Exception {
+        return route(serviceKey);
+    }
+
+    /**
+     * 结合请求(参数)与节点负载做负载均衡 默认忽略请求
+     * @param serviceKey serviceName & version
+     * @param request 请求 可能为 null
+     * @param loadView 节点负载
+     * @return RpcProtocol
+     */
+    default RpcMetaData route(String serviceKey, RpcRequest request, EndpointLoadView loadView) throws Exception {
+        return route(serviceKey, loadView);
+    }
+
+    /**
+     * 在路由快照中选择节点 client 发送请求时调用
+     * 内置策略直接按下标选择 自定义策略默认经 route 选择后定位下标
+     * @param snapshot 路由快照 非空
+     * @param request 请求 可能为 null
+     * @return 快照下标
+     */
+    default int select(RouteSnapshot snapshot, RpcRequest request) throws Exception {
+        RpcMetaData selected = route(snapshot.getServiceKey(), request, snapshot);
+        int index = selected == null ? -1 : snapshot.indexOf(selected);
+        if (index < 0) {
+            throw new Exception("Can not find connection for service: " + snapshot.getServiceKey());
+        }
+        return index;
+    }
+
+    /**
+     * 获取非空路由快照
+     * @param serviceKey serviceName & version
+     * @return 快照
+     * @throws Exception 无可用节点
+     */
+    static RouteSnapshot requireSnapshot(String serviceKey) throws Exception {
+        RouteSnapshot snapshot = MetaDataKeeper.getSnapshot(serviceKey);
+        if (snapshot == null || snapshot.isEmpty()) {
+            throw new Exception("Can not find connection for service: " + serviceKey);
+        }
+        return snapshot;
+    }
 }
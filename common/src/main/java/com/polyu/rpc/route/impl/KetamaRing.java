@@ -0,0 +1,127 @@
+package com.polyu.rpc.route.impl;
+
+import com.google.common.hash.Hashing;
+import com.polyu.rpc.info.Endpoint;
+import com.polyu.rpc.route.RouteSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ketama 哈希环 不可变
+ * 每个节点按 host:port 生成 virtualNodes 个虚拟节点 每次 md5 得到 4 个 32 位点
+ * 节点增减时基于旧环构建 只计算新增节点的虚拟节点 其余节点的位置不变 仅相邻区间的键被重新映射
+ */
+class KetamaRing {
+
+    private static final long SIGN_BIT = 0x80000000L;
+
+    private final int virtualNodes;
+    /**
+     * 升序排列的虚拟节点位置(无符号 32 位)
+     */
+    private final long[] points;
+    /**
+     * 虚拟节点所属节点在路由快照中的下标
+     */
+    private final int[] owners;
+    /**
+     * 节点地址 -> 该节点的虚拟节点位置 供重建时复用
+     */
+    private final Map<Endpoint, long[]> nodePoints;
+
+    KetamaRing(RouteSnapshot snapshot, int virtualNodes, KetamaRing previous) {
+        this.virtualNodes = virtualNodes;
+        int size = snapshot.size();
+        this.nodePoints = new HashMap<>(size * 2);
+        int total = 0;
+        long[][] perNode = new long[size][];
+        for (int i = 0; i < size; i++) {
+            Endpoint endpoint = snapshot.getEndpoint(i);
+            long[] nodeHashes = previous != null && previous.virtualNodes == virtualNodes ? previous.nodePoints.get(endpoint) : null;
+            if (nodeHashes == null) {
+                nodeHashes = hashNode(endpoint.toString(), virtualNodes);
+            }
+            nodePoints.put(endpoint, nodeHashes);
+            perNode[i] = nodeHashes;
+            total += nodeHashes.length;
+        }
+        // 高 32 位为位置(翻转符号位以按无符号排序) 低 32 位为节点下标 一次排序得到有序环
+        long[] packed = new long[total];
+        int n = 0;
+        for (int i = 0; i < perNode.length; i++) {
+            for (long point : perNode[i]) {
+                packed[n++] = (point ^ SIGN_BIT) << 32 | i;
+            }
+        }
+        Arrays.sort(packed);
+        this.points = new long[total];
+        this.owners = new int[total];
+        for (int i = 0; i < total; i++) {
+            points[i] = (packed[i] >>> 32) ^ SIGN_BIT;
+            owners[i] = (int) packed[i];
+        }
+    }
+
+    /**
+     * 顺时针找到第一个不小于键哈希的虚拟节点
+     * @param key 路由键 String / Number / byte[]
+     * @return 节点在路由快照中的下标
+     */
+    int locate(Object key) {
+        long hash = hashKey(key);
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    private static long[] hashNode(String nodeKey, int virtualNodes) {
+        int groups = Math.max(1, (virtualNodes + 3) / 4);
+        long[] nodeHashes = new long[groups * 4];
+        MessageDigest md5 = md5();
+        for (int i = 0; i < groups; i++) {
+            byte[] digest = md5.digest((nodeKey + "-" + i).getBytes(StandardCharsets.UTF_8));
+            for (int h = 0; h < 4; h++) {
+                nodeHashes[i * 4 + h] = ((long) (digest[3 + h * 4] & 0xFF) << 24)
+                        | ((long) (digest[2 + h * 4] & 0xFF) << 16)
+                        | ((long) (digest[1 + h * 4] & 0xFF) << 8)
+                        | (digest[h * 4] & 0xFF);
+            }
+        }
+        return nodeHashes;
+    }
+
+    /**
+     * 只接受 String / Number / byte[] 其余类型的 toString 不保证稳定(如默认的 类名@hashCode) 需以 @RouteKey 提取器转换
+     */
+    private static long hashKey(Object key) {
+        byte[] bytes;
+        if (key instanceof byte[]) {
+            bytes = (byte[]) key;
+        } else if (key instanceof String || key instanceof Number) {
+            bytes = key.toString().getBytes(StandardCharsets.UTF_8);
+        } else {
+            throw new IllegalArgumentException("Route key must be String, Number or byte[], but got "
+                    + key.getClass().getName() + ". Declare @RouteKey(extractor = ...) to extract one.");
+        }
+        return Hashing.murmur3_32().hashBytes(bytes).asInt() & 0xFFFFFFFFL;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not supported.", e);
+        }
+    }
+}
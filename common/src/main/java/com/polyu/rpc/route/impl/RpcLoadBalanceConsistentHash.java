@@ -1,32 +1,191 @@
 package com.polyu.rpc.route.impl;
 
-import com.google.common.hash.Hashing;
+import com.polyu.rpc.annotation.RouteKey;
+import com.polyu.rpc.codec.RpcRequest;
 import com.polyu.rpc.info.RpcMetaData;
-import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.route.EndpointLoadView;
+import com.polyu.rpc.route.RouteKeyExtractor;
+import com.polyu.rpc.route.RouteSnapshot;
 import com.polyu.rpc.route.RpcLoadBalance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * 一致性哈希
+ * 一致性哈希 按请求参数(路由键)在 Ketama 环上选择节点 同一路由键固定落在同一节点
+ * 路由键优先取接口方法上 @RouteKey 声明的参数/提取器 否则取 argumentIndex 处的参数 无参数时随机
+ * 每个 serviceKey 一个环 仅在路由快照替换(节点变化)时重建
  */
 public class RpcLoadBalanceConsistentHash implements RpcLoadBalance {
     private static final Logger logger = LoggerFactory.getLogger(RpcLoadBalanceConsistentHash.class);
 
-    private RpcMetaData doRoute(String serviceKey, List<RpcMetaData> addressList) {
-        int index = Hashing.consistentHash(serviceKey.hashCode(), addressList.size());
-        return addressList.get(index);
+    /**
+     * 默认每个节点的虚拟节点数
+     */
+    private static volatile int defaultVirtualNodes = 160;
+
+    private final int virtualNodes;
+    private final int argumentIndex;
+    /**
+     * serviceKey -> 环
+     */
+    private final Map<String, RingHolder> rings = new ConcurrentHashMap<>();
+    /**
+     * 方法 -> 路由键提取器 未声明 @RouteKey 的方法为 defaultExtractor
+     */
+    private final Map<String, RouteKeyExtractor> extractors = new ConcurrentHashMap<>();
+    private final RouteKeyExtractor defaultExtractor;
+
+    private static class RingHolder {
+        private final RouteSnapshot snapshot;
+        private final KetamaRing ring;
+
+        private RingHolder(RouteSnapshot snapshot, KetamaRing ring) {
+            this.snapshot = snapshot;
+            this.ring = ring;
+        }
+    }
+
+    public RpcLoadBalanceConsistentHash() {
+        this(defaultVirtualNodes, 0);
+    }
+
+    public RpcLoadBalanceConsistentHash(int virtualNodes) {
+        this(virtualNodes, 0);
+    }
+
+    /**
+     * @param virtualNodes 每个节点的虚拟节点数
+     * @param argumentIndex 未声明 @RouteKey 时作为路由键的参数下标
+     */
+    public RpcLoadBalanceConsistentHash(int virtualNodes, int argumentIndex) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+        this.argumentIndex = argumentIndex;
+        this.defaultExtractor = new ArgumentExtractor(argumentIndex);
+    }
+
+    /**
+     * 设置默认虚拟节点数 影响之后以无参构造创建的实例
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public static void setDefaultVirtualNodes(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        defaultVirtualNodes = virtualNodes;
+    }
+
+    @Override
+    public int select(RouteSnapshot snapshot, RpcRequest request) {
+        Object routeKey = request == null ? null : extractorOf(request).extract(request.getParameters());
+        if (routeKey == null) {
+            return ThreadLocalRandom.current().nextInt(snapshot.size());
+        }
+        return ringOf(snapshot).locate(routeKey);
     }
 
     @Override
     public RpcMetaData route(String serviceKey) throws Exception {
+        return route(serviceKey, null, null);
+    }
+
+    @Override
+    public RpcMetaData route(String serviceKey, RpcRequest request, EndpointLoadView loadView) throws Exception {
         logger.debug("RpcLoadBalanceConsistentHash is routing for {}.", serviceKey);
-        List<RpcMetaData> addressList = MetaDataKeeper.getProtocolsFromServiceKey(serviceKey);
-        if (addressList == null || addressList.isEmpty()) {
-            throw new Exception("Can not find connection for service: " + serviceKey);
+        RouteSnapshot snapshot = RpcLoadBalance.requireSnapshot(serviceKey);
+        return snapshot.getMetaData(select(snapshot, request));
+    }
+
+    /**
+     * 获取环 路由快照替换后基于旧环重建
+     */
+    private KetamaRing ringOf(RouteSnapshot snapshot) {
+        String serviceKey = snapshot.getServiceKey();
+        RingHolder holder = rings.get(serviceKey);
+        if (holder != null && holder.snapshot == snapshot) {
+            return holder.ring;
+        }
+        synchronized (rings) {
+            holder = rings.get(serviceKey);
+            if (holder != null && holder.snapshot == snapshot) {
+                return holder.ring;
+            }
+            KetamaRing ring = new KetamaRing(snapshot, virtualNodes, holder == null ? null : holder.ring);
+            // 只保留较新的快照对应的环
+            if (holder == null || holder.snapshot.getVersion() < snapshot.getVersion()) {
+                rings.put(serviceKey, new RingHolder(snapshot, ring));
+                logger.info("Consistent hash ring rebuilt for {}, nodes: {}, virtual nodes: {}.", serviceKey, snapshot.size(), virtualNodes);
+            }
+            return ring;
+        }
+    }
+
+    private RouteKeyExtractor extractorOf(RpcRequest request) {
+        String methodKey = request.getMethodKey() != null ? request.getMethodKey()
+                : request.getClassName() + "#" + request.getMethodName();
+        RouteKeyExtractor extractor = extractors.get(methodKey);
+        if (extractor == null) {
+            extractor = resolveExtractor(request);
+            extractors.putIfAbsent(methodKey, extractor);
+        }
+        return extractor;
+    }
+
+    /**
+     * 解析接口方法上的 @RouteKey 无法解析时使用 argumentIndex
+     */
+    private RouteKeyExtractor resolveExtractor(RpcRequest request) {
+        Method method;
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            Class<?> interfaceClass = Class.forName(request.getClassName(), false,
+                    classLoader != null ? classLoader : RpcLoadBalanceConsistentHash.class.getClassLoader());
+            method = interfaceClass.getMethod(request.getMethodName(), request.getParameterTypes());
+        } catch (Exception e) {
+            logger.warn("Resolve route key of {}#{} failed, use argument {}. exception: {}",
+                    request.getClassName(), request.getMethodName(), argumentIndex, e.getMessage());
+            return defaultExtractor;
+        }
+        RouteKey methodRouteKey = method.getAnnotation(RouteKey.class);
+        if (methodRouteKey != null && methodRouteKey.extractor() != RouteKeyExtractor.class) {
+            try {
+                return methodRouteKey.extractor().newInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException("Create route key extractor " + methodRouteKey.extractor().getName() + " failed.", e);
+            }
+        }
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof RouteKey) {
+                    return new ArgumentExtractor(i);
+                }
+            }
+        }
+        return defaultExtractor;
+    }
+
+    /**
+     * 以指定下标的参数为路由键
+     */
+    private static class ArgumentExtractor implements RouteKeyExtractor {
+        private final int index;
+
+        private ArgumentExtractor(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object extract(Object[] args) {
+            return args == null || index < 0 || index >= args.length ? null : args[index];
         }
-        return doRoute(serviceKey, addressList);
     }
 }
@@ -0,0 +1,64 @@
+package com.polyu.rpc.route.impl;
+
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.route.EndpointLoad;
+import com.polyu.rpc.route.EndpointLoadView;
+import com.polyu.rpc.route.RouteSnapshot;
+import com.polyu.rpc.route.RpcLoadBalance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 两次随机选择(P2C) 随机取两个节点 选择负载代价(peak EWMA 延迟 * (待响应数 + 1))较小者
+ * 负载取自路由快照关联的节点连接 无负载信息时退化为随机
+ */
+public class RpcLoadBalancePeakEwma implements RpcLoadBalance {
+    private static final Logger logger = LoggerFactory.getLogger(RpcLoadBalancePeakEwma.class);
+
+    @Override
+    public int select(RouteSnapshot snapshot, RpcRequest request) {
+        return select(snapshot, (EndpointLoadView) null);
+    }
+
+    /**
+     * @param loadView 快照未关联节点连接时使用的负载来源 可为 null
+     */
+    private int select(RouteSnapshot snapshot, EndpointLoadView loadView) {
+        int size = snapshot.size();
+        if (size == 1) {
+            return 0;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        return costOf(snapshot, second, loadView) < costOf(snapshot, first, loadView) ? second : first;
+    }
+
+    private static double costOf(RouteSnapshot snapshot, int index, EndpointLoadView loadView) {
+        EndpointLoad load = snapshot.getLoad(index);
+        if (load == null && loadView != null) {
+            load = loadView.loadOf(snapshot.getMetaData(index));
+        }
+        return load == null ? Double.MAX_VALUE : load.getCost();
+    }
+
+    @Override
+    public RpcMetaData route(String serviceKey) throws Exception {
+        logger.debug("RpcLoadBalancePeakEwma is routing for {}.", serviceKey);
+        RouteSnapshot snapshot = RpcLoadBalance.requireSnapshot(serviceKey);
+        return snapshot.getMetaData(select(snapshot, (EndpointLoadView) null));
+    }
+
+    @Override
+    public RpcMetaData route(String serviceKey, EndpointLoadView loadView) throws Exception {
+        logger.debug("RpcLoadBalancePeakEwma is routing for {}.", serviceKey);
+        RouteSnapshot snapshot = RpcLoadBalance.requireSnapshot(serviceKey);
+        return snapshot.getMetaData(select(snapshot, loadView));
+    }
+}
@@ -1,13 +1,13 @@
 package com.polyu.rpc.route.impl;
 
 
+import com.polyu.rpc.codec.RpcRequest;
 import com.polyu.rpc.info.RpcMetaData;
-import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.route.RouteSnapshot;
 import com.polyu.rpc.route.RpcLoadBalance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -21,33 +21,19 @@ public class RpcLoadBalanceRoundRobin implements RpcLoadBalance {
         roundRobin = new AtomicInteger(0);
     }
 
-    private RpcMetaData doRoute(List<RpcMetaData> addressList) {
-        int size = addressList.size();
-        nextNumUpdate();
-        int index = (this.roundRobin.get() + size) % size;
-        return addressList.get(index);
-    }
-
     /**
-     * 防止越界
+     * 溢出后取非负值 防止越界
      */
-    private void nextNumUpdate() {
-        this.roundRobin.updateAndGet((x) -> {
-            if (x >= Integer.MAX_VALUE) {
-                return 0;
-            }
-            return x + 1;
-        });
+    @Override
+    public int select(RouteSnapshot snapshot, RpcRequest request) {
+        int next = roundRobin.incrementAndGet() & Integer.MAX_VALUE;
+        return next % snapshot.size();
     }
 
     @Override
     public RpcMetaData route(String serviceKey) throws Exception {
         logger.debug("RpcLoadBalanceRoundRobin is routing for {}.", serviceKey);
-        List<RpcMetaData> addressList = MetaDataKeeper.getProtocolsFromServiceKey(serviceKey);
-        if (addressList != null && addressList.size() > 0) {
-            return doRoute(addressList);
-        } else {
-            throw new Exception("Can not find connection for service: " + serviceKey);
-        }
+        RouteSnapshot snapshot = RpcLoadBalance.requireSnapshot(serviceKey);
+        return snapshot.getMetaData(select(snapshot, null));
     }
 }
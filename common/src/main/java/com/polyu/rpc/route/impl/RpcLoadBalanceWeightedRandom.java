@@ -0,0 +1,34 @@
+package com.polyu.rpc.route.impl;
+
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.route.RouteSnapshot;
+import com.polyu.rpc.route.RpcLoadBalance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 加权随机 选中概率与节点发布的权重成正比 权重全为 0 时退化为随机
+ */
+public class RpcLoadBalanceWeightedRandom implements RpcLoadBalance {
+    private static final Logger logger = LoggerFactory.getLogger(RpcLoadBalanceWeightedRandom.class);
+
+    @Override
+    public int select(RouteSnapshot snapshot, RpcRequest request) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long totalWeight = snapshot.getTotalWeight();
+        if (totalWeight == 0) {
+            return random.nextInt(snapshot.size());
+        }
+        return snapshot.indexOfWeight(random.nextLong(totalWeight));
+    }
+
+    @Override
+    public RpcMetaData route(String serviceKey) throws Exception {
+        logger.debug("RpcLoadBalanceWeightedRandom is routing for {}.", serviceKey);
+        RouteSnapshot snapshot = RpcLoadBalance.requireSnapshot(serviceKey);
+        return snapshot.getMetaData(select(snapshot, null));
+    }
+}
@@ -0,0 +1,81 @@
+package com.polyu.rpc.route.impl;
+
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.route.RouteSnapshot;
+import com.polyu.rpc.route.RpcLoadBalance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 平滑加权轮询 按节点发布的权重分配请求 且同一节点的请求在序列中均匀分散
+ * 每次选择: 各节点当前权重加上自身权重 选当前权重最大者 其当前权重减去总权重
+ * 权重全为 0 时退化为随机
+ */
+public class RpcLoadBalanceWeightedRoundRobin implements RpcLoadBalance {
+    private static final Logger logger = LoggerFactory.getLogger(RpcLoadBalanceWeightedRoundRobin.class);
+
+    /**
+     * serviceKey -> 当前权重 路由快照替换后重置
+     */
+    private final Map<String, SmoothWeights> smoothWeights = new ConcurrentHashMap<>();
+
+    private static class SmoothWeights {
+        private final RouteSnapshot snapshot;
+        private final long[] currentWeights;
+
+        private SmoothWeights(RouteSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.currentWeights = new long[snapshot.size()];
+        }
+    }
+
+    @Override
+    public int select(RouteSnapshot snapshot, RpcRequest request) {
+        int size = snapshot.size();
+        if (size == 1) {
+            return 0;
+        }
+        long totalWeight = snapshot.getTotalWeight();
+        if (totalWeight == 0) {
+            return ThreadLocalRandom.current().nextInt(size);
+        }
+        SmoothWeights state = smoothWeights.get(snapshot.getServiceKey());
+        if (state == null || state.snapshot != snapshot) {
+            // 快照替换后仅创建一份新状态 并发调用共用 避免互相覆盖丢失已做的选择
+            state = smoothWeights.compute(snapshot.getServiceKey(), (key, current) ->
+                    current != null && current.snapshot.getVersion() >= snapshot.getVersion() ? current : new SmoothWeights(snapshot));
+            if (state.snapshot != snapshot) {
+                // 调用方持有的快照已被替换 不回退状态 按权重随机选择
+                return snapshot.indexOfWeight(ThreadLocalRandom.current().nextLong(totalWeight));
+            }
+        }
+        long[] currentWeights = state.currentWeights;
+        synchronized (state) {
+            int selected = -1;
+            for (int i = 0; i < size; i++) {
+                int weight = snapshot.getWeight(i);
+                if (weight == 0) {
+                    continue;
+                }
+                currentWeights[i] += weight;
+                if (selected < 0 || currentWeights[i] > currentWeights[selected]) {
+                    selected = i;
+                }
+            }
+            currentWeights[selected] -= totalWeight;
+            return selected;
+        }
+    }
+
+    @Override
+    public RpcMetaData route(String serviceKey) throws Exception {
+        logger.debug("RpcLoadBalanceWeightedRoundRobin is routing for {}.", serviceKey);
+        RouteSnapshot snapshot = RpcLoadBalance.requireSnapshot(serviceKey);
+        return snapshot.getMetaData(select(snapshot, null));
+    }
+}
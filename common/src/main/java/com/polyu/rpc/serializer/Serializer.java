@@ -1,7 +1,25 @@
 package com.polyu.rpc.serializer;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * 序列化方式 实现类需线程安全 通过 SerializerRegistry 以单例使用
+ */
 public interface Serializer {
 
+    /**
+     * 序列化方式id 写入帧头 需全局唯一且不可变更
+     * @return 1 ~ 127
+     */
+    byte getId();
+
+    /**
+     * 序列化方式名称 用于注解及配置选择
+     * @return 名称
+     */
+    String getName();
+
     /**
      * 序列化
      * @param obj 对象
@@ -9,6 +27,16 @@ public interface Serializer {
      */
     <T> byte[] serialize(T obj);
 
+    /**
+     * 序列化 直接写入 ByteBuf 的 writerIndex 位置
+     * 默认实现先序列化为 byte[] 再拷贝 实现类应尽量直接写入底层缓冲区
+     * @param obj 对象
+     * @param out 目标缓冲区
+     */
+    default <T> void serialize(T obj, ByteBuf out) {
+        out.writeBytes(serialize(obj));
+    }
+
     /**
      * 反序列化
      * @param bytes 字节数组
@@ -17,4 +45,15 @@ public interface Serializer {
      */
     <T> Object deserialize(byte[] bytes, Class<T> clazz);
 
+    /**
+     * 直接从 ByteBuf 反序列化 读取其全部可读字节
+     * 默认实现拷贝为 byte[] 实现类应尽量直接读取底层缓冲区
+     * @param in 帧数据
+     * @param clazz .class 类型
+     * @return 原对象
+     */
+    default <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+        return deserialize(ByteBufUtil.getBytes(in), clazz);
+    }
+
 }
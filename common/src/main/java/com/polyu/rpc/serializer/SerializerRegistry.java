@@ -0,0 +1,95 @@
+package com.polyu.rpc.serializer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * 序列化方式注册表
+ * 通过 ServiceLoader 加载 META-INF/services/com.polyu.rpc.serializer.Serializer 中声明的实现
+ * 依赖缺失(如未引入 hessian / protostuff)的实现加载失败时跳过
+ */
+public final class SerializerRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(SerializerRegistry.class);
+
+    /**
+     * 默认序列化方式
+     */
+    public static final String DEFAULT_SERIALIZER = "kryo";
+
+    private static final Serializer[] ID_2_SERIALIZER = new Serializer[Byte.MAX_VALUE + 1];
+    private static final Map<String, Serializer> NAME_2_SERIALIZER = new HashMap<>();
+
+    static {
+        Iterator<Serializer> iterator = ServiceLoader.load(Serializer.class, SerializerRegistry.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                register(iterator.next());
+            } catch (ServiceConfigurationError | LinkageError e) {
+                logger.warn("Skip unavailable serializer: {}.", e.getMessage());
+            }
+        }
+    }
+
+    private SerializerRegistry() {
+    }
+
+    private static void register(Serializer serializer) {
+        byte id = serializer.getId();
+        if (id <= 0) {
+            logger.warn("Skip serializer {} with invalid id {}.", serializer.getName(), id);
+            return;
+        }
+        Serializer exist = ID_2_SERIALIZER[id];
+        if (exist != null) {
+            logger.warn("Serializer id {} conflict between {} and {}, keep the former.", id, exist.getName(), serializer.getName());
+            return;
+        }
+        ID_2_SERIALIZER[id] = serializer;
+        NAME_2_SERIALIZER.put(serializer.getName(), serializer);
+        logger.info("Serializer {} registered with id {}.", serializer.getName(), id);
+    }
+
+    /**
+     * 按帧头中的id查找
+     * @param id 序列化方式id
+     * @return 不存在返回null
+     */
+    public static Serializer get(byte id) {
+        return id > 0 ? ID_2_SERIALIZER[id] : null;
+    }
+
+    /**
+     * 按名称查找 用于注解及配置
+     * @param name 序列化方式名称
+     * @return 序列化方式
+     * @throws IllegalArgumentException 不存在
+     */
+    public static Serializer get(String name) {
+        Serializer serializer = NAME_2_SERIALIZER.get(name);
+        if (serializer == null) {
+            throw new IllegalArgumentException("Unknown or unavailable serializer: " + name);
+        }
+        return serializer;
+    }
+
+    /**
+     * 名称 -> id 空名称返回 0 表示未指定
+     * @param name 序列化方式名称
+     * @return id
+     */
+    public static byte idOf(String name) {
+        if (name == null || name.isEmpty()) {
+            return 0;
+        }
+        return get(name).getId();
+    }
+}
@@ -0,0 +1,110 @@
+package com.polyu.rpc.serializer;
+
+import com.polyu.rpc.codec.RpcHandshake;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.codec.RpcResponse;
+import com.polyu.rpc.codec.legacy.LegacyRpcRequest;
+import com.polyu.rpc.codec.legacy.LegacyRpcResponse;
+import com.polyu.rpc.serializer.kryo.ServiceTypeCollector;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按类名还原对象的序列化方式(json / hessian / protostuff)允许实例化的类型
+ * 只允许框架消息类型、JDK 基本值类型与集合 以及已注册服务接口用到的业务类型所在的包
+ * 业务类型在 server 注册服务、client 创建代理及收到握手时登记 对端无法借消息体实例化任意类
+ */
+public final class TypeAllowList {
+
+    private static final Set<Class<?>> MESSAGE_TYPES = new HashSet<>(Arrays.asList(
+            RpcRequest.class, RpcResponse.class, RpcHandshake.class, LegacyRpcRequest.class, LegacyRpcResponse.class));
+
+    private static final Set<Class<?>> JDK_VALUE_TYPES = new HashSet<>(Arrays.asList(
+            Object.class, String.class, Boolean.class, Character.class, Class.class, Date.class, UUID.class));
+
+    /**
+     * 业务类型所在的包
+     */
+    private static final Set<String> SERVICE_PACKAGES = ConcurrentHashMap.newKeySet();
+
+    private TypeAllowList() {
+    }
+
+    /**
+     * 登记服务接口 允许接口参数/返回值及其字段类型所在的包
+     * @param interfaceClass 服务接口
+     */
+    public static void allowService(Class<?> interfaceClass) {
+        ServiceTypeCollector collector = new ServiceTypeCollector();
+        collector.collect(interfaceClass);
+        allowTypes(collector.getServiceTypeNames());
+    }
+
+    /**
+     * 登记类名列表(如握手下发的服务类型) 允许其所在的包
+     * @param classNames 类名 数组类型为 Class.getName() 格式
+     */
+    public static void allowTypes(Collection<String> classNames) {
+        if (classNames == null) {
+            return;
+        }
+        for (String className : classNames) {
+            String elementName = className;
+            while (elementName.startsWith("[")) {
+                elementName = elementName.substring(1);
+            }
+            if (elementName.startsWith("L") && elementName.endsWith(";")) {
+                elementName = elementName.substring(1, elementName.length() - 1);
+            }
+            int index = elementName.lastIndexOf('.');
+            if (index > 0) {
+                allowPackage(elementName.substring(0, index));
+            }
+        }
+    }
+
+    /**
+     * 允许包内的类型 用于接口声明类型之外的子类型
+     * @param packageName 包名 不含子包
+     */
+    public static void allowPackage(String packageName) {
+        if (packageName.startsWith("java.") || packageName.startsWith("javax.") || packageName.startsWith("sun.")
+                || packageName.startsWith("com.sun.") || packageName.startsWith("jdk.")) {
+            return;
+        }
+        SERVICE_PACKAGES.add(packageName);
+    }
+
+    /**
+     * 是否允许按类名实例化
+     * @param clazz 消息中出现的类型
+     * @return 允许返回 true
+     */
+    public static boolean isAllowed(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive() || MESSAGE_TYPES.contains(clazz) || JDK_VALUE_TYPES.contains(clazz)) {
+            return true;
+        }
+        String name = clazz.getName();
+        if (name.startsWith("java.")) {
+            if (clazz.isEnum()) {
+                return true;
+            }
+            if (name.startsWith("java.lang.") || name.startsWith("java.math.")) {
+                return Number.class.isAssignableFrom(clazz);
+            }
+            return name.startsWith("java.util.") && (Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz));
+        }
+        int index = name.lastIndexOf('.');
+        return index > 0 && SERVICE_PACKAGES.contains(name.substring(0, index));
+    }
+}
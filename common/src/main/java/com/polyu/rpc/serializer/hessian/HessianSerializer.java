@@ -0,0 +1,100 @@
+package com.polyu.rpc.serializer.hessian;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import com.caucho.hessian.io.SerializerFactory;
+import com.polyu.rpc.serializer.Serializer;
+import com.polyu.rpc.serializer.TypeAllowList;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * hessian2 序列化 需引入 com.caucho:hessian
+ * 消息中的类名只加载 TypeAllowList 允许的类型 其余按 Map 读取 不实例化
+ */
+public class HessianSerializer implements Serializer {
+    public static final byte ID = 2;
+    public static final String NAME = "hessian";
+
+    private final SerializerFactory serializerFactory = new AllowListSerializerFactory();
+
+    public HessianSerializer() {
+        // RpcRequest / RpcResponse 及业务对象不要求实现 Serializable
+        serializerFactory.setAllowNonSerializable(true);
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public <T> byte[] serialize(T obj) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        write(obj, byteArrayOutputStream);
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @Override
+    public <T> void serialize(T obj, ByteBuf out) {
+        write(obj, new ByteBufOutputStream(out));
+    }
+
+    @Override
+    public <T> Object deserialize(byte[] bytes, Class<T> clazz) {
+        return read(new ByteArrayInputStream(bytes), clazz);
+    }
+
+    @Override
+    public <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+        return read(new ByteBufInputStream(in), clazz);
+    }
+
+    private void write(Object obj, OutputStream outputStream) {
+        Hessian2Output output = new Hessian2Output(outputStream);
+        output.setSerializerFactory(serializerFactory);
+        try {
+            output.writeObject(obj);
+            output.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Object read(InputStream inputStream, Class<?> clazz) {
+        Hessian2Input input = new Hessian2Input(inputStream);
+        input.setSerializerFactory(serializerFactory);
+        try {
+            return input.readObject(clazz);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 按 TypeAllowList 过滤消息中的类名
+     */
+    private static class AllowListSerializerFactory extends SerializerFactory {
+
+        @Override
+        public Class<?> loadSerializedClass(String className) throws ClassNotFoundException {
+            Class<?> clazz = super.loadSerializedClass(className);
+            if (!TypeAllowList.isAllowed(clazz)) {
+                throw new ClassNotFoundException(className + " is not allowed to be deserialized.");
+            }
+            return clazz;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.polyu.rpc.serializer.json;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.polyu.rpc.serializer.Serializer;
+import com.polyu.rpc.serializer.TypeAllowList;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * jackson json 序列化 便于排查问题及跨语言调试
+ * 只按字段序列化(transient 字段不输出) 并写入类型信息以还原 Object[] 参数及返回值的实际类型
+ * 类型信息只接受 TypeAllowList 允许的类型 防止对端借类型信息实例化任意类
+ */
+public class JsonSerializer implements Serializer {
+    public static final byte ID = 4;
+    public static final String NAME = "json";
+
+    /**
+     * 反序列化时校验类型信息中的类
+     */
+    private static final PolymorphicTypeValidator TYPE_VALIDATOR = BasicPolymorphicTypeValidator.builder()
+            .allowIfSubType(new BasicPolymorphicTypeValidator.TypeMatcher() {
+                @Override
+                public boolean match(MapperConfig<?> config, Class<?> clazz) {
+                    return TypeAllowList.isAllowed(clazz);
+                }
+            })
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public JsonSerializer() {
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        objectMapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        objectMapper.activateDefaultTyping(TYPE_VALIDATOR, ObjectMapper.DefaultTyping.EVERYTHING);
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public <T> byte[] serialize(T obj) {
+        try {
+            return objectMapper.writeValueAsBytes(obj);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public <T> void serialize(T obj, ByteBuf out) {
+        try {
+            objectMapper.writeValue((OutputStream) new ByteBufOutputStream(out), obj);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public <T> Object deserialize(byte[] bytes, Class<T> clazz) {
+        try {
+            return objectMapper.readValue(bytes, clazz);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+        try {
+            return objectMapper.readValue((InputStream) new ByteBufInputStream(in), clazz);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
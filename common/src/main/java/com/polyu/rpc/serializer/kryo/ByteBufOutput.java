@@ -0,0 +1,56 @@
+package com.polyu.rpc.serializer.kryo;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 直接写入 ByteBuf 底层 nio 缓冲区的 Kryo Output
+ * 空间不足时扩容 ByteBuf 并换用扩容后的缓冲区继续写入 已写内容由 ByteBuf 扩容时保留
+ * 只用于单一 nio 缓冲区的 ByteBuf(nioBufferCount() == 1)
+ */
+class ByteBufOutput extends ByteBufferOutput {
+
+    private final ByteBuf out;
+    /**
+     * 写入起始位置(ByteBuf 下标) Output 的 position 相对于此
+     */
+    private final int start;
+
+    ByteBufOutput(ByteBuf out) {
+        super(out.nioBuffer(out.writerIndex(), out.writableBytes()), out.maxCapacity() - out.writerIndex());
+        this.out = out;
+        this.start = out.writerIndex();
+    }
+
+    @Override
+    protected boolean require(int required) throws KryoException {
+        if (capacity - position >= required) {
+            return false;
+        }
+        out.writerIndex(start + position);
+        if (out.maxWritableBytes() < required) {
+            throw new KryoException("Buffer overflow. Max capacity: " + maxCapacity + ", required: " + required);
+        }
+        out.ensureWritable(required);
+        // varint 写入时会临时修改 niobuffer 的字节序 新缓冲区需保持当前字节序 再恢复 Output 的字节序设置
+        ByteOrder byteOrder = order();
+        ByteOrder bufferOrder = niobuffer.order();
+        ByteBuffer buffer = out.nioBuffer(start, out.capacity() - start);
+        buffer.position(position);
+        setBuffer(buffer, maxCapacity);
+        order(byteOrder);
+        niobuffer.order(bufferOrder);
+        return true;
+    }
+
+    /**
+     * 写入完成 推进 ByteBuf 的 writerIndex
+     */
+    void commit() {
+        out.writerIndex(start + position);
+    }
+}
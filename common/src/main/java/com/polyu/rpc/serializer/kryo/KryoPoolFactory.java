@@ -3,40 +3,32 @@ package com.polyu.rpc.serializer.kryo;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.pool.KryoFactory;
 import com.esotericsoftware.kryo.pool.KryoPool;
-import com.polyu.rpc.codec.RpcResponse;
 import org.objenesis.strategy.StdInstantiatorStrategy;
-import com.polyu.rpc.codec.RpcRequest;
 
-class KryoPoolFactory {
-    private static volatile KryoPoolFactory poolFactory = null;
-
-    private KryoFactory factory = () -> {
-        Kryo kryo = new Kryo();
-        kryo.setReferences(false);
-        kryo.register(RpcRequest.class);
-        kryo.register(RpcResponse.class);
-        Kryo.DefaultInstantiatorStrategy strategy = (Kryo.DefaultInstantiatorStrategy) kryo.getInstantiatorStrategy();
-        strategy.setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
-        return kryo;
-    };
+import java.util.concurrent.ConcurrentHashMap;
 
-    private KryoPool pool = new KryoPool.Builder(factory).build();
+/**
+ * 每个类注册表对应一个 KryoPool
+ */
+class KryoPoolFactory {
+    private static final ConcurrentHashMap<KryoRegistration, KryoPool> POOLS = new ConcurrentHashMap<>();
 
     private KryoPoolFactory() {
     }
 
-    static KryoPool getKryoPoolInstance() {
-        if (poolFactory == null) {
-            synchronized (KryoPoolFactory.class) {
-                if (poolFactory == null) {
-                    poolFactory = new KryoPoolFactory();
-                }
-            }
-        }
-        return poolFactory.getPool();
+    static KryoPool getKryoPoolInstance(KryoRegistration registration) {
+        return POOLS.computeIfAbsent(registration, KryoPoolFactory::createPool);
     }
 
-    private KryoPool getPool() {
-        return pool;
+    private static KryoPool createPool(KryoRegistration registration) {
+        KryoFactory factory = () -> {
+            Kryo kryo = new Kryo();
+            kryo.setReferences(false);
+            registration.apply(kryo);
+            Kryo.DefaultInstantiatorStrategy strategy = (Kryo.DefaultInstantiatorStrategy) kryo.getInstantiatorStrategy();
+            strategy.setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+            return kryo;
+        };
+        return new KryoPool.Builder(factory).build();
     }
 }
@@ -0,0 +1,132 @@
+package com.polyu.rpc.serializer.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.codec.RpcResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kryo 类注册表
+ * 注册id决定类在字节流中的编码(已注册写id 未注册写全类名) 收发双方必须一致:
+ *      RpcRequest / RpcResponse 沿用原有的 10 / 11
+ *      常用JDK类型从 COMMON_TYPE_ID_START 开始 固定顺序 只能在末尾追加
+ *      服务类型(参数/返回值及其字段类型)从 SERVICE_TYPE_ID_START 开始 由服务端生成并通过握手下发
+ */
+public final class KryoRegistration {
+    private static final Logger logger = LoggerFactory.getLogger(KryoRegistration.class);
+
+    private static final int COMMON_TYPE_ID_START = 20;
+    private static final int SERVICE_TYPE_ID_START = 100;
+
+    private static final Class<?>[] COMMON_TYPES = {
+            Object[].class,
+            Class.class,
+            Class[].class,
+            byte[].class,
+            int[].class,
+            long[].class,
+            double[].class,
+            String[].class,
+            ArrayList.class,
+            LinkedList.class,
+            HashMap.class,
+            LinkedHashMap.class,
+            TreeMap.class,
+            HashSet.class,
+            LinkedHashSet.class,
+            TreeSet.class,
+            Date.class,
+            BigDecimal.class,
+            BigInteger.class
+    };
+
+    /**
+     * 旧协议 只注册 RpcRequest / RpcResponse 与旧版本节点保持一致
+     */
+    public static final KryoRegistration LEGACY = new KryoRegistration(false, Collections.emptyList());
+    /**
+     * 公共注册表 握手前及未下发服务类型时使用
+     */
+    public static final KryoRegistration COMMON = new KryoRegistration(true, Collections.emptyList());
+
+    private static final ConcurrentHashMap<List<String>, KryoRegistration> SERVICE_REGISTRATIONS = new ConcurrentHashMap<>();
+
+    private final boolean commonTypes;
+    private final List<String> serviceTypeNames;
+    /**
+     * 与 serviceTypeNames 一一对应 本地无法加载的类为null(不注册 但保留其id)
+     */
+    private final Class<?>[] serviceTypes;
+
+    private KryoRegistration(boolean commonTypes, List<String> serviceTypeNames) {
+        this.commonTypes = commonTypes;
+        this.serviceTypeNames = serviceTypeNames;
+        this.serviceTypes = new Class<?>[serviceTypeNames.size()];
+        for (int i = 0; i < serviceTypes.length; i++) {
+            serviceTypes[i] = loadClass(serviceTypeNames.get(i));
+        }
+    }
+
+    /**
+     * 按服务类型列表获取注册表 相同列表共用同一实例
+     * @param serviceTypeNames 服务端下发的类名列表 下标决定注册id
+     * @return 注册表
+     */
+    public static KryoRegistration of(List<String> serviceTypeNames) {
+        if (serviceTypeNames == null || serviceTypeNames.isEmpty()) {
+            return COMMON;
+        }
+        return SERVICE_REGISTRATIONS.computeIfAbsent(new ArrayList<>(serviceTypeNames),
+                names -> new KryoRegistration(true, Collections.unmodifiableList(names)));
+    }
+
+    /**
+     * 注册到 kryo 实例
+     * @param kryo 新建的kryo
+     */
+    void apply(Kryo kryo) {
+        kryo.register(RpcRequest.class);
+        kryo.register(RpcResponse.class);
+        if (!commonTypes) {
+            return;
+        }
+        for (int i = 0; i < COMMON_TYPES.length; i++) {
+            kryo.register(COMMON_TYPES[i], COMMON_TYPE_ID_START + i);
+        }
+        for (int i = 0; i < serviceTypes.length; i++) {
+            if (serviceTypes[i] != null) {
+                kryo.register(serviceTypes[i], SERVICE_TYPE_ID_START + i);
+            }
+        }
+    }
+
+    public List<String> getServiceTypeNames() {
+        return serviceTypeNames;
+    }
+
+    private static Class<?> loadClass(String className) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            return Class.forName(className, false, classLoader != null ? classLoader : KryoRegistration.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            logger.warn("Kryo registration skip class not found locally: {}.", className);
+            return null;
+        }
+    }
+}
@@ -1,17 +1,74 @@
 package com.polyu.rpc.serializer.kryo;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.pool.KryoPool;
 import com.polyu.rpc.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.List;
 
 public class KryoSerializer implements Serializer {
-    private KryoPool pool = KryoPoolFactory.getKryoPoolInstance();
+    public static final byte ID = 1;
+    public static final String NAME = "kryo";
+
+    private static final int MIN_WRITABLE_BYTES = 256;
+
+    /**
+     * 旧协议使用的实例 只注册 RpcRequest / RpcResponse
+     */
+    private static final KryoSerializer LEGACY = new KryoSerializer(KryoRegistration.LEGACY);
+
+    private final KryoRegistration registration;
+    private final KryoPool pool;
+
+    /**
+     * SPI 使用 公共注册表
+     */
+    public KryoSerializer() {
+        this(KryoRegistration.COMMON);
+    }
+
+    private KryoSerializer(KryoRegistration registration) {
+        this.registration = registration;
+        this.pool = KryoPoolFactory.getKryoPoolInstance(registration);
+    }
+
+    /**
+     * 旧协议兼容
+     * @return 只注册 RpcRequest / RpcResponse 的实例
+     */
+    public static KryoSerializer legacy() {
+        return LEGACY;
+    }
+
+    /**
+     * 带服务类型注册表的实例 与连接握手中下发的类名列表一致
+     * @param serviceTypeNames 类名列表
+     * @return 实例 相同列表共用 KryoPool
+     */
+    public static KryoSerializer withServiceTypes(List<String> serviceTypeNames) {
+        return new KryoSerializer(KryoRegistration.of(serviceTypeNames));
+    }
+
+    public List<String> getServiceTypeNames() {
+        return registration.getServiceTypeNames();
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
 
     /**
      * 序列化
@@ -41,6 +98,35 @@ public class KryoSerializer implements Serializer {
         }
     }
 
+    /**
+     * 序列化 直接写入 ByteBuf 底层 nio 缓冲区 不产生中间 byte[]
+     * 空间不足时由 ByteBufOutput 扩容 ByteBuf 后继续写入
+     * 非单一 nio 缓冲区(如 CompositeByteBuf)退化为 byte[] 拷贝
+     * @param obj 对象
+     * @param out 目标缓冲区
+     * @param <T>
+     */
+    @Override
+    public <T> void serialize(T obj, ByteBuf out) {
+        if (out.nioBufferCount() != 1) {
+            out.writeBytes(serialize(obj));
+            return;
+        }
+        Kryo kryo = pool.borrow();
+        int writerIndex = out.writerIndex();
+        try {
+            out.ensureWritable(MIN_WRITABLE_BYTES);
+            ByteBufOutput output = new ByteBufOutput(out);
+            kryo.writeObject(output, obj);
+            output.commit();
+        } catch (RuntimeException ex) {
+            out.writerIndex(writerIndex);
+            throw ex;
+        } finally {
+            pool.release(kryo);
+        }
+    }
+
     /**
      * 反序列化
      * @param bytes 字节数组
@@ -69,4 +155,24 @@ public class KryoSerializer implements Serializer {
             }
         }
     }
+
+    /**
+     * 反序列化 直接读取 ByteBuf 底层 nio 缓冲区 不拷贝中间 byte[]
+     * @param in 帧数据
+     * @param clazz 类型信息
+     * @param <T>
+     * @return
+     */
+    @Override
+    public <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+        Kryo kryo = pool.borrow();
+        try {
+            ByteBufferInput input = new ByteBufferInput(in.nioBuffer());
+            return kryo.readObject(input, clazz);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            pool.release(kryo);
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package com.polyu.rpc.serializer.kryo;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 收集服务接口用到的业务类型(参数/返回值 递归其泛型参数与字段类型) 用于 Kryo 类注册
+ * 只收集可实例化的非JDK类及其数组 JDK常用类型由 KryoRegistration 固定注册
+ */
+public class ServiceTypeCollector {
+
+    private final Set<Class<?>> visited = new HashSet<>();
+    private final Set<Class<?>> serviceTypes = new HashSet<>();
+
+    /**
+     * 收集接口全部方法的参数及返回值类型
+     * @param interfaceClass 服务接口
+     */
+    public void collect(Class<?> interfaceClass) {
+        for (Method method : interfaceClass.getMethods()) {
+            for (Type parameterType : method.getGenericParameterTypes()) {
+                visit(parameterType);
+            }
+            visit(method.getGenericReturnType());
+        }
+    }
+
+    /**
+     * 按类名排序 保证同一组服务每次生成相同的列表
+     * @return 类名列表
+     */
+    public List<String> getServiceTypeNames() {
+        List<String> names = new ArrayList<>(serviceTypes.size());
+        for (Class<?> serviceType : serviceTypes) {
+            names.add(serviceType.getName());
+        }
+        names.sort(Comparator.naturalOrder());
+        return names;
+    }
+
+    private void visit(Type type) {
+        if (type instanceof Class) {
+            visitClass((Class<?>) type);
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            visit(parameterizedType.getRawType());
+            for (Type argument : parameterizedType.getActualTypeArguments()) {
+                visit(argument);
+            }
+        } else if (type instanceof GenericArrayType) {
+            visit(((GenericArrayType) type).getGenericComponentType());
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                visit(bound);
+            }
+            for (Type bound : ((WildcardType) type).getLowerBounds()) {
+                visit(bound);
+            }
+        } else if (type instanceof TypeVariable) {
+            for (Type bound : ((TypeVariable<?>) type).getBounds()) {
+                visit(bound);
+            }
+        }
+    }
+
+    private void visitClass(Class<?> clazz) {
+        if (clazz.isPrimitive() || !visited.add(clazz)) {
+            return;
+        }
+        if (clazz.isArray()) {
+            Class<?> elementType = clazz;
+            while (elementType.isArray()) {
+                elementType = elementType.getComponentType();
+            }
+            visitClass(clazz.getComponentType());
+            if (!elementType.isPrimitive() && !isJdkType(elementType)) {
+                serviceTypes.add(clazz);
+            }
+            return;
+        }
+        if (isJdkType(clazz)) {
+            return;
+        }
+        if (clazz.isEnum() || !clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers())) {
+            serviceTypes.add(clazz);
+        }
+        for (Class<?> current = clazz; current != null && !isJdkType(current); current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                    continue;
+                }
+                visit(field.getGenericType());
+            }
+        }
+    }
+
+    private static boolean isJdkType(Class<?> clazz) {
+        String name = clazz.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+                || name.startsWith("com.sun.") || name.startsWith("jdk.");
+    }
+}
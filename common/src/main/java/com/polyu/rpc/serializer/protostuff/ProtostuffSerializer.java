@@ -0,0 +1,162 @@
+package com.polyu.rpc.serializer.protostuff;
+
+import com.polyu.rpc.serializer.Serializer;
+import com.polyu.rpc.serializer.TypeAllowList;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.protostuff.LinkedBuffer;
+import io.protostuff.ProtostuffIOUtil;
+import io.protostuff.Schema;
+import io.protostuff.runtime.DefaultIdStrategy;
+import io.protostuff.runtime.IdStrategy;
+import io.protostuff.runtime.RuntimeEnv;
+import io.protostuff.runtime.RuntimeSchema;
+
+import java.io.IOException;
+
+/**
+ * protostuff 序列化 需引入 io.protostuff:protostuff-core / protostuff-runtime
+ * schema 由 RuntimeSchema 按类缓存
+ * Object 类型字段(参数/返回值)按消息中的类名加载 反序列化时只加载 TypeAllowList 允许的类型
+ */
+public class ProtostuffSerializer implements Serializer {
+    public static final byte ID = 3;
+    public static final String NAME = "protostuff";
+
+    /**
+     * 每个线程复用一个写缓冲 用完即clear
+     */
+    private static final ThreadLocal<LinkedBuffer> BUFFER = ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+
+    /**
+     * 反序列化专用 与序列化分开缓存类名 -> schema
+     * 序列化时登记的类型不会使反序列化跳过类名过滤 仅通过过滤加载的类型才被缓存
+     */
+    private static final IdStrategy READ_STRATEGY = newReadStrategy();
+
+    /**
+     * 每个线程复用一个类名过滤加载器 线程上下文类加载器变化时重建
+     */
+    private static final ThreadLocal<AllowListClassLoader> CLASS_LOADER = new ThreadLocal<>();
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> byte[] serialize(T obj) {
+        Schema<T> schema = RuntimeSchema.getSchema((Class<T>) obj.getClass());
+        LinkedBuffer buffer = BUFFER.get();
+        try {
+            return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void serialize(T obj, ByteBuf out) {
+        Schema<T> schema = RuntimeSchema.getSchema((Class<T>) obj.getClass());
+        LinkedBuffer buffer = BUFFER.get();
+        try {
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), obj, schema, buffer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public <T> Object deserialize(byte[] bytes, Class<T> clazz) {
+        Schema<T> schema = RuntimeSchema.getSchema(clazz, READ_STRATEGY);
+        T message = schema.newMessage();
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(allowListClassLoader(contextClassLoader));
+        try {
+            ProtostuffIOUtil.mergeFrom(bytes, message, schema);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+        return message;
+    }
+
+    /**
+     * 堆内缓冲区直接读取底层数组 否则按流读取
+     */
+    @Override
+    public <T> Object deserialize(ByteBuf in, Class<T> clazz) {
+        Schema<T> schema = RuntimeSchema.getSchema(clazz, READ_STRATEGY);
+        T message = schema.newMessage();
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(allowListClassLoader(contextClassLoader));
+        try {
+            if (in.hasArray()) {
+                ProtostuffIOUtil.mergeFrom(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes(), message, schema);
+            } else {
+                ProtostuffIOUtil.mergeFrom(new ByteBufInputStream(in), message, schema);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+        return message;
+    }
+
+    /**
+     * 须先初始化 RuntimeEnv 再创建 DefaultIdStrategy
+     * 否则 IdStrategy 初始化时嵌套初始化 RuntimeEnv 两者读到的默认 flags 均为0(不再按类名加载多态类型)
+     */
+    private static IdStrategy newReadStrategy() {
+        int flags = RuntimeEnv.ID_STRATEGY.flags;
+        return new DefaultIdStrategy(flags);
+    }
+
+    private static ClassLoader allowListClassLoader(ClassLoader contextClassLoader) {
+        ClassLoader parent = contextClassLoader == null ? ProtostuffSerializer.class.getClassLoader() : contextClassLoader;
+        AllowListClassLoader classLoader = CLASS_LOADER.get();
+        if (classLoader == null || classLoader.getParent() != parent) {
+            classLoader = new AllowListClassLoader(parent);
+            CLASS_LOADER.set(classLoader);
+        }
+        return classLoader;
+    }
+
+    /**
+     * 按 TypeAllowList 过滤消息中的类名
+     * protostuff 经线程上下文类加载器加载类名 遇 ClassNotFoundException 时退回 Class.forName
+     * 因此拒绝时抛出 IllegalArgumentException 使反序列化失败
+     */
+    private static class AllowListClassLoader extends ClassLoader {
+
+        AllowListClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) {
+            Class<?> clazz;
+            try {
+                clazz = super.loadClass(name, resolve);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException(name + " is not found.", e);
+            }
+            if (!TypeAllowList.isAllowed(clazz)) {
+                throw new IllegalArgumentException(name + " is not allowed to be deserialized.");
+            }
+            return clazz;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.polyu.rpc.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.Future;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并刷写 需位于 pipeline 头部(编码之后)
+ * 业务线程 writeAndFlush 时 flush 被推迟到事件循环中已排队的写任务执行完(maxDelay 为 0)或 maxDelay 后统一刷写
+ * 积压达到 maxFrames / maxBytes 时立即刷写 读事件处理期间的写在 channelReadComplete 时刷写
+ * 每个连接一个实例 仅在事件循环线程访问
+ */
+public class FlushBatchHandler extends ChannelDuplexHandler {
+
+    private final long maxDelayNanos;
+    private final int maxFrames;
+    private final long maxBytes;
+    private final FlushBatchStats stats;
+
+    private ChannelHandlerContext ctx;
+    private int pendingFrames;
+    private long pendingBytes;
+    /**
+     * 有未刷写的 flush 请求
+     */
+    private boolean flushPending;
+    private boolean readInProgress;
+    private boolean flushScheduled;
+    private Future<?> scheduledFlush;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            scheduledFlush = null;
+            if (flushPending) {
+                flushNow(ctx, false);
+            }
+        }
+    };
+
+    public FlushBatchHandler(TransportConfig config, FlushBatchStats stats) {
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, config.getFlushMaxDelayMicros()));
+        this.maxFrames = Math.max(1, config.getFlushMaxFrames());
+        this.maxBytes = Math.max(1, config.getFlushMaxBytes());
+        this.stats = stats;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        pendingFrames++;
+        if (msg instanceof ByteBuf) {
+            pendingBytes += ((ByteBuf) msg).readableBytes();
+        } else if (msg instanceof ByteBufHolder) {
+            pendingBytes += ((ByteBufHolder) msg).content().readableBytes();
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        flushPending = true;
+        if (pendingFrames >= maxFrames || pendingBytes >= maxBytes) {
+            flushNow(ctx, true);
+            return;
+        }
+        if (readInProgress) {
+            // channelReadComplete 时刷写
+            return;
+        }
+        scheduleFlush(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        readInProgress = false;
+        if (flushPending) {
+            flushNow(ctx, false);
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (!ctx.channel().isWritable() && flushPending) {
+            // 不可写时尽快把已合并的数据交给 socket
+            flushNow(ctx, false);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushIfPending(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushIfPending(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        flushIfPending(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        flushIfPending(ctx);
+    }
+
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        if (maxDelayNanos == 0) {
+            // 排在已入队的写任务之后执行 合并同一轮事件循环中的写
+            ctx.channel().eventLoop().execute(flushTask);
+        } else {
+            scheduledFlush = ctx.channel().eventLoop().schedule(flushTask, maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void flushIfPending(ChannelHandlerContext ctx) {
+        if (flushPending) {
+            flushNow(ctx, false);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx, boolean byLimit) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+            flushScheduled = false;
+        }
+        if (pendingFrames > 0) {
+            stats.record(pendingFrames, pendingBytes, byLimit);
+        }
+        pendingFrames = 0;
+        pendingBytes = 0;
+        flushPending = false;
+        ctx.flush();
+    }
+}
@@ -0,0 +1,154 @@
+package com.polyu.rpc.transport;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合并刷写统计 按 client / server 分别统计
+ * 直方图按每次刷写包含的帧数分桶 桶i 为 (2^(i-1), 2^i] 末桶包含更大的批次
+ */
+public class FlushBatchStats {
+
+    public static final String CLIENT = "client";
+    public static final String SERVER = "server";
+
+    /**
+     * 分桶数 1 / 2 / 3-4 / 5-8 / ... / 513+
+     */
+    public static final int BUCKETS = 11;
+
+    private static final ConcurrentHashMap<String, FlushBatchStats> ALL_STATS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    /**
+     * 因达到帧数/字节上限立即刷写的次数
+     */
+    private final LongAdder limitFlushes = new LongAdder();
+    private final LongAdder[] frameHistogram = new LongAdder[BUCKETS];
+
+    private FlushBatchStats(String name) {
+        this.name = name;
+        for (int i = 0; i < BUCKETS; i++) {
+            frameHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 获取统计 不存在则创建
+     * @param name CLIENT / SERVER
+     * @return 统计
+     */
+    public static FlushBatchStats of(String name) {
+        return ALL_STATS.computeIfAbsent(name, FlushBatchStats::new);
+    }
+
+    /**
+     * 全部统计
+     * @return name -> 统计
+     */
+    public static Map<String, FlushBatchStats> getAll() {
+        return Collections.unmodifiableMap(ALL_STATS);
+    }
+
+    /**
+     * 记录一次刷写
+     * @param batchFrames 本次刷写的帧数
+     * @param batchBytes 本次刷写的字节数
+     * @param byLimit 是否因达到上限触发
+     */
+    public void record(int batchFrames, long batchBytes, boolean byLimit) {
+        flushes.increment();
+        frames.add(batchFrames);
+        bytes.add(batchBytes);
+        if (byLimit) {
+            limitFlushes.increment();
+        }
+        frameHistogram[bucketOf(batchFrames)].increment();
+    }
+
+    private static int bucketOf(int batchFrames) {
+        if (batchFrames <= 1) {
+            return 0;
+        }
+        int bucket = 32 - Integer.numberOfLeadingZeros(batchFrames - 1);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /**
+     * 桶上界(含)
+     * @param bucket 桶下标
+     * @return 末桶返回 Integer.MAX_VALUE
+     */
+    public static int bucketUpperBound(int bucket) {
+        return bucket >= BUCKETS - 1 ? Integer.MAX_VALUE : 1 << bucket;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getFrames() {
+        return frames.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getLimitFlushes() {
+        return limitFlushes.sum();
+    }
+
+    /**
+     * 每次刷写的帧数分布
+     * @return 各桶计数
+     */
+    public long[] getFrameHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = frameHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * 平均每次刷写的帧数 即 write 系统调用的合并倍数
+     * @return 无数据时为 0
+     */
+    public double getAverageBatchFrames() {
+        long flushCount = getFlushes();
+        return flushCount == 0 ? 0D : (double) getFrames() / flushCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder histogram = new StringBuilder();
+        long[] counts = getFrameHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (histogram.length() > 0) {
+                histogram.append(", ");
+            }
+            histogram.append(i == BUCKETS - 1 ? ">" + bucketUpperBound(i - 1) : "<=" + bucketUpperBound(i))
+                    .append(':').append(counts[i]);
+        }
+        return "FlushBatchStats(name=" + name
+                + ", flushes=" + getFlushes()
+                + ", frames=" + getFrames()
+                + ", bytes=" + getBytes()
+                + ", limitFlushes=" + getLimitFlushes()
+                + ", avgBatch=" + String.format("%.2f", getAverageBatchFrames())
+                + ", histogram=[" + histogram + "])";
+    }
+}
@@ -0,0 +1,196 @@
+package com.polyu.rpc.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 传输实现 按配置及运行环境选择 不可用时退回 nio
+ * io_uring 通过反射加载 不引入编译期依赖
+ */
+public enum Transport {
+
+    IO_URING,
+    EPOLL,
+    NIO;
+
+    public static final String AUTO = "auto";
+
+    private static final Logger logger = LoggerFactory.getLogger(Transport.class);
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+
+    /**
+     * 选择传输实现
+     * @param name auto / epoll / io_uring / nio
+     * @return 可用的传输实现
+     */
+    public static Transport resolve(String name) {
+        String normalized = name == null || name.isEmpty() ? AUTO : name.toLowerCase();
+        switch (normalized) {
+            case AUTO:
+                return Epoll.isAvailable() ? EPOLL : NIO;
+            case "nio":
+                return NIO;
+            case "epoll":
+                if (Epoll.isAvailable()) {
+                    return EPOLL;
+                }
+                logger.warn("Epoll is unavailable, fallback to nio. cause: {}.", String.valueOf(Epoll.unavailabilityCause()));
+                return NIO;
+            case "io_uring":
+            case "iouring":
+                if (isIoUringAvailable()) {
+                    return IO_URING;
+                }
+                Transport fallback = resolve(AUTO);
+                logger.warn("io_uring is unavailable, fallback to {}.", fallback);
+                return fallback;
+            default:
+                throw new IllegalArgumentException("Unknown transport: " + name);
+        }
+    }
+
+    /**
+     * 创建 IO 线程组
+     * @param threads 线程数 0 表示默认
+     * @param poolName 线程名前缀
+     */
+    public EventLoopGroup newEventLoopGroup(int threads, String poolName) {
+        ThreadFactory threadFactory = new DefaultThreadFactory(poolName);
+        switch (this) {
+            case IO_URING:
+                return newInstance(ioUringClass("IOUringEventLoopGroup"), threads, threadFactory);
+            case EPOLL:
+                return new EpollEventLoopGroup(threads, threadFactory);
+            default:
+                return new NioEventLoopGroup(threads, threadFactory);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Class<? extends SocketChannel> socketChannelClass() {
+        switch (this) {
+            case IO_URING:
+                return (Class<? extends SocketChannel>) ioUringClass("IOUringSocketChannel");
+            case EPOLL:
+                return EpollSocketChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Class<? extends ServerChannel> serverSocketChannelClass() {
+        switch (this) {
+            case IO_URING:
+                return (Class<? extends ServerChannel>) ioUringClass("IOUringServerSocketChannel");
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    /**
+     * 是否支持 SO_REUSEPORT 多 acceptor 绑定同一端口
+     */
+    public boolean supportsReusePort() {
+        return this == EPOLL;
+    }
+
+    /**
+     * 设置 server 端参数
+     */
+    public void configure(ServerBootstrap bootstrap, TransportConfig config) {
+        bootstrap.option(ChannelOption.SO_BACKLOG, config.getBacklog());
+        if (config.isReusePort() && supportsReusePort()) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+        bootstrap.childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .childOption(ChannelOption.SO_KEEPALIVE, config.isKeepAlive())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark(config));
+        if (config.getSendBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        if (this == EPOLL) {
+            if (config.isTcpQuickAck()) {
+                bootstrap.childOption(EpollChannelOption.TCP_QUICKACK, true);
+            }
+            if (config.getBusyPollMicros() > 0) {
+                bootstrap.childOption(EpollChannelOption.SO_BUSY_POLL, config.getBusyPollMicros());
+            }
+        }
+    }
+
+    /**
+     * 设置 client 端参数
+     */
+    public void configure(Bootstrap bootstrap, TransportConfig config) {
+        bootstrap.option(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .option(ChannelOption.SO_KEEPALIVE, config.isKeepAlive())
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark(config));
+        if (config.getSendBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        if (this == EPOLL) {
+            if (config.isTcpQuickAck()) {
+                bootstrap.option(EpollChannelOption.TCP_QUICKACK, true);
+            }
+            if (config.getBusyPollMicros() > 0) {
+                bootstrap.option(EpollChannelOption.SO_BUSY_POLL, config.getBusyPollMicros());
+            }
+        }
+    }
+
+    private static WriteBufferWaterMark waterMark(TransportConfig config) {
+        return new WriteBufferWaterMark(config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark());
+    }
+
+    private static boolean isIoUringAvailable() {
+        try {
+            return (Boolean) ioUringClass("IOUring").getMethod("isAvailable").invoke(null);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    private static Class<?> ioUringClass(String simpleName) {
+        try {
+            return Class.forName(IO_URING_PACKAGE + simpleName, true, Transport.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("io_uring transport is not on the classpath.", e);
+        }
+    }
+
+    private static EventLoopGroup newInstance(Class<?> groupClass, int threads, ThreadFactory threadFactory) {
+        try {
+            return (EventLoopGroup) groupClass.getConstructor(int.class, ThreadFactory.class).newInstance(threads, threadFactory);
+        } catch (Exception e) {
+            throw new IllegalStateException("Create " + groupClass.getName() + " failed.", e);
+        }
+    }
+}
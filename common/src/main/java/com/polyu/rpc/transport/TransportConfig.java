@@ -0,0 +1,98 @@
+package com.polyu.rpc.transport;
+
+import lombok.Data;
+
+/**
+ * 传输层配置 需在启动/建立连接前设置
+ * 数值类配置为0时使用系统或 Netty 默认值
+ */
+@Data
+public class TransportConfig {
+
+    /**
+     * 默认写缓冲低水位 32K
+     */
+    public static final int DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 32 * 1024;
+
+    /**
+     * 默认写缓冲高水位 64K
+     */
+    public static final int DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+
+    /**
+     * 传输实现 auto / epoll / io_uring / nio
+     * auto 在 epoll 可用时使用 epoll 否则使用 nio io_uring 需显式指定且引入 netty-incubator-transport-native-io_uring
+     */
+    private String transport = Transport.AUTO;
+
+    /**
+     * IO 线程数 0 表示按角色取默认值: server 为 Netty 默认(CPU核数*2) client 为 CPU核数/2(至少1)
+     */
+    private int ioThreads = 0;
+
+    /**
+     * server 端 acceptor 线程数 仅在开启 reusePort 且为 epoll 时生效 每个线程独立绑定同一端口
+     */
+    private int acceptorThreads = 1;
+
+    /**
+     * server 端 SO_REUSEPORT 仅 epoll 支持
+     */
+    private boolean reusePort = false;
+
+    /**
+     * server 端 SO_BACKLOG
+     */
+    private int backlog = 128;
+
+    private boolean tcpNoDelay = true;
+
+    private boolean keepAlive = true;
+
+    /**
+     * SO_SNDBUF
+     */
+    private int sendBufferSize = 0;
+
+    /**
+     * SO_RCVBUF
+     */
+    private int receiveBufferSize = 0;
+
+    /**
+     * TCP_QUICKACK 仅 epoll 支持
+     */
+    private boolean tcpQuickAck = false;
+
+    /**
+     * SO_BUSY_POLL(微秒) 仅 epoll 支持
+     */
+    private int busyPollMicros = 0;
+
+    /**
+     * 写缓冲水位 超过高水位后 channel 变为不可写 回落到低水位后恢复
+     */
+    private int writeBufferLowWaterMark = DEFAULT_WRITE_BUFFER_LOW_WATER_MARK;
+
+    private int writeBufferHighWaterMark = DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK;
+
+    /**
+     * 合并刷写开关 开启后相邻的写合并为一次 flush(一次 gathering write)
+     */
+    private boolean flushBatching = false;
+
+    /**
+     * 合并刷写最大延迟(微秒) 0 表示只合并事件循环中已排队的写 不额外等待
+     */
+    private int flushMaxDelayMicros = 0;
+
+    /**
+     * 单次合并的最大帧数 达到后立即刷写
+     */
+    private int flushMaxFrames = 64;
+
+    /**
+     * 单次合并的最大字节数 达到后立即刷写
+     */
+    private int flushMaxBytes = 64 * 1024;
+}
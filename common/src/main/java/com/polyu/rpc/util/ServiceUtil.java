@@ -15,6 +15,7 @@ public class ServiceUtil {
     private static final Logger logger = LoggerFactory.getLogger(ServiceUtil.class);
 
     private static final String SERVICE_CONCAT_TOKEN = "#";
+    private static final String METHOD_CONCAT_TOKEN = ":";
 
     /**
      * 服务serviceKey生成
@@ -30,6 +31,29 @@ public class ServiceUtil {
         return serviceKey;
     }
 
+    /**
+     * 方法methodKey生成 serviceKey:methodName(paramType1,paramType2)
+     * @param serviceKey 服务key
+     * @param methodName 方法名
+     * @param parameterTypes 参数类型
+     * @return key字符串
+     */
+    public static String makeMethodKey(String serviceKey, String methodName, Class<?>[] parameterTypes) {
+        StringBuilder methodKey = new StringBuilder(serviceKey)
+                .append(METHOD_CONCAT_TOKEN)
+                .append(methodName)
+                .append('(');
+        if (parameterTypes != null) {
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (i > 0) {
+                    methodKey.append(',');
+                }
+                methodKey.append(parameterTypes[i].getName());
+            }
+        }
+        return methodKey.append(')').toString();
+    }
+
     /**
      * 由 serviceKey2BeanMap 生成 RpcServiceInfo List
      * @param serviceKey2BeanMap serviceKey -> 实现类 bean
@@ -0,0 +1,322 @@
+package com.polyu.rpc.codec;
+
+import com.polyu.rpc.compress.CompressionPolicy;
+import com.polyu.rpc.compress.CompressorRegistry;
+import com.polyu.rpc.serializer.SerializerRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RpcEncoder / RpcDecoder 经 EmbeddedChannel 往返
+ */
+public class RpcCodecTest {
+
+    private static final String[] SERIALIZERS = {"kryo", "hessian", "protostuff", "json"};
+    private static final String[] COMPRESSORS = {CompressorRegistry.NONE, "deflate", "lz4"};
+
+    /**
+     * 可压缩的消息体 超过默认压缩阈值
+     */
+    private static final String PAYLOAD = String.join(",", Collections.nCopies(4096, "payload"));
+
+    private static EmbeddedChannel encoder(Class<?> genericClass, String serializer, String compressor, boolean directEncode) {
+        RpcEncoder encoder = new RpcEncoder(genericClass, new SerializerSelector(SerializerRegistry.get(serializer)), directEncode,
+                null, CompressionPolicy.of(compressor, 0, "codec-test"));
+        encoder.setPeerCompressors(CompressorRegistry.getSupportedMask());
+        return new EmbeddedChannel(encoder);
+    }
+
+    private static EmbeddedChannel decoder(Class<?> genericClass, String serializer, int maxFrameLength) {
+        return new EmbeddedChannel(new RpcDecoder(genericClass, new SerializerSelector(SerializerRegistry.get(serializer)),
+                maxFrameLength, null));
+    }
+
+    private static EmbeddedChannel decoder(Class<?> genericClass, String serializer) {
+        return decoder(genericClass, serializer, CodecConfig.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    private static ByteBuf encode(EmbeddedChannel encoder, Object msg) {
+        assertTrue(encoder.writeOutbound(msg));
+        return encoder.readOutbound();
+    }
+
+    private static RpcRequest request(long requestId) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(requestId);
+        request.setClassName("com.polyu.rpc.test.HelloService");
+        request.setMethodName("hello");
+        request.setParameterTypes(new Class<?>[]{String.class, Integer.class});
+        request.setParameters(new Object[]{PAYLOAD, 42});
+        request.setVersion("1.0");
+        return request;
+    }
+
+    private static RpcResponse response(long requestId) {
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(requestId);
+        response.setResult(PAYLOAD);
+        return response;
+    }
+
+    @Test
+    public void eachSerializerAndCompressorRoundTrips() {
+        for (String serializer : SERIALIZERS) {
+            byte serializerId = SerializerRegistry.get(serializer).getId();
+            for (String compressor : COMPRESSORS) {
+                for (boolean directEncode : new boolean[]{true, false}) {
+                    String message = serializer + "/" + compressor + "/" + directEncode;
+                    int compressorId = CompressorRegistry.NONE.equals(compressor) ? 0 : CompressorRegistry.get(compressor).getId();
+
+                    RpcRequest request = request(11L);
+                    ByteBuf requestFrame = encode(encoder(RpcRequest.class, serializer, compressor, directEncode), request);
+                    assertEquals(message, compressorId, requestFrame.getByte(RpcProtocol.FLAGS_OFFSET) & RpcProtocol.FLAG_COMPRESSOR_MASK);
+                    EmbeddedChannel requestDecoder = decoder(RpcRequest.class, serializer);
+                    requestDecoder.writeInbound(requestFrame);
+                    RpcRequest decodedRequest = requestDecoder.readInbound();
+                    assertEquals(message, request, decodedRequest);
+                    assertEquals(message, 11L, decodedRequest.getRequestId());
+                    assertEquals(message, serializerId, decodedRequest.getSerializer());
+
+                    RpcResponse response = response(12L);
+                    ByteBuf responseFrame = encode(encoder(RpcResponse.class, serializer, compressor, directEncode), response);
+                    EmbeddedChannel responseDecoder = decoder(RpcResponse.class, serializer);
+                    responseDecoder.writeInbound(responseFrame);
+                    RpcResponse decodedResponse = responseDecoder.readInbound();
+                    assertEquals(message, response, decodedResponse);
+                    assertEquals(message, 12L, decodedResponse.getRequestId());
+                }
+            }
+        }
+    }
+
+    /**
+     * 请求指定的序列化方式与压缩策略优先于连接默认
+     */
+    @Test
+    public void messageSerializerAndCompressionOverrideConnectionDefault() {
+        RpcRequest request = request(13L);
+        request.setSerializer(SerializerRegistry.get("json").getId());
+        request.setCompression(CompressionPolicy.of("deflate", 0, "codec-test"));
+        ByteBuf frame = encode(encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true), request);
+        assertEquals(SerializerRegistry.get("json").getId(), frame.getByte(RpcProtocol.SERIALIZER_OFFSET));
+        assertEquals(CompressorRegistry.get("deflate").getId(), frame.getByte(RpcProtocol.FLAGS_OFFSET));
+        EmbeddedChannel decoder = decoder(RpcRequest.class, "kryo");
+        decoder.writeInbound(frame);
+        assertEquals(request, decoder.readInbound());
+    }
+
+    @Test
+    public void headerLayout() {
+        RpcRequest request = request(0x0102030405060708L);
+        ByteBuf frame = encode(encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true), request);
+        assertEquals(RpcProtocol.MAGIC, frame.getShort(RpcProtocol.MAGIC_OFFSET));
+        assertEquals(RpcProtocol.VERSION, frame.getByte(RpcProtocol.VERSION_OFFSET));
+        assertEquals(MessageType.REQUEST.getCode(), frame.getByte(RpcProtocol.TYPE_OFFSET));
+        assertEquals(SerializerRegistry.get("kryo").getId(), frame.getByte(RpcProtocol.SERIALIZER_OFFSET));
+        assertEquals(0, frame.getByte(RpcProtocol.FLAGS_OFFSET));
+        assertEquals(0x0102030405060708L, frame.getLong(RpcProtocol.REQUEST_ID_OFFSET));
+        assertEquals(frame.readableBytes() - RpcProtocol.HEADER_LENGTH, frame.getInt(RpcProtocol.BODY_LENGTH_OFFSET));
+        frame.release();
+    }
+
+    @Test
+    public void heartbeatIsHeaderOnly() {
+        ByteBuf frame = encode(encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true), HeartBeat.BEAT_PING);
+        assertEquals(RpcProtocol.HEADER_LENGTH, frame.readableBytes());
+        assertEquals(MessageType.HEARTBEAT.getCode(), frame.getByte(RpcProtocol.TYPE_OFFSET));
+        assertEquals(0, frame.getInt(RpcProtocol.BODY_LENGTH_OFFSET));
+        EmbeddedChannel decoder = decoder(RpcResponse.class, "kryo");
+        decoder.writeInbound(frame);
+        assertSame(HeartBeat.BEAT_PING, decoder.readInbound());
+    }
+
+    /**
+     * 握手经 CONTROL 帧往返 之后只携带 methodId 与参数的精简请求可还原
+     */
+    @Test
+    public void handshakeAndCompactRequestRoundTrip() {
+        for (String serializer : SERIALIZERS) {
+            RpcHandshake handshake = new RpcHandshake();
+            Map<String, Integer> methodIds = new HashMap<>();
+            methodIds.put("com.polyu.rpc.test.HelloService#1.0#hello(java.lang.String)", 7);
+            handshake.setMethodIds(methodIds);
+            handshake.setMethodSerializers(new byte[]{0, 0, 0, 0, 0, 0, 0, SerializerRegistry.get("json").getId()});
+            handshake.setKryoTypes(new ArrayList<>(Arrays.asList("com.polyu.rpc.test.Person", "[Lcom.polyu.rpc.test.Person;")));
+            handshake.setCompressors(CompressorRegistry.getSupportedMask());
+            ByteBuf handshakeFrame = encode(encoder(RpcResponse.class, serializer, CompressorRegistry.NONE, true), handshake);
+            assertEquals(serializer, MessageType.CONTROL.getCode(), handshakeFrame.getByte(RpcProtocol.TYPE_OFFSET));
+            EmbeddedChannel clientDecoder = decoder(RpcResponse.class, serializer);
+            clientDecoder.writeInbound(handshakeFrame);
+            RpcHandshake decodedHandshake = clientDecoder.readInbound();
+            assertEquals(serializer, handshake.getMethodIds(), decodedHandshake.getMethodIds());
+            assertArrayEquals(serializer, handshake.getMethodSerializers(), decodedHandshake.getMethodSerializers());
+            assertEquals(serializer, handshake.getKryoTypes(), decodedHandshake.getKryoTypes());
+            assertEquals(serializer, handshake.getCompressors(), decodedHandshake.getCompressors());
+
+            RpcRequest full = request(21L);
+            full.setParameters(new Object[]{"bob", 1});
+            RpcRequest compact = full.compact(7);
+            EmbeddedChannel encoder = encoder(RpcRequest.class, serializer, CompressorRegistry.NONE, true);
+            ByteBuf fullFrame = encode(encoder, full);
+            ByteBuf compactFrame = encode(encoder, compact);
+            assertTrue(serializer, compactFrame.readableBytes() < fullFrame.readableBytes());
+            fullFrame.release();
+            EmbeddedChannel serverDecoder = decoder(RpcRequest.class, serializer);
+            serverDecoder.writeInbound(compactFrame);
+            RpcRequest decoded = serverDecoder.readInbound();
+            assertEquals(serializer, 7, decoded.getMethodId());
+            assertEquals(serializer, 21L, decoded.getRequestId());
+            assertNull(serializer, decoded.getClassName());
+            assertNull(serializer, decoded.getMethodName());
+            assertNull(serializer, decoded.getParameterTypes());
+            assertArrayEquals(serializer, full.getParameters(), decoded.getParameters());
+        }
+    }
+
+    /**
+     * 多帧拼接后按随机长度分片写入 依次还原
+     */
+    @Test
+    public void framesSplitAcrossReads() {
+        EmbeddedChannel encoder = encoder(RpcRequest.class, "kryo", "deflate", true);
+        ByteBuf stream = Unpooled.buffer();
+        List<Object> sent = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            RpcRequest request = request(id);
+            if (id % 2 == 0) {
+                request.setParameters(new Object[]{"small", (int) id});
+            }
+            sent.add(request);
+            ByteBuf frame = encode(encoder, request);
+            stream.writeBytes(frame);
+            frame.release();
+            ByteBuf beat = encode(encoder, HeartBeat.BEAT_PING);
+            stream.writeBytes(beat);
+            beat.release();
+            sent.add(HeartBeat.BEAT_PING);
+        }
+        EmbeddedChannel decoder = decoder(RpcRequest.class, "kryo");
+        Random random = new Random(3);
+        while (stream.isReadable()) {
+            int length = Math.min(stream.readableBytes(), 1 + random.nextInt(RpcProtocol.HEADER_LENGTH * 2));
+            decoder.writeInbound(stream.readRetainedSlice(length));
+        }
+        stream.release();
+        for (Object expected : sent) {
+            Object decoded = decoder.readInbound();
+            assertEquals(expected, decoded);
+            if (decoded instanceof RpcRequest) {
+                assertEquals(((RpcRequest) expected).getRequestId(), ((RpcRequest) decoded).getRequestId());
+            }
+        }
+        assertNull(decoder.readInbound());
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void badMagicIsRejected() {
+        ByteBuf frame = encode(encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true), request(1L));
+        frame.setShort(RpcProtocol.MAGIC_OFFSET, 0x1234);
+        decoder(RpcRequest.class, "kryo").writeInbound(frame);
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void badVersionIsRejected() {
+        ByteBuf frame = encode(encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true), request(1L));
+        frame.setByte(RpcProtocol.VERSION_OFFSET, RpcProtocol.VERSION + 1);
+        decoder(RpcRequest.class, "kryo").writeInbound(frame);
+    }
+
+    @Test(expected = TooLongFrameException.class)
+    public void oversizeFrameIsRejected() {
+        ByteBuf frame = encode(encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true), request(1L));
+        decoder(RpcRequest.class, "kryo", 1024).writeInbound(frame);
+    }
+
+    /**
+     * 帧头声明的长度超限 不等待消息体即拒绝
+     */
+    @Test(expected = TooLongFrameException.class)
+    public void oversizeHeaderIsRejectedBeforeBody() {
+        ByteBuf frame = encode(encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true), request(1L));
+        frame.setInt(RpcProtocol.BODY_LENGTH_OFFSET, Integer.MAX_VALUE);
+        decoder(RpcRequest.class, "kryo").writeInbound(frame.retainedSlice(0, RpcProtocol.HEADER_LENGTH));
+        frame.release();
+    }
+
+    @Test(expected = CorruptedFrameException.class)
+    public void negativeBodyLengthIsRejected() {
+        ByteBuf frame = encode(encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true), request(1L));
+        frame.setInt(RpcProtocol.BODY_LENGTH_OFFSET, -1);
+        decoder(RpcRequest.class, "kryo").writeInbound(frame);
+    }
+
+    /**
+     * 压缩消息体的原始长度与实际不符、越界或数据损坏时丢弃该帧 连接上的后续帧不受影响
+     */
+    @Test
+    public void corruptCompressedBodyIsDropped() {
+        for (String compressor : new String[]{"deflate", "lz4"}) {
+            EmbeddedChannel encoder = encoder(RpcRequest.class, "kryo", compressor, true);
+            int originalLength = encode(encoder, request(1L)).getInt(RpcProtocol.HEADER_LENGTH);
+            int[] corruptLengths = {originalLength - 1, originalLength + 1, -1, CodecConfig.DEFAULT_MAX_FRAME_LENGTH + 1};
+            for (int corruptLength : corruptLengths) {
+                ByteBuf frame = encode(encoder, request(2L));
+                frame.setInt(RpcProtocol.HEADER_LENGTH, corruptLength);
+                assertDroppedThenRecovers(compressor + "/" + corruptLength, encoder, frame);
+            }
+            ByteBuf frame = encode(encoder, request(3L));
+            int dataIndex = RpcProtocol.HEADER_LENGTH + RpcProtocol.COMPRESSED_LENGTH_FIELD_LENGTH;
+            for (int i = dataIndex; i < frame.writerIndex(); i++) {
+                frame.setByte(i, ~frame.getByte(i));
+            }
+            assertDroppedThenRecovers(compressor + "/data", encoder, frame);
+        }
+    }
+
+    private static void assertDroppedThenRecovers(String message, EmbeddedChannel encoder, ByteBuf corruptFrame) {
+        EmbeddedChannel decoder = decoder(RpcRequest.class, "kryo");
+        decoder.writeInbound(corruptFrame);
+        assertNull(message, decoder.readInbound());
+        RpcRequest next = request(4L);
+        decoder.writeInbound(encode(encoder, next));
+        assertEquals(message, next, decoder.readInbound());
+        assertTrue(message, decoder.isActive());
+    }
+
+    /**
+     * 本地不支持的序列化方式或不属于本端的帧类型 丢弃后继续解码
+     */
+    @Test
+    public void unsupportedSerializerAndUnexpectedTypeAreDropped() {
+        EmbeddedChannel encoder = encoder(RpcRequest.class, "kryo", CompressorRegistry.NONE, true);
+        EmbeddedChannel decoder = decoder(RpcRequest.class, "kryo");
+        ByteBuf unknownSerializer = encode(encoder, request(1L));
+        unknownSerializer.setByte(RpcProtocol.SERIALIZER_OFFSET, 99);
+        decoder.writeInbound(unknownSerializer);
+        assertNull(decoder.readInbound());
+        ByteBuf response = encode(encoder(RpcResponse.class, "kryo", CompressorRegistry.NONE, true), response(2L));
+        decoder.writeInbound(response);
+        assertNull(decoder.readInbound());
+        RpcRequest next = request(3L);
+        decoder.writeInbound(encode(encoder, next));
+        assertEquals(next, decoder.readInbound());
+    }
+}
@@ -0,0 +1,49 @@
+package com.polyu.rpc.info;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class EndpointTest {
+
+    private static RpcMetaData metaData(String host, int port) {
+        RpcMetaData rpcMetaData = new RpcMetaData();
+        rpcMetaData.setHost(host);
+        rpcMetaData.setPort(port);
+        return rpcMetaData;
+    }
+
+    @Test
+    public void sameAddressIsSameInstance() {
+        Endpoint endpoint = Endpoint.of("10.1.0.1", 8080);
+        assertSame(endpoint, Endpoint.of(new String("10.1.0.1"), 8080));
+        assertSame(endpoint, Endpoint.of(metaData("10.1.0.1", 8080)));
+        assertNotSame(endpoint, Endpoint.of("10.1.0.1", 8081));
+        assertNotSame(endpoint, Endpoint.of("10.1.0.2", 8080));
+        assertEquals("10.1.0.1:8080", endpoint.toString());
+    }
+
+    @Test
+    public void cachedEndpointFollowsAddressChange() {
+        RpcMetaData rpcMetaData = metaData("10.1.1.1", 9000);
+        Endpoint first = Endpoint.of(rpcMetaData);
+        assertSame(first, Endpoint.of(rpcMetaData));
+        rpcMetaData.setPort(9001);
+        assertSame(Endpoint.of("10.1.1.1", 9001), Endpoint.of(rpcMetaData));
+        rpcMetaData.setHost("10.1.1.2");
+        assertSame(Endpoint.of("10.1.1.2", 9001), Endpoint.of(rpcMetaData));
+    }
+
+    @Test
+    public void cacheIsNotSerialized() {
+        RpcMetaData rpcMetaData = metaData("10.1.2.1", 9000);
+        String before = rpcMetaData.toJson();
+        Endpoint.of(rpcMetaData);
+        assertEquals(before, rpcMetaData.toJson());
+        assertFalse(before.contains("endpoint"));
+        assertEquals(rpcMetaData, RpcMetaData.fromJson(before));
+    }
+}
@@ -0,0 +1,157 @@
+package com.polyu.rpc.route.impl;
+
+import com.polyu.rpc.info.Endpoint;
+import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.info.RpcServiceInfo;
+import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.route.RouteSnapshot;
+import com.polyu.rpc.util.ServiceUtil;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KetamaRingTest {
+
+    private static final int VIRTUAL_NODES = 160;
+    private static final int KEYS = 20000;
+
+    private static RpcMetaData node(String serviceName, int port) {
+        RpcMetaData rpcMetaData = new RpcMetaData();
+        rpcMetaData.setHost("10.0.0.1");
+        rpcMetaData.setPort(port);
+        rpcMetaData.setServiceInfoList(Collections.singletonList(new RpcServiceInfo(serviceName, "1.0")));
+        return rpcMetaData;
+    }
+
+    private static RouteSnapshot snapshot(String serviceName) {
+        return MetaDataKeeper.getSnapshot(ServiceUtil.makeServiceKey(serviceName, "1.0"));
+    }
+
+    private static Map<String, Endpoint> owners(KetamaRing ring, RouteSnapshot snapshot) {
+        Map<String, Endpoint> owners = new HashMap<>(KEYS * 2);
+        for (int i = 0; i < KEYS; i++) {
+            String key = "user-" + i;
+            owners.put(key, snapshot.getEndpoint(ring.locate(key)));
+        }
+        return owners;
+    }
+
+    @Test
+    public void sameKeyAlwaysLocatesSameNode() {
+        String service = "ring.same";
+        for (int port = 9001; port <= 9004; port++) {
+            MetaDataKeeper.addZkChild(node(service, port));
+        }
+        RouteSnapshot snapshot = snapshot(service);
+        KetamaRing ring = new KetamaRing(snapshot, VIRTUAL_NODES, null);
+        KetamaRing rebuilt = new KetamaRing(snapshot, VIRTUAL_NODES, ring);
+        for (int i = 0; i < 1000; i++) {
+            String key = "user-" + i;
+            assertEquals(ring.locate(key), ring.locate(key));
+            assertEquals(ring.locate(key), rebuilt.locate(key));
+        }
+    }
+
+    @Test
+    public void keysSpreadOverNodes() {
+        String service = "ring.spread";
+        for (int port = 9001; port <= 9004; port++) {
+            MetaDataKeeper.addZkChild(node(service, port));
+        }
+        RouteSnapshot snapshot = snapshot(service);
+        int[] counts = new int[snapshot.size()];
+        KetamaRing ring = new KetamaRing(snapshot, VIRTUAL_NODES, null);
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.locate("user-" + i)]++;
+        }
+        for (int count : counts) {
+            assertTrue("unbalanced: " + count, count > KEYS * 0.15 && count < KEYS * 0.35);
+        }
+    }
+
+    /**
+     * 新增节点 只有落到新节点的键改变归属 约 1/n 的键被重新映射
+     */
+    @Test
+    public void addingNodeOnlyRemapsKeysToNewNode() {
+        String service = "ring.add";
+        for (int port = 9001; port <= 9004; port++) {
+            MetaDataKeeper.addZkChild(node(service, port));
+        }
+        RouteSnapshot before = snapshot(service);
+        KetamaRing ring = new KetamaRing(before, VIRTUAL_NODES, null);
+        Map<String, Endpoint> oldOwners = owners(ring, before);
+
+        RpcMetaData added = node(service, 9005);
+        MetaDataKeeper.addZkChild(added);
+        RouteSnapshot after = snapshot(service);
+        Map<String, Endpoint> newOwners = owners(new KetamaRing(after, VIRTUAL_NODES, ring), after);
+
+        int moved = 0;
+        for (Map.Entry<String, Endpoint> entry : oldOwners.entrySet()) {
+            Endpoint owner = newOwners.get(entry.getKey());
+            if (owner != entry.getValue()) {
+                assertSame(Endpoint.of(added), owner);
+                moved++;
+            }
+        }
+        assertTrue("moved: " + moved, moved > KEYS * 0.1 && moved < KEYS * 0.3);
+    }
+
+    /**
+     * 移除节点 只有原属该节点的键改变归属
+     */
+    @Test
+    public void removingNodeOnlyRemapsItsKeys() {
+        String service = "ring.remove";
+        for (int port = 9001; port <= 9005; port++) {
+            MetaDataKeeper.addZkChild(node(service, port));
+        }
+        RouteSnapshot before = snapshot(service);
+        KetamaRing ring = new KetamaRing(before, VIRTUAL_NODES, null);
+        Map<String, Endpoint> oldOwners = owners(ring, before);
+
+        RpcMetaData removed = node(service, 9003);
+        MetaDataKeeper.removeZkChild(removed);
+        RouteSnapshot after = snapshot(service);
+        assertEquals(before.size() - 1, after.size());
+        Map<String, Endpoint> newOwners = owners(new KetamaRing(after, VIRTUAL_NODES, ring), after);
+
+        int moved = 0;
+        for (Map.Entry<String, Endpoint> entry : oldOwners.entrySet()) {
+            Endpoint owner = newOwners.get(entry.getKey());
+            if (entry.getValue() == Endpoint.of(removed)) {
+                moved++;
+            } else {
+                assertSame(entry.getValue(), owner);
+            }
+        }
+        assertTrue("moved: " + moved, moved > KEYS * 0.1 && moved < KEYS * 0.3);
+    }
+
+    @Test
+    public void supportedKeyTypes() {
+        String service = "ring.keys";
+        for (int port = 9001; port <= 9003; port++) {
+            MetaDataKeeper.addZkChild(node(service, port));
+        }
+        KetamaRing ring = new KetamaRing(snapshot(service), VIRTUAL_NODES, null);
+        assertEquals(ring.locate("42"), ring.locate(42));
+        assertEquals(ring.locate("42"), ring.locate(42L));
+        assertEquals(ring.locate("42"), ring.locate("42".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedKeyTypeIsRejected() {
+        String service = "ring.reject";
+        MetaDataKeeper.addZkChild(node(service, 9001));
+        new KetamaRing(snapshot(service), VIRTUAL_NODES, null).locate(new Object());
+    }
+}
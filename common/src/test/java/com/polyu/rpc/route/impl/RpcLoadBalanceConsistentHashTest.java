@@ -0,0 +1,127 @@
+package com.polyu.rpc.route.impl;
+
+import com.polyu.rpc.annotation.RouteKey;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.info.RpcServiceInfo;
+import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.route.RouteKeyExtractor;
+import com.polyu.rpc.route.RouteSnapshot;
+import com.polyu.rpc.util.ServiceUtil;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RpcLoadBalanceConsistentHashTest {
+
+    public static class Order {
+        private final String userId;
+
+        public Order(String userId) {
+            this.userId = userId;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+    }
+
+    public static class OrderUserExtractor implements RouteKeyExtractor {
+        @Override
+        public Object extract(Object[] args) {
+            return ((Order) args[0]).getUserId();
+        }
+    }
+
+    public interface OrderService {
+        String byFirst(String userId, int amount);
+
+        String bySecond(int amount, @RouteKey String userId);
+
+        @RouteKey(extractor = OrderUserExtractor.class)
+        String byOrder(Order order);
+
+        String byObject(Order order);
+    }
+
+    private static RouteSnapshot register(String version) {
+        for (int port = 9101; port <= 9104; port++) {
+            RpcMetaData rpcMetaData = new RpcMetaData();
+            rpcMetaData.setHost("10.0.0.2");
+            rpcMetaData.setPort(port);
+            rpcMetaData.setServiceInfoList(Collections.singletonList(new RpcServiceInfo(OrderService.class.getName(), version)));
+            MetaDataKeeper.addZkChild(rpcMetaData);
+        }
+        return MetaDataKeeper.getSnapshot(ServiceUtil.makeServiceKey(OrderService.class.getName(), version));
+    }
+
+    private static RpcRequest request(String methodName, Class<?>[] parameterTypes, Object... parameters) {
+        RpcRequest request = new RpcRequest();
+        request.setClassName(OrderService.class.getName());
+        request.setMethodName(methodName);
+        request.setParameterTypes(parameterTypes);
+        request.setParameters(parameters);
+        return request;
+    }
+
+    @Test
+    public void sameRouteKeySelectsSameNode() {
+        RouteSnapshot snapshot = register("first");
+        RpcLoadBalanceConsistentHash loadBalance = new RpcLoadBalanceConsistentHash();
+        Class<?>[] types = {String.class, int.class};
+        for (int i = 0; i < 200; i++) {
+            int selected = loadBalance.select(snapshot, request("byFirst", types, "user-" + i, 1));
+            assertEquals(selected, loadBalance.select(snapshot, request("byFirst", types, "user-" + i, 2)));
+        }
+    }
+
+    @Test
+    public void annotatedParameterAndExtractorUseSameKey() {
+        RouteSnapshot snapshot = register("annotated");
+        RpcLoadBalanceConsistentHash loadBalance = new RpcLoadBalanceConsistentHash();
+        for (int i = 0; i < 200; i++) {
+            String userId = "user-" + i;
+            int byFirst = loadBalance.select(snapshot, request("byFirst", new Class<?>[]{String.class, int.class}, userId, 1));
+            int bySecond = loadBalance.select(snapshot, request("bySecond", new Class<?>[]{int.class, String.class}, 1, userId));
+            int byOrder = loadBalance.select(snapshot, request("byOrder", new Class<?>[]{Order.class}, new Order(userId)));
+            assertEquals(byFirst, bySecond);
+            assertEquals(byFirst, byOrder);
+        }
+    }
+
+    @Test
+    public void missingRouteKeySelectsAnyNode() {
+        RouteSnapshot snapshot = register("missing");
+        RpcLoadBalanceConsistentHash loadBalance = new RpcLoadBalanceConsistentHash();
+        for (int i = 0; i < 100; i++) {
+            int selected = loadBalance.select(snapshot, request("byFirst", new Class<?>[]{String.class, int.class}, null, 1));
+            assertTrue(selected >= 0 && selected < snapshot.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void objectRouteKeyWithoutExtractorIsRejected() {
+        RouteSnapshot snapshot = register("object");
+        new RpcLoadBalanceConsistentHash().select(snapshot, request("byObject", new Class<?>[]{Order.class}, new Order("u")));
+    }
+
+    @Test
+    public void routeFollowsSnapshotChanges() throws Exception {
+        String version = "route";
+        RouteSnapshot snapshot = register(version);
+        RpcLoadBalanceConsistentHash loadBalance = new RpcLoadBalanceConsistentHash();
+        String serviceKey = ServiceUtil.makeServiceKey(OrderService.class.getName(), version);
+        RpcRequest request = request("byFirst", new Class<?>[]{String.class, int.class}, "user-7", 1);
+        RpcMetaData routed = loadBalance.route(serviceKey, request, null);
+        assertSame(snapshot.getMetaData(loadBalance.select(snapshot, request)), routed);
+
+        MetaDataKeeper.removeZkChild(routed);
+        RpcMetaData rerouted = loadBalance.route(serviceKey, request, null);
+        assertTrue(rerouted.getPort() != routed.getPort());
+        assertEquals(rerouted.getPort(), loadBalance.route(serviceKey, request, null).getPort());
+    }
+}
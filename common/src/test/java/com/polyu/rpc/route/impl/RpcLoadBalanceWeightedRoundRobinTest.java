@@ -0,0 +1,98 @@
+package com.polyu.rpc.route.impl;
+
+import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.info.RpcServiceInfo;
+import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.route.RouteSnapshot;
+import com.polyu.rpc.util.ServiceUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+
+public class RpcLoadBalanceWeightedRoundRobinTest {
+
+    private static final int[] WEIGHTS = {5, 3, 2, 0};
+
+    private static RouteSnapshot register(String version) {
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            RpcMetaData rpcMetaData = new RpcMetaData();
+            rpcMetaData.setHost("10.0.0.3");
+            rpcMetaData.setPort(9201 + i);
+            rpcMetaData.setWeight(WEIGHTS[i]);
+            rpcMetaData.setServiceInfoList(Collections.singletonList(new RpcServiceInfo("WeightedService", version)));
+            MetaDataKeeper.addZkChild(rpcMetaData);
+        }
+        return MetaDataKeeper.getSnapshot(ServiceUtil.makeServiceKey("WeightedService", version));
+    }
+
+    private static int indexOfPort(RouteSnapshot snapshot, int port) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.getMetaData(i).getPort() == port) {
+                return i;
+            }
+        }
+        throw new AssertionError("No node on port " + port);
+    }
+
+    @Test
+    public void smoothSequenceFollowsWeights() {
+        RouteSnapshot snapshot = register("sequence");
+        RpcLoadBalanceWeightedRoundRobin loadBalance = new RpcLoadBalanceWeightedRoundRobin();
+        int[] counts = new int[snapshot.size()];
+        for (int i = 0; i < 10; i++) {
+            counts[loadBalance.select(snapshot, null)]++;
+        }
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            assertEquals(WEIGHTS[i], counts[indexOfPort(snapshot, 9201 + i)]);
+        }
+    }
+
+    /**
+     * 新快照上的并发首次选择共用同一份状态 每个完整周期的分配与权重一致
+     */
+    @Test
+    public void concurrentSelectionsShareState() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            RouteSnapshot snapshot = register("concurrent-" + round);
+            RpcLoadBalanceWeightedRoundRobin loadBalance = new RpcLoadBalanceWeightedRoundRobin();
+            int threads = 8;
+            int perThread = 100;
+            AtomicIntegerArray counts = new AtomicIntegerArray(snapshot.size());
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                            counts.incrementAndGet(loadBalance.select(snapshot, null));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+            int cycles = threads * perThread / 10;
+            for (int i = 0; i < WEIGHTS.length; i++) {
+                assertEquals(WEIGHTS[i] * cycles, counts.get(indexOfPort(snapshot, 9201 + i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.polyu.rpc.serializer;
+
+import com.polyu.rpc.codec.RpcRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.protostuff.runtime.IdStrategy;
+import io.protostuff.runtime.RuntimeEnv;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按类名还原对象的序列化方式 不得实例化未允许的类型
+ */
+public class TypeAllowListTest {
+
+    private static final String[] NAME_BASED_SERIALIZERS = {"json", "hessian", "protostuff"};
+
+    /**
+     * 所在包未登记 不在允许列表中
+     */
+    public static class Disallowed {
+        private String value;
+
+        public Disallowed() {
+        }
+
+        Disallowed(String value) {
+            this.value = value;
+        }
+    }
+
+    private static RpcRequest request(Object parameter) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(1L);
+        request.setClassName("com.polyu.rpc.Service");
+        request.setMethodName("call");
+        request.setParameterTypes(new Class<?>[]{Object.class});
+        request.setParameters(new Object[]{parameter});
+        return request;
+    }
+
+    /**
+     * @return 反序列化失败时返回 null
+     */
+    private static Object decodedParameter(Object decoded) {
+        return decoded == null ? null : ((RpcRequest) decoded).getParameters()[0];
+    }
+
+    @Test
+    public void disallowedTypeIsNotInstantiatedFromBytes() {
+        for (String name : NAME_BASED_SERIALIZERS) {
+            Serializer serializer = SerializerRegistry.get(name);
+            byte[] bytes = serializer.serialize(request(new Disallowed("x")));
+            Object decoded;
+            try {
+                decoded = serializer.deserialize(bytes, RpcRequest.class);
+            } catch (RuntimeException e) {
+                decoded = null;
+            }
+            assertFalse(name, decodedParameter(decoded) instanceof Disallowed);
+        }
+    }
+
+    @Test
+    public void disallowedTypeIsNotInstantiatedFromByteBuf() {
+        for (String name : NAME_BASED_SERIALIZERS) {
+            Serializer serializer = SerializerRegistry.get(name);
+            for (ByteBuf in : Arrays.asList(Unpooled.buffer(), Unpooled.directBuffer())) {
+                serializer.serialize(request(new Disallowed("x")), in);
+                Object decoded;
+                try {
+                    decoded = serializer.deserialize(in, RpcRequest.class);
+                } catch (RuntimeException e) {
+                    decoded = null;
+                } finally {
+                    in.release();
+                }
+                assertFalse(name, decodedParameter(decoded) instanceof Disallowed);
+            }
+        }
+    }
+
+    @Test
+    public void allowedTypesRoundTrip() {
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        for (String name : NAME_BASED_SERIALIZERS) {
+            Serializer serializer = SerializerRegistry.get(name);
+            RpcRequest decoded = (RpcRequest) serializer.deserialize(serializer.serialize(request(list)), RpcRequest.class);
+            assertEquals(name, list, decoded.getParameters()[0]);
+        }
+    }
+
+    @Test
+    public void protostuffRestoresContextClassLoader() {
+        Serializer serializer = SerializerRegistry.get("protostuff");
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        byte[] bytes = serializer.serialize(request(new Disallowed("x")));
+        try {
+            serializer.deserialize(bytes, RpcRequest.class);
+        } catch (RuntimeException ignored) {
+            // 预期被拒绝
+        }
+        assertEquals(contextClassLoader, Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * 创建反序列化专用策略不得改变全局策略的默认 flags
+     */
+    @Test
+    public void protostuffKeepsAutoLoadPolymorphicClasses() {
+        SerializerRegistry.get("protostuff");
+        assertTrue((RuntimeEnv.ID_STRATEGY.flags & IdStrategy.AUTO_LOAD_POLYMORPHIC_CLASSES) != 0);
+    }
+}
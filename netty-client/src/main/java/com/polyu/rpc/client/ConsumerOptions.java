@@ -0,0 +1,82 @@
+package com.polyu.rpc.client;
+
+import com.polyu.rpc.annotation.BRpcConsumer;
+import com.polyu.rpc.client.failover.FailoverPolicy;
+import com.polyu.rpc.client.hedge.HedgePolicy;
+import com.polyu.rpc.client.interceptor.Interceptor;
+import com.polyu.rpc.route.RpcLoadBalance;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 代理配置 对应 @BRpcConsumer 的各项设置
+ * 未设置的项使用连接默认
+ */
+@Data
+public class ConsumerOptions {
+
+    private String version = "";
+
+    /**
+     * 负载均衡策略 为null时使用默认
+     */
+    private RpcLoadBalance loadBalance;
+
+    private long timeoutLength = 3000L;
+
+    /**
+     * 序列化方式名称 为空时使用服务端偏好或连接默认
+     */
+    private String serializer;
+
+    /**
+     * 请求压缩方式名称 为空时使用连接默认
+     */
+    private String compressor;
+
+    /**
+     * 压缩阈值 小于0时使用连接默认
+     */
+    private int compressThreshold = -1;
+
+    /**
+     * 该代理专用拦截器 在全局拦截器之后执行 可为null
+     */
+    private List<Interceptor> interceptors;
+
+    /**
+     * 对冲策略 为null时不对冲(方法上的 @Hedge 仍生效)
+     */
+    private HedgePolicy hedgePolicy;
+
+    /**
+     * 重试策略 为null时不重试(方法上的 @Failover 仍生效)
+     */
+    private FailoverPolicy failoverPolicy;
+
+    public static ConsumerOptions of(String version, RpcLoadBalance loadBalance, long timeoutLength) {
+        ConsumerOptions options = new ConsumerOptions();
+        options.setVersion(version);
+        options.setLoadBalance(loadBalance);
+        options.setTimeoutLength(timeoutLength);
+        return options;
+    }
+
+    /**
+     * 按注解生成配置 拦截器需由调用方解析后设置
+     * @param consumer 字段上的 @BRpcConsumer
+     * @return options
+     * @throws ReflectiveOperationException 负载均衡策略无法实例化
+     */
+    public static ConsumerOptions of(BRpcConsumer consumer) throws ReflectiveOperationException {
+        ConsumerOptions options = of(consumer.version(),
+                (RpcLoadBalance) consumer.loadBalanceStrategy().newInstance(), consumer.timeOutLength());
+        options.setSerializer(consumer.serializer());
+        options.setCompressor(consumer.compressor());
+        options.setCompressThreshold(consumer.compressThreshold());
+        options.setHedgePolicy(HedgePolicy.of(consumer.maxHedges(), consumer.hedgeAfterMillis(), consumer.hedgePercentile()));
+        options.setFailoverPolicy(FailoverPolicy.of(consumer.retries(), consumer.retryBackoffMillis()));
+        return options;
+    }
+}
@@ -2,19 +2,34 @@ package com.polyu.rpc.client;
 
 import com.polyu.rpc.annotation.BRpcConsumer;
 import com.polyu.rpc.client.connect.ConnectUpdater;
+import com.polyu.rpc.client.connect.Connector;
+import com.polyu.rpc.client.interceptor.Interceptor;
+import com.polyu.rpc.client.interceptor.InterceptorPipeline;
+import com.polyu.rpc.client.invoke.Invocation;
 import com.polyu.rpc.client.invoke.InvokeProxy;
+import com.polyu.rpc.client.invoke.stub.StubGenerator;
 import com.polyu.rpc.client.result.PendingRpcHolder;
+import com.polyu.rpc.codec.RpcRequest;
 import com.polyu.rpc.registry.ServiceDiscovery;
 import com.polyu.rpc.route.RpcLoadBalance;
+import com.polyu.rpc.compress.CompressionPolicy;
+import com.polyu.rpc.serializer.TypeAllowList;
+import com.polyu.rpc.util.ServiceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -28,6 +43,15 @@ public class RpcClient implements ApplicationContextAware, DisposableBean {
      */
     private static ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(16, 16,
             600L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1000));
+    /**
+     * 异步调用结果完成线程池 为null时在 IO 线程完成
+     */
+    private static volatile Executor completionExecutor;
+    /**
+     * 全局拦截器 对之后创建的所有代理及泛化调用生效
+     */
+    private static final List<Interceptor> globalInterceptors = new CopyOnWriteArrayList<>();
+    private static volatile InterceptorPipeline globalPipeline = InterceptorPipeline.DEFAULT;
 
     /**
      * 注册中心地址 & 注册中心选型
@@ -37,22 +61,100 @@ public class RpcClient implements ApplicationContextAware, DisposableBean {
         ConnectUpdater connectUpdater = ConnectUpdater.getAndInitInstance(serviceDiscovery);
         this.serviceDiscovery = connectUpdater.getServiceDiscovery();
         this.serviceDiscovery.discoveryService();
-        PendingRpcHolder.startTimeoutThreadPool();
+        PendingRpcHolder.start();
+    }
+
+    public static <T> T getProxyInstance(Class<T> interfaceClass, String version, RpcLoadBalance loadBalance, long timeoutLength) {
+        return getProxyInstance(interfaceClass, ConsumerOptions.of(version, loadBalance, timeoutLength));
     }
 
+    /**
+     * 创建代理 优先使用生成的 stub 无法生成时退回 JDK 动态代理
+     * @param options 代理配置 序列化/压缩/拦截器/对冲/重试等
+     */
     @SuppressWarnings("unchecked")
-    public static <T, P> T getProxyInstance(Class<T> interfaceClass, String version, RpcLoadBalance loadBalance, long timeoutLength) {
+    public static <T> T getProxyInstance(Class<T> interfaceClass, ConsumerOptions options) {
+        String compressor = options.getCompressor();
+        List<Interceptor> interceptors = options.getInterceptors();
+        CompressionPolicy compression = null;
+        if (compressor != null && !compressor.isEmpty()) {
+            int threshold = options.getCompressThreshold() < 0
+                    ? Connector.getInstance().getCodecConfig().getCompressThreshold() : options.getCompressThreshold();
+            compression = CompressionPolicy.of(compressor, threshold, ServiceUtil.makeServiceKey(interfaceClass.getName(), options.getVersion()));
+        }
+        InterceptorPipeline pipeline = globalPipeline;
+        if (interceptors != null && !interceptors.isEmpty()) {
+            List<Interceptor> proxyInterceptors = new ArrayList<>(globalInterceptors);
+            proxyInterceptors.addAll(interceptors);
+            pipeline = InterceptorPipeline.of(proxyInterceptors);
+        }
+        TypeAllowList.allowService(interfaceClass);
+        InvokeProxy handler = new InvokeProxy(options, compression, pipeline);
+        T stub = StubGenerator.newInstance(interfaceClass, handler);
+        if (stub != null) {
+            return stub;
+        }
         return (T) Proxy.newProxyInstance(
                 interfaceClass.getClassLoader(),
                 new Class<?>[]{interfaceClass},
-                new InvokeProxy(version, loadBalance, timeoutLength)
+                handler
         );
     }
 
+    /**
+     * 泛化异步调用 无需服务接口
+     * @param className 服务接口全限定名
+     * @param parameterTypes 方法参数类型
+     * @param loadBalance 负载均衡策略 为null时使用默认
+     * @return 响应到达时完成的 future
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> invokeAsync(String className, String version, String methodName,
+                                                       Class<?>[] parameterTypes, Object[] args,
+                                                       RpcLoadBalance loadBalance, long timeoutLength) {
+        String serviceKey = ServiceUtil.makeServiceKey(className, version);
+        RpcRequest request = InvokeProxy.newRequest(className, methodName, parameterTypes, args, version,
+                ServiceUtil.makeMethodKey(serviceKey, methodName, parameterTypes));
+        Invocation invocation = new Invocation(request, serviceKey, loadBalance, timeoutLength, true, globalPipeline);
+        return (CompletableFuture<T>) invocation.execute();
+    }
+
+    /**
+     * 注册全局拦截器 对之后创建的代理生效 须在创建代理前注册
+     * @param interceptor 无状态拦截器
+     */
+    public static synchronized void addInterceptor(Interceptor interceptor) {
+        if (globalInterceptors.contains(interceptor)) {
+            return;
+        }
+        globalInterceptors.add(interceptor);
+        globalPipeline = InterceptorPipeline.of(globalInterceptors);
+    }
+
     public static void submit(Runnable task) {
         threadPoolExecutor.submit(task);
     }
 
+    /**
+     * 回调线程池
+     * @return executor
+     */
+    public static Executor getCallbackExecutor() {
+        return threadPoolExecutor;
+    }
+
+    public static Executor getCompletionExecutor() {
+        return completionExecutor;
+    }
+
+    /**
+     * 设置异步调用结果完成线程池 避免业务逻辑占用 IO 线程
+     * @param executor 为null时在 IO 线程完成
+     */
+    public static void setCompletionExecutor(Executor executor) {
+        completionExecutor = executor;
+    }
+
     private void stop() {
         threadPoolExecutor.shutdown();
         serviceDiscovery.stop();
@@ -67,6 +169,11 @@ public class RpcClient implements ApplicationContextAware, DisposableBean {
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        List<Interceptor> interceptorBeans = new ArrayList<>(applicationContext.getBeansOfType(Interceptor.class).values());
+        AnnotationAwareOrderComparator.sort(interceptorBeans);
+        for (Interceptor interceptor : interceptorBeans) {
+            addInterceptor(interceptor);
+        }
         String[] beanNames = applicationContext.getBeanDefinitionNames();
         for (String beanName : beanNames) {
             Object bean = applicationContext.getBean(beanName);
@@ -75,11 +182,10 @@ public class RpcClient implements ApplicationContextAware, DisposableBean {
                 for (Field field : fields) {
                     BRpcConsumer rpcAutowired = field.getAnnotation(BRpcConsumer.class);
                     if (rpcAutowired != null) {
-                        String version = rpcAutowired.version();
-                        RpcLoadBalance loadBalance = (RpcLoadBalance) rpcAutowired.loadBalanceStrategy().newInstance();
-                        long timeoutLength = rpcAutowired.timeOutLength();
+                        ConsumerOptions options = ConsumerOptions.of(rpcAutowired);
+                        options.setInterceptors(consumerInterceptors(applicationContext, rpcAutowired.interceptors()));
                         field.setAccessible(true);
-                        field.set(bean, getProxyInstance(field.getType(), version, loadBalance, timeoutLength));
+                        field.set(bean, getProxyInstance(field.getType(), options));
                     }
                 }
             } catch (Exception e) {
@@ -87,5 +193,27 @@ public class RpcClient implements ApplicationContextAware, DisposableBean {
             }
         }
     }
+
+    /**
+     * 获取 @BRpcConsumer 声明的拦截器 已作为全局拦截器注册的 bean 不重复加入
+     * @param interceptorClasses 拦截器类型
+     * @return 拦截器列表
+     */
+    private static List<Interceptor> consumerInterceptors(ApplicationContext applicationContext, Class<?>[] interceptorClasses) throws Exception {
+        List<Interceptor> interceptors = new ArrayList<>(interceptorClasses.length);
+        for (Class<?> interceptorClass : interceptorClasses) {
+            if (!Interceptor.class.isAssignableFrom(interceptorClass)) {
+                throw new IllegalArgumentException(interceptorClass.getName() + " is not an Interceptor.");
+            }
+            Interceptor interceptor = (Interceptor) applicationContext.getBeanProvider(interceptorClass).getIfAvailable();
+            if (interceptor == null) {
+                interceptor = (Interceptor) interceptorClass.newInstance();
+            } else if (globalInterceptors.contains(interceptor)) {
+                continue;
+            }
+            interceptors.add(interceptor);
+        }
+        return interceptors;
+    }
 }
 
@@ -0,0 +1,179 @@
+package com.polyu.rpc.client.budget;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 追加请求(重试/对冲)预算 令牌桶
+ * 每次调用存入 ratio 个令牌(上限 burst) 每个追加请求取出 1 个 令牌不足时不追加
+ * 追加请求数因此不超过调用数的 ratio 倍(加 burst) 故障期间不会成倍放大负载
+ */
+public class TokenBudget {
+    private static final Logger logger = LoggerFactory.getLogger(TokenBudget.class);
+
+    /**
+     * 令牌以千分之一为单位计数
+     */
+    private static final long SCALE = 1000L;
+    /**
+     * 预算不足告警的最小间隔
+     */
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10L);
+
+    private final String name;
+    private final AtomicLong balance = new AtomicLong();
+    private volatile long depositPerCall;
+    private volatile long maxBalance;
+    private volatile long lastWarnNanos = System.nanoTime() - WARN_INTERVAL_NANOS;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param name 预算名称 用于日志
+     * @param ratio 追加请求占调用数的比例
+     * @param burst 可累积的令牌数
+     * @param startFull 初始令牌是否为满 否则为空 需由调用存入
+     */
+    public TokenBudget(String name, double ratio, int burst, boolean startFull) {
+        this.name = name;
+        setRatio(ratio);
+        setBurst(burst);
+        if (startFull) {
+            balance.set(maxBalance);
+        }
+    }
+
+    /**
+     * @param ratio [0, 1]
+     */
+    public void setRatio(double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException(name + " budget ratio must be in [0, 1]: " + ratio);
+        }
+        depositPerCall = Math.round(ratio * SCALE);
+    }
+
+    /**
+     * @param burst 大于等于0
+     */
+    public void setBurst(int burst) {
+        if (burst < 0) {
+            throw new IllegalArgumentException(name + " budget burst must not be negative: " + burst);
+        }
+        maxBalance = burst * SCALE;
+    }
+
+    /**
+     * 调用发出时存入令牌
+     */
+    public void deposit() {
+        calls.increment();
+        long deposit = depositPerCall;
+        long max = maxBalance;
+        for (;;) {
+            long current = balance.get();
+            if (current >= max) {
+                return;
+            }
+            if (balance.compareAndSet(current, Math.min(max, current + deposit))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 取出一个令牌
+     * @return 是否允许追加请求
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            long current = balance.get();
+            if (current < SCALE) {
+                rejected.increment();
+                warnExhausted();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                acquired.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 取出令牌后未能发送追加请求时归还 不超过上限
+     */
+    public void release() {
+        acquired.decrement();
+        long max = maxBalance;
+        for (;;) {
+            long current = balance.get();
+            if (current >= max) {
+                return;
+            }
+            if (balance.compareAndSet(current, Math.min(max, current + SCALE))) {
+                return;
+            }
+        }
+    }
+
+    private void warnExhausted() {
+        long now = System.nanoTime();
+        long last = lastWarnNanos;
+        if (now - last >= WARN_INTERVAL_NANOS) {
+            lastWarnNanos = now;
+            logger.warn("{} budget exhausted, calls: {}, acquired: {}, rejected: {}.", name, getCalls(), getAcquired(), getRejected());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 调用数
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * 已发送的追加请求数
+     */
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    /**
+     * 因预算不足未发送的追加请求数
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 当前可用令牌数
+     */
+    public double getBalance() {
+        return balance.get() / (double) SCALE;
+    }
+
+    /**
+     * 令牌上限
+     */
+    public double getBurst() {
+        return maxBalance / (double) SCALE;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBudget(name=" + name + ", calls=" + getCalls() + ", acquired=" + getAcquired()
+                + ", rejected=" + getRejected() + ", balance=" + getBalance() + "/" + getBurst() + ")";
+    }
+}
@@ -3,10 +3,8 @@ package com.polyu.rpc.client.connect;
 import com.polyu.rpc.registry.observation.Observer;
 import com.polyu.rpc.registry.ServiceDiscovery;
 import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.info.Endpoint;
 import com.polyu.rpc.info.RpcMetaData;
-import com.polyu.rpc.client.netty.handler.RpcClientHandler;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,7 +15,10 @@ import java.util.concurrent.*;
 public class ConnectUpdater implements Observer {
     private static final Logger logger = LoggerFactory.getLogger(ConnectUpdater.class);
 
-    private CopyOnWriteArraySet<RpcMetaData> rpcMetaDataSet = new CopyOnWriteArraySet<>();
+    /**
+     * 已知节点 以节点地址为键
+     */
+    private final Map<Endpoint, RpcMetaData> knownNodes = new ConcurrentHashMap<>();
 
     private volatile boolean isRunning = true;
     private ServiceDiscovery serviceDiscovery;
@@ -84,31 +85,36 @@ public class ConnectUpdater implements Observer {
     }
 
     /**
-     * 全量更新连接
+     * 全量更新连接 按节点地址对比
      * @param serviceList
      */
     private void updateConnectedServer(List<RpcMetaData> serviceList) {
         if (serviceList != null && serviceList.size() > 0) {
-            HashSet<RpcMetaData> serviceSet = new HashSet<>(serviceList.size());
-            serviceSet.addAll(serviceList);
+            Map<Endpoint, RpcMetaData> latestNodes = new HashMap<>(serviceList.size() * 2);
+            for (RpcMetaData rpcMetaData : serviceList) {
+                latestNodes.put(Endpoint.of(rpcMetaData), rpcMetaData);
+            }
 
-            // 加入 & 连接原来没有的
-            for (final RpcMetaData rpcMetaData : serviceSet) {
-                if (!rpcMetaDataSet.contains(rpcMetaData)) {
-                    Connector.getInstance().connectServerNode(rpcMetaData);
+            // 加入 & 连接原来没有的 地址已存在但信息变化(如权重)的按节点更新处理 不重建连接
+            for (Map.Entry<Endpoint, RpcMetaData> entry : latestNodes.entrySet()) {
+                RpcMetaData knownMetaData = knownNodes.get(entry.getKey());
+                if (knownMetaData == null) {
+                    Connector.getInstance().connectServerNode(entry.getValue());
+                } else if (!knownMetaData.equals(entry.getValue())) {
+                    updateConnectedServer(entry.getValue(), PathChildrenCacheEvent.Type.CHILD_UPDATED);
                 }
             }
 
             // 关闭 & 删除现在去处的
-            for (RpcMetaData rpcMetaData : rpcMetaDataSet) {
-                if (!serviceSet.contains(rpcMetaData)) {
-                    logger.info("Remove invalid service: {}.", rpcMetaData.toJson());
-                    Connector.getInstance().removeAndCloseHandler(rpcMetaData);
+            for (Map.Entry<Endpoint, RpcMetaData> entry : knownNodes.entrySet()) {
+                if (!latestNodes.containsKey(entry.getKey())) {
+                    logger.info("Remove invalid service: {}.", entry.getValue().toJson());
+                    Connector.getInstance().removeAndCloseHandler(entry.getValue());
                 }
             }
         } else {
             logger.error("No available service!");
-            for (RpcMetaData rpcMetaData : rpcMetaDataSet) {
+            for (RpcMetaData rpcMetaData : knownNodes.values()) {
                 Connector.getInstance().removeAndCloseHandler(rpcMetaData);
             }
         }
@@ -123,23 +129,26 @@ public class ConnectUpdater implements Observer {
         if (rpcMetaData == null) {
             return;
         }
-        if (type == PathChildrenCacheEvent.Type.CHILD_ADDED && !rpcMetaDataSet.contains(rpcMetaData)) {
-            Connector.getInstance().connectServerNode(rpcMetaData);
+        Endpoint endpoint = Endpoint.of(rpcMetaData);
+        if (type == PathChildrenCacheEvent.Type.CHILD_ADDED) {
+            if (!knownNodes.containsKey(endpoint)) {
+                Connector.getInstance().connectServerNode(rpcMetaData);
+            } else if (!rpcMetaData.equals(knownNodes.get(endpoint))) {
+                updateConnectedServer(rpcMetaData, PathChildrenCacheEvent.Type.CHILD_UPDATED);
+            }
         } else if (type == PathChildrenCacheEvent.Type.CHILD_UPDATED) {
-            // 对于主机ip & port没有改变的zk child更新，不进行重新连接。直接更新connectedServerNodes
-            RpcMetaDataChanger rpcMetaDataChanger = serverHostUnChange(rpcMetaData);
-            if (rpcMetaDataChanger.isNeedChange()) {
-                RpcMetaData oldProtocol = rpcMetaDataChanger.getOldMetaData();
-                Map<RpcMetaData, RpcClientHandler> connectedServerNodes = Connector.getInstance().getConnectedServerNodes();
-                RpcClientHandler rpcClientHandler = connectedServerNodes.get(oldProtocol);
-                connectedServerNodes.put(rpcMetaData, rpcClientHandler);
-                connectedServerNodes.remove(oldProtocol);
-
-                rpcMetaDataSet.add(rpcMetaData);
-                rpcMetaDataSet.remove(oldProtocol);
-
-                MetaDataKeeper.removeZkChild(oldProtocol);
-                MetaDataKeeper.addZkChild(rpcMetaData);
+            // 对于主机ip & port没有改变的zk child更新，不进行重新连接。直接更新节点信息
+            if (knownNodes.containsKey(endpoint)) {
+                Connector connector = Connector.getInstance();
+                ConnectionPool pool = connector.getConnectionPools().get(endpoint);
+                if (pool != null) {
+                    pool.setRpcMetaData(rpcMetaData);
+                    // 正在重连(无可用连接)的节点只更新信息 连接建立后再加入路由
+                    if (connector.getConnectedServerNodes().get(endpoint) == pool) {
+                        MetaDataKeeper.addZkChild(rpcMetaData, pool);
+                    }
+                }
+                knownNodes.put(endpoint, rpcMetaData);
                 return;
             }
             Connector.getInstance().removeAndCloseHandler(rpcMetaData);
@@ -152,41 +161,11 @@ public class ConnectUpdater implements Observer {
     }
 
     /**
-     * 判断zk节点变更时 host ip & port是否改变
-     * 返回是否需要改变判断 & 需要替换的protocol
-     * @return
+     * 已知节点 地址 -> 当前节点信息
+     * @return map
      */
-    private RpcMetaDataChanger serverHostUnChange(RpcMetaData rpcMetaData) {
-        for (RpcMetaData presentProtocol : rpcMetaDataSet) {
-            String presentHost = presentProtocol.getHost();
-            int presentPort = presentProtocol.getPort();
-            if (presentHost != null && !"".equals(presentHost)) {
-                if (presentHost.equals(rpcMetaData.getHost()) && presentPort == rpcMetaData.getPort()) {
-                    return new RpcMetaDataChanger(true, presentProtocol);
-                }
-            }
-        }
-        return new RpcMetaDataChanger(false);
-    }
-
-    @Data
-    @NoArgsConstructor
-    private static class RpcMetaDataChanger {
-        boolean needChange;
-        RpcMetaData oldMetaData;
-
-        RpcMetaDataChanger(boolean needChange, RpcMetaData oldMetaData) {
-            this.needChange = needChange;
-            this.oldMetaData = oldMetaData;
-        }
-
-        RpcMetaDataChanger(boolean needChange) {
-            this.needChange = needChange;
-        }
-    }
-
-    public CopyOnWriteArraySet<RpcMetaData> getRpcMetaDataSet() {
-        return rpcMetaDataSet;
+    public Map<Endpoint, RpcMetaData> getKnownNodes() {
+        return knownNodes;
     }
 
     /**
@@ -207,12 +186,12 @@ public class ConnectUpdater implements Observer {
 
     public void stop() {
         isRunning = false;
-        for (RpcMetaData rpcMetaData : rpcMetaDataSet) {
+        for (RpcMetaData rpcMetaData : knownNodes.values()) {
             Connector.getInstance().removeAndCloseHandler(rpcMetaData);
         }
         HandlerManager.signalAvailableHandler();
         Connector.getInstance().getConnectionThreadPool().shutdown();
-        Connector.getInstance().getEventLoopGroup().shutdownGracefully();
+        Connector.getInstance().shutdownEventLoopGroup();
     }
 
 }
@@ -0,0 +1,207 @@
+package com.polyu.rpc.client.connect;
+
+import com.polyu.rpc.client.netty.handler.RpcClientHandler;
+import com.polyu.rpc.info.Endpoint;
+import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.route.EndpointLoad;
+import com.polyu.rpc.route.EndpointStats;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单个 server 节点的连接池 固定槽位 每个槽位一个 channel
+ * 各 channel 建立时由 EventLoopGroup 轮询分配到不同的 IO 线程
+ * 槽位断开后单独重连 不影响其他槽位 连接失败时按退避间隔持续重连 直至连接池关闭
+ * 节点负载为各连接待响应数之和与延迟均值的平均
+ */
+public class ConnectionPool implements EndpointLoad {
+
+    /**
+     * 池内 channel 选择策略
+     */
+    public enum SelectStrategy {
+        /**
+         * 选择待响应请求最少的 channel
+         */
+        LEAST_PENDING,
+        /**
+         * 轮询
+         */
+        ROUND_ROBIN;
+
+        /**
+         * @param name leastPending / roundRobin (忽略大小写与下划线)
+         * @return strategy
+         */
+        public static SelectStrategy of(String name) {
+            String normalized = name == null ? "" : name.replace("_", "").toLowerCase();
+            switch (normalized) {
+                case "leastpending":
+                    return LEAST_PENDING;
+                case "roundrobin":
+                    return ROUND_ROBIN;
+                default:
+                    throw new IllegalArgumentException("Unknown channel select strategy: " + name);
+            }
+        }
+    }
+
+    private final Endpoint endpoint;
+    private volatile RpcMetaData rpcMetaData;
+    private final AtomicReferenceArray<RpcClientHandler> handlers;
+    private final SelectStrategy selectStrategy;
+    private final AtomicInteger next = new AtomicInteger();
+    /**
+     * 各槽位连续连接失败次数
+     */
+    private final AtomicIntegerArray reconnectAttempts;
+    private volatile boolean closed;
+
+    public ConnectionPool(RpcMetaData rpcMetaData, int size, SelectStrategy selectStrategy) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Connection pool size must be positive: " + size);
+        }
+        this.endpoint = Endpoint.of(rpcMetaData);
+        this.rpcMetaData = rpcMetaData;
+        this.handlers = new AtomicReferenceArray<>(size);
+        this.reconnectAttempts = new AtomicIntegerArray(size);
+        this.selectStrategy = selectStrategy;
+    }
+
+    /**
+     * 选择 channel
+     * @return handler 无可用连接时返回null
+     */
+    public RpcClientHandler select() {
+        int size = handlers.length();
+        if (size == 1) {
+            return handlers.get(0);
+        }
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        if (selectStrategy == SelectStrategy.ROUND_ROBIN) {
+            for (int i = 0; i < size; i++) {
+                RpcClientHandler handler = handlers.get((start + i) % size);
+                if (handler != null) {
+                    return handler;
+                }
+            }
+            return null;
+        }
+        RpcClientHandler selected = null;
+        int minPending = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            RpcClientHandler handler = handlers.get((start + i) % size);
+            if (handler == null) {
+                continue;
+            }
+            int pending = handler.getPendingCount();
+            if (pending < minPending) {
+                selected = handler;
+                minPending = pending;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public int getPending() {
+        int pending = 0;
+        for (int i = 0; i < handlers.length(); i++) {
+            RpcClientHandler handler = handlers.get(i);
+            if (handler != null) {
+                pending += handler.getPendingCount();
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public double getLatencyEwma() {
+        double sum = 0D;
+        int count = 0;
+        for (int i = 0; i < handlers.length(); i++) {
+            RpcClientHandler handler = handlers.get(i);
+            if (handler == null) {
+                continue;
+            }
+            double latency = handler.getEndpointStats().getLatencyEwma();
+            if (latency > 0D) {
+                sum += latency;
+                count++;
+            }
+        }
+        return count == 0 ? 0D : sum / count;
+    }
+
+    public int size() {
+        return handlers.length();
+    }
+
+    void set(int slot, RpcClientHandler handler) {
+        handlers.set(slot, handler);
+    }
+
+    /**
+     * 槽位仍为该 handler 时清空
+     * @return 是否清空
+     */
+    boolean remove(int slot, RpcClientHandler handler) {
+        return handlers.compareAndSet(slot, handler, null);
+    }
+
+    /**
+     * 是否没有已建立的连接
+     */
+    boolean isEmpty() {
+        for (int i = 0; i < handlers.length(); i++) {
+            if (handlers.get(i) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 槽位连接失败
+     * @return 该槽位连续失败次数
+     */
+    int nextReconnectAttempt(int slot) {
+        return reconnectAttempts.incrementAndGet(slot);
+    }
+
+    void resetReconnectAttempts(int slot) {
+        reconnectAttempts.set(slot, 0);
+    }
+
+    /**
+     * 关闭全部连接 之后建立的连接直接关闭
+     */
+    void close() {
+        closed = true;
+        for (int i = 0; i < handlers.length(); i++) {
+            RpcClientHandler handler = handlers.getAndSet(i, null);
+            if (handler != null) {
+                handler.setIntentionalClose(true);
+                handler.close();
+            }
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public RpcMetaData getRpcMetaData() {
+        return rpcMetaData;
+    }
+
+    void setRpcMetaData(RpcMetaData rpcMetaData) {
+        this.rpcMetaData = rpcMetaData;
+    }
+}
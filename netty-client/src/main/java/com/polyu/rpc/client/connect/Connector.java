@@ -2,37 +2,81 @@ package com.polyu.rpc.client.connect;
 
 import com.polyu.rpc.client.netty.RpcClientInitializer;
 import com.polyu.rpc.client.netty.handler.RpcClientHandler;
+import com.polyu.rpc.codec.CodecConfig;
+import com.polyu.rpc.info.Endpoint;
 import com.polyu.rpc.info.RpcMetaData;
 import com.polyu.rpc.info.RpcServiceInfo;
 import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.transport.Transport;
+import com.polyu.rpc.transport.TransportConfig;
 import com.polyu.rpc.util.ThreadPoolUtil;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.NettyRuntime;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Data
 public class Connector {
     private static final Logger logger = LoggerFactory.getLogger(Connector.class);
 
+    /**
+     * 槽位连接失败后的重连间隔 每次失败翻倍 直至上限
+     */
+    private static final long RECONNECT_BASE_DELAY_MILLIS = 100L;
+    private static final long RECONNECT_MAX_DELAY_MILLIS = 30000L;
+
     /**
      * client建立连线程池
      */
     private ThreadPoolExecutor connectionThreadPool = ThreadPoolUtil.makeThreadPool(4, 8, 600L);
 
-    private Map<RpcMetaData, RpcClientHandler> connectedServerNodes = new ConcurrentHashMap<>();
-    private EventLoopGroup eventLoopGroup = new NioEventLoopGroup(NettyRuntime.availableProcessors() / 2);
+    /**
+     * 已建立连接(至少一个 channel)的节点 以节点地址为键 仅这些节点可被路由
+     */
+    private Map<Endpoint, ConnectionPool> connectedServerNodes = new ConcurrentHashMap<>();
+    /**
+     * 未关闭的连接池(含尚无可用连接、正在重连的) 以节点地址为键
+     */
+    private Map<Endpoint, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
+    /**
+     * 每个节点的连接数 需在建立连接前设置
+     */
+    private int connectionsPerEndpoint = 1;
+    /**
+     * 节点内 channel 选择策略
+     */
+    private ConnectionPool.SelectStrategy channelSelectStrategy = ConnectionPool.SelectStrategy.LEAST_PENDING;
+    /**
+     * 编解码配置 需在建立连接前设置
+     */
+    private CodecConfig codecConfig = new CodecConfig();
+    /**
+     * 传输层配置 需在建立连接前设置
+     */
+    private TransportConfig transportConfig = new TransportConfig();
+    /**
+     * 首次建立连接时按传输层配置创建
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Transport transport;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile EventLoopGroup eventLoopGroup;
     private static volatile Connector connector;
 
     public static Connector getInstance() {
@@ -46,6 +90,35 @@ public class Connector {
         return connector;
     }
 
+    /**
+     * 获取 IO 线程组 未创建时按传输层配置创建
+     * @return eventLoopGroup
+     */
+    public EventLoopGroup getEventLoopGroup() {
+        if (eventLoopGroup == null) {
+            synchronized (this) {
+                if (eventLoopGroup == null) {
+                    transport = Transport.resolve(transportConfig.getTransport());
+                    int ioThreads = transportConfig.getIoThreads() > 0
+                            ? transportConfig.getIoThreads() : Math.max(1, NettyRuntime.availableProcessors() / 2);
+                    eventLoopGroup = transport.newEventLoopGroup(ioThreads, "bRPC-client-io");
+                    logger.info("Client transport: {}, io threads: {}.", transport, ioThreads);
+                }
+            }
+        }
+        return eventLoopGroup;
+    }
+
+    /**
+     * 关闭 IO 线程组
+     */
+    public void shutdownEventLoopGroup() {
+        EventLoopGroup group = eventLoopGroup;
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+    }
+
     /**
      * 连接peer host
      * @param rpcMetaData peer server 元信息
@@ -55,37 +128,85 @@ public class Connector {
             logger.info("No service on node, host: {}, port: {}.", rpcMetaData.getHost(), rpcMetaData.getPort());
             return;
         }
-        ConnectUpdater.getInstance().getRpcMetaDataSet().add(rpcMetaData);
+        ConnectUpdater.getInstance().getKnownNodes().put(Endpoint.of(rpcMetaData), rpcMetaData);
         logger.info("New service node, host: {}, port: {}.", rpcMetaData.getHost(), rpcMetaData.getPort());
         for (RpcServiceInfo serviceProtocol : rpcMetaData.getServiceInfoList()) {
             logger.info("New service info, name: {}, version: {}.", serviceProtocol.getServiceName(), serviceProtocol.getVersion());
         }
+        ConnectionPool pool = new ConnectionPool(rpcMetaData, connectionsPerEndpoint, channelSelectStrategy);
+        ConnectionPool previous = connectionPools.put(pool.getEndpoint(), pool);
+        if (previous != null) {
+            // 旧连接池移出路由 新连接池建立连接后才能发布
+            synchronized (previous) {
+                previous.close();
+                if (connectedServerNodes.remove(previous.getEndpoint(), previous)) {
+                    MetaDataKeeper.removeZkChild(previous.getRpcMetaData());
+                }
+            }
+        }
+        for (int slot = 0; slot < pool.size(); slot++) {
+            connect(pool, slot);
+        }
+    }
+
+    /**
+     * 槽位连接断开时重连该槽位
+     * @param pool 连接池
+     * @param slot 槽位
+     * @param handler 断开的连接
+     */
+    public void reconnect(ConnectionPool pool, int slot, RpcClientHandler handler) {
+        if (!pool.remove(slot, handler) || pool.isClosed()) {
+            return;
+        }
+        updateRoute(pool);
+        connect(pool, slot);
+    }
+
+    /**
+     * 建立连接池中一个槽位的连接
+     * 连接池有连接时节点才可被路由 连接失败则按退避间隔重连该槽位 直至连接池关闭
+     */
+    private void connect(final ConnectionPool pool, final int slot) {
+        if (pool.isClosed()) {
+            return;
+        }
+        final RpcMetaData rpcMetaData = pool.getRpcMetaData();
         final InetSocketAddress remotePeer = new InetSocketAddress(rpcMetaData.getHost(), rpcMetaData.getPort());
         connectionThreadPool.submit(new Runnable() {
             @Override
             public void run() {
+                EventLoopGroup group = getEventLoopGroup();
                 Bootstrap b = new Bootstrap();
-                b.group(eventLoopGroup)
-                        .channel(NioSocketChannel.class)
-                        .handler(new RpcClientInitializer());
+                b.group(group)
+                        .channel(transport.socketChannelClass())
+                        .handler(new RpcClientInitializer(codecConfig, transportConfig));
+                transport.configure(b, transportConfig);
 
                 ChannelFuture channelFuture = b.connect(remotePeer);
                 channelFuture.addListener(new ChannelFutureListener() {
                     @Override
                     public void operationComplete(final ChannelFuture channelFuture) {
                         if (channelFuture.isSuccess()) {
-                            logger.info("Successfully connect to remote server, remote peer = {}.", remotePeer);
+                            logger.info("Successfully connect to remote server, remote peer = {}, slot = {}.", remotePeer, slot);
                             RpcClientHandler rpcClientHandler = channelFuture.channel().pipeline().get(RpcClientHandler.class);
-                            connectedServerNodes.put(rpcMetaData, rpcClientHandler);
                             rpcClientHandler.setRpcMetaData(rpcMetaData);
+                            rpcClientHandler.setConnectionPool(pool, slot);
+                            if (pool.isClosed()) {
+                                rpcClientHandler.setIntentionalClose(true);
+                                rpcClientHandler.close();
+                                return;
+                            }
                             rpcClientHandler.setIntentionalClose(false);
-                            // 方便后续快速选择 在此记录
-                            MetaDataKeeper.addZkChild(rpcMetaData);
+                            pool.set(slot, rpcClientHandler);
+                            pool.resetReconnectAttempts(slot);
+                            updateRoute(pool);
                             HandlerManager.signalAvailableHandler();
                         } else {
-                            // 失败进行回收
-                            removeConnectRecord(rpcMetaData);
-                            logger.error("Can not connect to remote server, remote peer = {}.", remotePeer);
+                            logger.error("Can not connect to remote server, remote peer = {}, slot = {}.", remotePeer, slot);
+                            // 全部槽位均无连接时暂停路由 该槽位退避后重连
+                            updateRoute(pool);
+                            scheduleReconnect(pool, slot);
                         }
                     }
                 });
@@ -93,26 +214,79 @@ public class Connector {
         });
     }
 
+    /**
+     * 按退避间隔重连槽位 连接池关闭后不再重连
+     */
+    private void scheduleReconnect(final ConnectionPool pool, final int slot) {
+        if (pool.isClosed()) {
+            return;
+        }
+        int attempts = pool.nextReconnectAttempt(slot);
+        long delayMillis = RECONNECT_BASE_DELAY_MILLIS << Math.min(attempts - 1, 20);
+        delayMillis = Math.min(delayMillis, RECONNECT_MAX_DELAY_MILLIS);
+        logger.info("Reconnect to {}:{} slot {} after {} ms, attempt: {}.",
+                pool.getRpcMetaData().getHost(), pool.getRpcMetaData().getPort(), slot, delayMillis, attempts);
+        try {
+            getEventLoopGroup().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        connect(pool, slot);
+                    } catch (RejectedExecutionException e) {
+                        logger.warn("Reconnect rejected, client may be stopping, slot = {}.", slot);
+                    }
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Reconnect rejected, client may be stopping, slot = {}.", slot);
+        }
+    }
+
+    /**
+     * 按连接池当前是否有连接 加入或移出路由
+     */
+    private void updateRoute(ConnectionPool pool) {
+        synchronized (pool) {
+            if (pool.isClosed()) {
+                return;
+            }
+            if (pool.isEmpty()) {
+                if (connectedServerNodes.remove(pool.getEndpoint(), pool)) {
+                    MetaDataKeeper.removeZkChild(pool.getRpcMetaData());
+                    logger.info("No connection to node, stop routing, host: {}, port: {}.",
+                            pool.getRpcMetaData().getHost(), pool.getRpcMetaData().getPort());
+                }
+            } else if (connectedServerNodes.putIfAbsent(pool.getEndpoint(), pool) == null) {
+                // 方便后续快速选择 在此记录
+                MetaDataKeeper.addZkChild(pool.getRpcMetaData(), pool);
+            }
+        }
+    }
+
     /**
      * 关闭 & 移除 连接
      * @param rpcMetaData peer server 信息
      */
     public void removeAndCloseHandler(RpcMetaData rpcMetaData) {
-        RpcClientHandler handler = connectedServerNodes.get(rpcMetaData);
-        removeConnectRecord(rpcMetaData);
-        if (handler != null) {
-            handler.setIntentionalClose(true);
-            handler.close();
+        ConnectionPool pool = connectionPools.remove(Endpoint.of(rpcMetaData));
+        if (pool == null) {
+            removeConnectRecord(rpcMetaData);
+            return;
+        }
+        synchronized (pool) {
+            pool.close();
+            removeConnectRecord(rpcMetaData);
         }
     }
 
     /**
-     * 连接失败 移除连接记录
+     * 移除节点记录及路由
      * @param rpcMetaData server information
      */
     public void removeConnectRecord(RpcMetaData rpcMetaData) {
-        ConnectUpdater.getInstance().getRpcMetaDataSet().remove(rpcMetaData);
-        connectedServerNodes.remove(rpcMetaData);
+        Endpoint endpoint = Endpoint.of(rpcMetaData);
+        ConnectUpdater.getInstance().getKnownNodes().remove(endpoint);
+        connectedServerNodes.remove(endpoint);
         MetaDataKeeper.removeZkChild(rpcMetaData);
         logger.info("Remove one connection, host: {}, port: {}.", rpcMetaData.getHost(), rpcMetaData.getPort());
     }
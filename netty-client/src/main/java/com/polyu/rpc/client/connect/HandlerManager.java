@@ -1,7 +1,11 @@
 package com.polyu.rpc.client.connect;
 
 import com.polyu.rpc.client.netty.handler.RpcClientHandler;
-import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.info.Endpoint;
+import com.polyu.rpc.route.EndpointLoad;
+import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.route.RouteSnapshot;
 import com.polyu.rpc.route.RpcLoadBalance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,17 +24,34 @@ public class HandlerManager {
      * 当没有可用handler时 重试时间间隔
      */
     private static final long HANDLER_RETRY_TIME_INTERVAL = 5000L;
+    /**
+     * 选择其他节点时 负载均衡的最多尝试次数
+     */
+    private static final int OTHER_SELECT_ATTEMPTS = 3;
 
     /**
      * 选择handler 进行发送
+     * 负载均衡选择节点 节点连接池内按策略选择 channel
      * @param serviceKey 服务名 & 版本标识
      * @param loadBalance 负载均衡实例
      * @return handler
      * @throws Exception Client close
      */
     public static RpcClientHandler chooseHandler(String serviceKey, RpcLoadBalance loadBalance) throws Exception {
-        Map<RpcMetaData, RpcClientHandler> connectedServerNodes = Connector.getInstance().getConnectedServerNodes();
-        while (connectedServerNodes.values().size() <= 0) {
+        return chooseHandler(serviceKey, null, loadBalance);
+    }
+
+    /**
+     * 选择handler 进行发送 负载均衡可按请求参数路由
+     * @param serviceKey 服务名 & 版本标识
+     * @param request 请求
+     * @param loadBalance 负载均衡实例
+     * @return handler
+     * @throws Exception Client close
+     */
+    public static RpcClientHandler chooseHandler(String serviceKey, RpcRequest request, RpcLoadBalance loadBalance) throws Exception {
+        Map<Endpoint, ConnectionPool> connectedServerNodes = Connector.getInstance().getConnectedServerNodes();
+        while (connectedServerNodes.isEmpty()) {
             if (!ConnectUpdater.getInstance().isRunning()) {
                 throw new RuntimeException("Client is closed.");
             }
@@ -40,14 +61,78 @@ public class HandlerManager {
                 logger.error("Waiting for available service is interrupted!", e);
             }
         }
-        RpcMetaData rpcMetaData = loadBalance.route(serviceKey);
-        RpcClientHandler handler = connectedServerNodes.get(rpcMetaData);
+        // 一次 volatile 读取路由快照 节点与连接池按下标对应
+        RouteSnapshot snapshot = MetaDataKeeper.getSnapshot(serviceKey);
+        if (snapshot == null || snapshot.isEmpty()) {
+            throw new Exception("Can not find connection for service: " + serviceKey);
+        }
+        int index = loadBalance.select(snapshot, request);
+        RpcClientHandler handler = handlerAt(snapshot, index);
         if (handler == null) {
             throw new Exception("Can not get available connection.");
         }
         return handler;
     }
 
+    /**
+     * 为追加请求(对冲)选择未使用过的节点 不阻塞
+     * 先由负载均衡选择 多次选中已用节点时(如一致性哈希) 取快照中其后首个未用节点
+     * @param serviceKey 服务名 & 版本标识
+     * @param request 请求
+     * @param loadBalance 负载均衡实例
+     * @param usedEndpoints 已发送过该调用的节点
+     * @param usedCount usedEndpoints 中的有效个数
+     * @return handler 无可用的其他节点时返回null
+     */
+    public static RpcClientHandler chooseOtherHandler(String serviceKey, RpcRequest request, RpcLoadBalance loadBalance,
+                                                      Endpoint[] usedEndpoints, int usedCount) {
+        RouteSnapshot snapshot = MetaDataKeeper.getSnapshot(serviceKey);
+        if (snapshot == null || snapshot.size() <= usedCount) {
+            return null;
+        }
+        int index = -1;
+        try {
+            for (int i = 0; i < OTHER_SELECT_ATTEMPTS; i++) {
+                index = loadBalance.select(snapshot, request);
+                if (!contains(usedEndpoints, usedCount, snapshot.getEndpoint(index))) {
+                    RpcClientHandler handler = handlerAt(snapshot, index);
+                    if (handler != null) {
+                        return handler;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Load balance failed when choosing another endpoint for {}: {}.", serviceKey, e.getMessage());
+        }
+        int size = snapshot.size();
+        for (int i = 1; i <= size; i++) {
+            int candidate = (Math.max(index, 0) + i) % size;
+            if (!contains(usedEndpoints, usedCount, snapshot.getEndpoint(candidate))) {
+                RpcClientHandler handler = handlerAt(snapshot, candidate);
+                if (handler != null) {
+                    return handler;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static RpcClientHandler handlerAt(RouteSnapshot snapshot, int index) {
+        EndpointLoad load = snapshot.getLoad(index);
+        ConnectionPool pool = load instanceof ConnectionPool
+                ? (ConnectionPool) load : Connector.getInstance().getConnectedServerNodes().get(snapshot.getEndpoint(index));
+        return pool == null ? null : pool.select();
+    }
+
+    private static boolean contains(Endpoint[] endpoints, int count, Endpoint endpoint) {
+        for (int i = 0; i < count; i++) {
+            if (endpoints[i] == endpoint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 唤醒被阻塞的线程
      */
@@ -0,0 +1,229 @@
+package com.polyu.rpc.client.failover;
+
+import com.polyu.rpc.client.connect.ConnectionPool;
+import com.polyu.rpc.client.connect.Connector;
+import com.polyu.rpc.client.connect.HandlerManager;
+import com.polyu.rpc.client.hedge.HedgeDelay;
+import com.polyu.rpc.client.hedge.HedgedCall;
+import com.polyu.rpc.client.invoke.InvokeProxy;
+import com.polyu.rpc.client.netty.handler.RpcClientHandler;
+import com.polyu.rpc.client.result.future.RpcFuture;
+import com.polyu.rpc.client.result.future.RpcTimeoutException;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.codec.RpcResponse;
+import com.polyu.rpc.info.Endpoint;
+import com.polyu.rpc.route.RpcLoadBalance;
+import io.netty.handler.codec.EncoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次可重试调用
+ * 选不到可用连接或请求写出失败时 在重试预算内退避后经负载均衡向未用过的节点重发(新的请求id)
+ * 均已用过时允许重用节点(连接池内换用其他 channel) 所有请求共用同一截止时间
+ * 超时、取消、请求编码失败及服务端响应(包括错误响应)不重试 开启对冲时每次尝试为一次对冲调用
+ */
+public class FailoverCall {
+    private static final Logger logger = LoggerFactory.getLogger(FailoverCall.class);
+
+    /**
+     * 剩余时间不足时不再重试
+     */
+    private static final long MIN_REMAINING_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final String serviceKey;
+    private final RpcRequest request;
+    private final RpcLoadBalance loadBalance;
+    private final FailoverPolicy policy;
+    /**
+     * 为null时不对冲
+     */
+    private final HedgeDelay hedgeDelay;
+    private final long deadlineNanos;
+    /**
+     * 调用结果 不登记在 PendingRpcHolder 由各次尝试的结果完成
+     */
+    private final RpcFuture result;
+
+    /**
+     * 已发送过的节点及尝试次数(包括未能发送的) 由 this 锁保护
+     */
+    private final Endpoint[] endpoints;
+    private int usedCount;
+    private int attempts;
+    private volatile RpcFuture current;
+
+    public FailoverCall(String serviceKey, RpcRequest request, RpcLoadBalance loadBalance, long timeoutLength,
+                        FailoverPolicy policy, HedgeDelay hedgeDelay) {
+        this.serviceKey = serviceKey;
+        this.request = request;
+        this.loadBalance = loadBalance;
+        this.policy = policy;
+        this.hedgeDelay = hedgeDelay;
+        this.result = new RpcFuture(request, timeoutLength);
+        this.deadlineNanos = result.getStartNanos() + TimeUnit.MILLISECONDS.toNanos(timeoutLength);
+        this.endpoints = new Endpoint[policy.getRetries() + 1];
+    }
+
+    /**
+     * 在调用线程选择连接并发送首个请求 无可用节点时按负载均衡等待
+     * @return 调用结果
+     */
+    public RpcFuture start() {
+        RetryBudget.deposit();
+        result.addListener(this::onCallComplete);
+        RpcClientHandler handler;
+        try {
+            handler = HandlerManager.chooseHandler(serviceKey, request, loadBalance);
+        } catch (Exception e) {
+            attemptFailed(e);
+            return result;
+        }
+        send(handler, request);
+        return result;
+    }
+
+    private void send(RpcClientHandler handler, RpcRequest attemptRequest) {
+        long remaining = deadlineNanos - System.nanoTime();
+        ConnectionPool pool = handler.getConnectionPool();
+        synchronized (this) {
+            attempts++;
+            if (pool != null) {
+                endpoints[usedCount++] = pool.getEndpoint();
+            }
+        }
+        long timeoutMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(remaining), 1L);
+        RpcFuture attempt;
+        try {
+            attempt = hedgeDelay == null ? handler.sendRequest(attemptRequest, timeoutMillis)
+                    : new HedgedCall(serviceKey, attemptRequest, loadBalance, timeoutMillis, hedgeDelay).start(handler);
+        } catch (Exception e) {
+            attemptFailed(e);
+            return;
+        }
+        current = attempt;
+        attempt.addListener(() -> onAttemptComplete(attempt));
+        if (result.isDone()) {
+            // 调用已结束(并发取消) 取消刚发出的请求
+            cancel(attempt);
+        }
+    }
+
+    private void onAttemptComplete(RpcFuture attempt) {
+        RpcResponse response = attempt.getResponse();
+        if (response != null) {
+            result.done(response);
+            if (result.getResponse() == response && attemptCount() > 1) {
+                RetryBudget.recovered();
+            }
+            return;
+        }
+        if (result.isDone()) {
+            return;
+        }
+        Throwable cause = attempt.getFailure();
+        if (cause instanceof RpcTimeoutException) {
+            result.setTimeoutException();
+        } else if (cause instanceof CancellationException) {
+            result.cancel(false);
+        } else {
+            attemptFailed(cause);
+        }
+    }
+
+    /**
+     * 连接不可用或写出失败 在次数、剩余时间及预算允许时退避后重试 否则以该失败结束调用
+     */
+    private void attemptFailed(Throwable cause) {
+        if (result.isDone()) {
+            return;
+        }
+        if (cause instanceof EncoderException) {
+            // 请求本身无法编码 换节点重试同样失败
+            giveUp(cause);
+            return;
+        }
+        int retry;
+        synchronized (this) {
+            // 首次尝试在选择连接时失败的 同样计为一次尝试
+            attempts = Math.max(attempts, 1);
+            retry = attempts;
+        }
+        long backoff = retry > policy.getRetries() ? -1L : policy.backoffNanos(retry);
+        if (backoff < 0 || deadlineNanos - System.nanoTime() - backoff < MIN_REMAINING_NANOS) {
+            giveUp(cause);
+            return;
+        }
+        if (!RetryBudget.tryAcquire()) {
+            logger.debug("Retry budget exhausted, request {} is not retried.", request.getRequestId());
+            giveUp(cause);
+            return;
+        }
+        logger.info("Request {} for {} failed: {}, retry {} after {}us.", request.getRequestId(), serviceKey,
+                String.valueOf(cause), retry, TimeUnit.NANOSECONDS.toMicros(backoff));
+        try {
+            Connector.getInstance().getEventLoopGroup().schedule(() -> retry(cause), backoff, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            RetryBudget.release();
+            giveUp(cause);
+        }
+    }
+
+    private void retry(Throwable lastCause) {
+        if (result.isDone()) {
+            RetryBudget.release();
+            return;
+        }
+        Endpoint[] used;
+        int count;
+        synchronized (this) {
+            used = endpoints;
+            count = usedCount;
+        }
+        RpcClientHandler handler = HandlerManager.chooseOtherHandler(serviceKey, request, loadBalance, used, count);
+        if (handler == null && count > 0) {
+            handler = HandlerManager.chooseOtherHandler(serviceKey, request, loadBalance, used, 0);
+        }
+        if (handler == null) {
+            RetryBudget.release();
+            giveUp(lastCause);
+            return;
+        }
+        send(handler, request.copy(InvokeProxy.nextRequestId()));
+    }
+
+    private void giveUp(Throwable cause) {
+        if (attemptCount() > 1) {
+            RetryBudget.exhausted();
+        }
+        result.fail(cause);
+    }
+
+    /**
+     * 调用结束(如被取消) 取消进行中的请求
+     */
+    private void onCallComplete() {
+        RpcFuture attempt = this.current;
+        if (attempt != null && !attempt.isDone()) {
+            cancel(attempt);
+        }
+    }
+
+    /**
+     * 取消时移出待响应表 对冲调用同时取消其各请求
+     */
+    private static void cancel(RpcFuture attempt) {
+        attempt.cancel(false);
+    }
+
+    private synchronized int attemptCount() {
+        return attempts;
+    }
+
+    public RpcFuture getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,59 @@
+package com.polyu.rpc.client.failover;
+
+import lombok.Getter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 失败重试策略 连接不可用或请求写出失败时 退避后向其他节点重发
+ * 超时及服务端返回的错误不重试 仅用于幂等方法
+ */
+@Getter
+public class FailoverPolicy {
+
+    /**
+     * 单次退避上限
+     */
+    private static final long MAX_BACKOFF_MILLIS = 1000L;
+
+    private final int retries;
+    private final long backoffMillis;
+
+    private FailoverPolicy(int retries, long backoffMillis) {
+        this.retries = retries;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * 创建策略
+     * @param retries 最多重试次数 小于等于0表示不重试
+     * @param backoffMillis 首次重试的退避时间(毫秒)
+     * @return 策略 不重试时返回 null
+     */
+    public static FailoverPolicy of(int retries, long backoffMillis) {
+        if (retries <= 0) {
+            return null;
+        }
+        return new FailoverPolicy(retries, Math.max(backoffMillis, 0L));
+    }
+
+    /**
+     * 第 retry 次重试前的退避时间 指数增长 在 [一半, 全部] 间随机 避免多个客户端同时重试
+     * @param retry 从 1 开始
+     * @return 纳秒
+     */
+    public long backoffNanos(int retry) {
+        if (backoffMillis == 0) {
+            return 0L;
+        }
+        long millis = Math.min(backoffMillis << Math.min(retry - 1, 20), MAX_BACKOFF_MILLIS);
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return nanos / 2 + ThreadLocalRandom.current().nextLong(nanos / 2 + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "FailoverPolicy(retries=" + retries + ", backoffMillis=" + backoffMillis + ")";
+    }
+}
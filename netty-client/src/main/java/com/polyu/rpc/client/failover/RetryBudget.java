@@ -0,0 +1,104 @@
+package com.polyu.rpc.client.failover;
+
+import com.polyu.rpc.client.budget.TokenBudget;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全局重试预算及重试统计
+ * 每次开启重试的调用存入 ratio 个令牌(上限 burst) 每次重试取出 1 个 令牌不足时不再重试
+ * 重试请求数因此不超过调用数的 ratio 倍(加 burst) 节点大面积故障时不会放大负载
+ * 可用令牌接近 0 或 rejected 增长说明已接近上限
+ */
+public class RetryBudget {
+
+    /**
+     * 初始为满 启动后最早的几次失败也可重试
+     */
+    private static final TokenBudget BUDGET = new TokenBudget("Retry", 0.1, 10, true);
+
+    private static final LongAdder recovered = new LongAdder();
+    private static final LongAdder exhausted = new LongAdder();
+
+    /**
+     * 设置重试请求占调用数的比例 默认 0.1
+     * @param ratio [0, 1]
+     */
+    public static void setRatio(double ratio) {
+        BUDGET.setRatio(ratio);
+    }
+
+    /**
+     * 设置可累积的令牌数 默认 10
+     * @param burst 大于等于0
+     */
+    public static void setBurst(int burst) {
+        BUDGET.setBurst(burst);
+    }
+
+    static void deposit() {
+        BUDGET.deposit();
+    }
+
+    static boolean tryAcquire() {
+        return BUDGET.tryAcquire();
+    }
+
+    static void release() {
+        BUDGET.release();
+    }
+
+    static void recovered() {
+        recovered.increment();
+    }
+
+    static void exhausted() {
+        exhausted.increment();
+    }
+
+    /**
+     * 开启重试的调用数
+     */
+    public static long getCalls() {
+        return BUDGET.getCalls();
+    }
+
+    /**
+     * 已发送的重试请求数
+     */
+    public static long getRetries() {
+        return BUDGET.getAcquired();
+    }
+
+    /**
+     * 因预算不足未重试的次数
+     */
+    public static long getRejected() {
+        return BUDGET.getRejected();
+    }
+
+    /**
+     * 重试后成功的调用数
+     */
+    public static long getRecovered() {
+        return recovered.sum();
+    }
+
+    /**
+     * 重试次数用尽(或无其他节点/时间不足)仍失败的调用数
+     */
+    public static long getExhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * 当前可用令牌数
+     */
+    public static double getBalance() {
+        return BUDGET.getBalance();
+    }
+
+    public static TokenBudget getBudget() {
+        return BUDGET;
+    }
+}
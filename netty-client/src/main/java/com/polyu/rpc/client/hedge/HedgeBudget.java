@@ -0,0 +1,91 @@
+package com.polyu.rpc.client.hedge;
+
+import com.polyu.rpc.client.budget.TokenBudget;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全局对冲预算
+ * 每次开启对冲的调用存入 ratio 个令牌(上限 burst) 每个对冲请求取出 1 个 令牌不足时不对冲
+ * 对冲请求数因此不超过调用数的 ratio 倍(加 burst) 故障期间大量请求变慢时不会成倍放大负载
+ */
+public class HedgeBudget {
+
+    /**
+     * 初始为空 令牌全部由调用存入
+     */
+    private static final TokenBudget BUDGET = new TokenBudget("Hedge", 0.1, 100, false);
+
+    private static final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * 设置对冲请求占调用数的比例 默认 0.1
+     * @param ratio [0, 1]
+     */
+    public static void setRatio(double ratio) {
+        BUDGET.setRatio(ratio);
+    }
+
+    /**
+     * 设置可累积的令牌数 默认 100
+     * @param burst 大于等于0
+     */
+    public static void setBurst(int burst) {
+        BUDGET.setBurst(burst);
+    }
+
+    static void deposit() {
+        BUDGET.deposit();
+    }
+
+    static boolean tryAcquire() {
+        return BUDGET.tryAcquire();
+    }
+
+    static void release() {
+        BUDGET.release();
+    }
+
+    static void hedgeWon() {
+        hedgeWins.increment();
+    }
+
+    /**
+     * 开启对冲的调用数
+     */
+    public static long getCalls() {
+        return BUDGET.getCalls();
+    }
+
+    /**
+     * 已发送的对冲请求数
+     */
+    public static long getHedges() {
+        return BUDGET.getAcquired();
+    }
+
+    /**
+     * 因预算不足未发送的对冲请求数
+     */
+    public static long getRejected() {
+        return BUDGET.getRejected();
+    }
+
+    /**
+     * 对冲请求先于原请求响应的次数
+     */
+    public static long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * 当前可用令牌数
+     */
+    public static double getBalance() {
+        return BUDGET.getBalance();
+    }
+
+    public static TokenBudget getBudget() {
+        return BUDGET;
+    }
+}
@@ -0,0 +1,47 @@
+package com.polyu.rpc.client.hedge;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个方法的对冲延迟 记录该方法各次调用生效请求的延迟 按策略的分位数给出对冲延迟
+ */
+public class HedgeDelay {
+
+    private final HedgePolicy policy;
+    /**
+     * 固定延迟时为 null
+     */
+    private final LatencyHistogram histogram;
+
+    public HedgeDelay(HedgePolicy policy) {
+        this.policy = policy;
+        this.histogram = policy.isAdaptive() ? new LatencyHistogram(policy.getPercentile()) : null;
+    }
+
+    /**
+     * 当前对冲延迟
+     * @return 纳秒 统计不足且未设置初始延迟时返回 -1 表示本次不对冲
+     */
+    public long delayNanos() {
+        long minMicros = TimeUnit.MILLISECONDS.toMicros(policy.getHedgeAfterMillis());
+        long observedMicros = histogram == null ? -1L : histogram.getValueMicros();
+        if (observedMicros < 0) {
+            return minMicros > 0 ? TimeUnit.MICROSECONDS.toNanos(minMicros) : -1L;
+        }
+        return TimeUnit.MICROSECONDS.toNanos(Math.max(observedMicros, minMicros));
+    }
+
+    /**
+     * 记录生效请求的延迟
+     * @param latencyNanos 该请求自发出至响应的延迟
+     */
+    public void record(long latencyNanos) {
+        if (histogram != null) {
+            histogram.record(latencyNanos);
+        }
+    }
+
+    public HedgePolicy getPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,64 @@
+package com.polyu.rpc.client.hedge;
+
+import lombok.Getter;
+
+/**
+ * 对冲请求策略 由 @BRpcConsumer 指定 同一代理的所有方法共享 方法上的 @Hedge 优先
+ * 请求发出后超过对冲延迟仍未响应时 向其他节点发送相同请求 首个响应生效
+ * 对冲延迟按方法统计的延迟分位数自适应 hedgeAfterMillis 为统计不足时的初始延迟及下限
+ */
+@Getter
+public class HedgePolicy {
+
+    /**
+     * 每次调用最多追加的请求数
+     */
+    private final int maxHedges;
+    /**
+     * 初始及最小对冲延迟(毫秒) 0 表示仅按分位数
+     */
+    private final long hedgeAfterMillis;
+    /**
+     * 对冲延迟取该方法延迟的分位数 (0, 100) 0 表示固定为 hedgeAfterMillis
+     */
+    private final double percentile;
+
+    private HedgePolicy(int maxHedges, long hedgeAfterMillis, double percentile) {
+        this.maxHedges = maxHedges;
+        this.hedgeAfterMillis = hedgeAfterMillis;
+        this.percentile = percentile;
+    }
+
+    /**
+     * 创建策略
+     * @param maxHedges 最多追加的请求数 小于等于0表示不对冲
+     * @param hedgeAfterMillis 初始及最小对冲延迟(毫秒)
+     * @param percentile 延迟分位数 0 表示固定延迟
+     * @return 策略 不对冲时返回 null
+     */
+    public static HedgePolicy of(int maxHedges, long hedgeAfterMillis, double percentile) {
+        if (maxHedges <= 0) {
+            return null;
+        }
+        if (percentile < 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Hedge percentile must be in [0, 100): " + percentile);
+        }
+        if (percentile == 0 && hedgeAfterMillis <= 0) {
+            throw new IllegalArgumentException("Fixed hedge delay requires hedgeAfterMillis > 0.");
+        }
+        return new HedgePolicy(maxHedges, Math.max(hedgeAfterMillis, 0L), percentile);
+    }
+
+    /**
+     * 是否按分位数自适应
+     */
+    public boolean isAdaptive() {
+        return percentile > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgePolicy(maxHedges=" + maxHedges + ", hedgeAfterMillis=" + hedgeAfterMillis
+                + ", percentile=" + percentile + ")";
+    }
+}
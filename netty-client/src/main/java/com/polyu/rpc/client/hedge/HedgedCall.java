@@ -0,0 +1,253 @@
+package com.polyu.rpc.client.hedge;
+
+import com.polyu.rpc.client.connect.ConnectionPool;
+import com.polyu.rpc.client.connect.HandlerManager;
+import com.polyu.rpc.client.invoke.InvokeProxy;
+import com.polyu.rpc.client.netty.handler.RpcClientHandler;
+import com.polyu.rpc.client.result.PendingRpcHolder;
+import com.polyu.rpc.client.result.future.RpcFuture;
+import com.polyu.rpc.client.result.future.RpcTimeoutException;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.codec.RpcResponse;
+import com.polyu.rpc.info.Endpoint;
+import com.polyu.rpc.route.RpcLoadBalance;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次对冲调用
+ * 首个请求发出后超过对冲延迟仍未响应时 经负载均衡向其他节点发送相同请求(新的请求id) 最多追加 maxHedges 个
+ * 首个响应生效 其余请求从 PendingRpcHolder 移除并取消 其迟到的响应被忽略
+ * 全部请求均失败或超时时以最后一个失败结束 所有请求共用同一截止时间
+ * 对冲任务在首个请求所属连接的 IO 线程上调度
+ */
+public class HedgedCall {
+    private static final Logger logger = LoggerFactory.getLogger(HedgedCall.class);
+
+    /**
+     * 剩余时间不足时不再追加请求
+     */
+    private static final long MIN_REMAINING_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final String serviceKey;
+    private final RpcRequest request;
+    private final RpcLoadBalance loadBalance;
+    private final HedgeDelay hedgeDelay;
+    private final long deadlineNanos;
+    /**
+     * 调用结果 不登记在 PendingRpcHolder 由各请求的结果完成
+     */
+    private final RpcFuture result;
+
+    private final RpcFuture[] attempts;
+    private final Endpoint[] endpoints;
+    private final long[] sendNanos;
+    /**
+     * 已发送与已失败的请求数、是否有待执行的对冲任务及最近的失败 由 this 锁保护
+     */
+    private int sent;
+    private int failed;
+    private boolean hedgePending;
+    private Throwable lastFailure;
+    private volatile ScheduledFuture<?> hedgeTask;
+
+    public HedgedCall(String serviceKey, RpcRequest request, RpcLoadBalance loadBalance, long timeoutLength, HedgeDelay hedgeDelay) {
+        this.serviceKey = serviceKey;
+        this.request = request;
+        this.loadBalance = loadBalance;
+        this.hedgeDelay = hedgeDelay;
+        this.result = new RpcFuture(request, timeoutLength);
+        this.deadlineNanos = result.getStartNanos() + TimeUnit.MILLISECONDS.toNanos(timeoutLength);
+        int maxAttempts = hedgeDelay.getPolicy().getMaxHedges() + 1;
+        this.attempts = new RpcFuture[maxAttempts];
+        this.endpoints = new Endpoint[maxAttempts];
+        this.sendNanos = new long[maxAttempts];
+    }
+
+    /**
+     * 发送首个请求并调度对冲
+     * @param handler 负载均衡选出的连接
+     * @return 调用结果
+     */
+    public RpcFuture start(RpcClientHandler handler) {
+        HedgeBudget.deposit();
+        result.addListener(this::onCallComplete);
+        send(handler, request, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - result.getStartNanos()));
+        scheduleHedge(handler);
+        return result;
+    }
+
+    private void send(RpcClientHandler handler, RpcRequest attemptRequest, long timeoutMillis) {
+        long startNanos = System.nanoTime();
+        RpcFuture attempt = handler.sendRequest(attemptRequest, timeoutMillis);
+        ConnectionPool pool = handler.getConnectionPool();
+        int index;
+        synchronized (this) {
+            index = sent++;
+            attempts[index] = attempt;
+            endpoints[index] = pool == null ? null : pool.getEndpoint();
+            sendNanos[index] = startNanos;
+        }
+        final int attemptIndex = index;
+        attempt.addListener(() -> onAttemptComplete(attemptIndex, attempt));
+        if (result.isDone()) {
+            // 调用已结束(并发完成) 取消刚发出的请求
+            cancel(attempt);
+        }
+    }
+
+    private void scheduleHedge(RpcClientHandler handler) {
+        if (result.isDone() || sent >= attempts.length) {
+            return;
+        }
+        long delay = hedgeDelay.delayNanos();
+        if (delay < 0) {
+            return;
+        }
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining - delay < MIN_REMAINING_NANOS) {
+            return;
+        }
+        synchronized (this) {
+            hedgePending = true;
+        }
+        try {
+            hedgeTask = handler.eventLoop().schedule(this::hedge, delay, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            logger.warn("Schedule hedged request for {} failed: {}.", request.getRequestId(), e.getMessage());
+            hedgeAbandoned();
+            return;
+        }
+        if (result.isDone()) {
+            hedgeTask.cancel(false);
+        }
+    }
+
+    private void hedge() {
+        if (result.isDone()) {
+            return;
+        }
+        long remaining = deadlineNanos - System.nanoTime();
+        int usedCount;
+        synchronized (this) {
+            usedCount = sent;
+        }
+        RpcClientHandler handler = remaining < MIN_REMAINING_NANOS ? null
+                : HandlerManager.chooseOtherHandler(serviceKey, request, loadBalance, endpoints, usedCount);
+        if (handler == null) {
+            logger.debug("No other endpoint for hedged request {}.", request.getRequestId());
+            hedgeAbandoned();
+            return;
+        }
+        if (!HedgeBudget.tryAcquire()) {
+            logger.debug("Hedge budget exhausted, request {} is not hedged.", request.getRequestId());
+            hedgeAbandoned();
+            return;
+        }
+        try {
+            send(handler, request.copy(InvokeProxy.nextRequestId()), Math.max(TimeUnit.NANOSECONDS.toMillis(remaining), 1L));
+        } catch (Exception e) {
+            HedgeBudget.release();
+            logger.warn("Send hedged request for {} failed: {}.", request.getRequestId(), e.getMessage());
+            hedgeAbandoned();
+            return;
+        }
+        synchronized (this) {
+            hedgePending = false;
+        }
+        scheduleHedge(handler);
+        // 发送期间已发出的请求可能均已失败
+        synchronized (this) {
+            if (hedgePending || failed < sent) {
+                return;
+            }
+        }
+        failCall();
+    }
+
+    /**
+     * 不再追加请求 已发出的请求均已失败时结束调用
+     */
+    private void hedgeAbandoned() {
+        synchronized (this) {
+            hedgePending = false;
+            if (failed < sent) {
+                return;
+            }
+        }
+        failCall();
+    }
+
+    /**
+     * 请求完成 首个响应完成调用 全部请求失败时以最后的失败完成调用
+     */
+    private void onAttemptComplete(int index, RpcFuture attempt) {
+        RpcResponse response = attempt.getResponse();
+        if (response != null) {
+            result.done(response);
+            if (result.getResponse() == response) {
+                hedgeDelay.record(System.nanoTime() - sendNanos[index]);
+                if (index > 0) {
+                    HedgeBudget.hedgeWon();
+                }
+            }
+            return;
+        }
+        if (result.isDone()) {
+            return;
+        }
+        synchronized (this) {
+            failed++;
+            lastFailure = attempt.getFailure();
+            // 仍有进行中的请求 或还可能追加请求时继续等待
+            if (failed < sent || hedgePending) {
+                return;
+            }
+        }
+        failCall();
+    }
+
+    private void failCall() {
+        Throwable cause;
+        synchronized (this) {
+            cause = lastFailure;
+        }
+        if (cause instanceof RpcTimeoutException) {
+            result.setTimeoutException();
+        } else if (cause != null) {
+            result.fail(cause);
+        }
+    }
+
+    /**
+     * 调用结束(响应/失败/取消) 取消未完成的请求及对冲任务
+     */
+    private void onCallComplete() {
+        ScheduledFuture<?> task = this.hedgeTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+        RpcFuture[] outstanding;
+        synchronized (this) {
+            outstanding = attempts.clone();
+        }
+        for (RpcFuture attempt : outstanding) {
+            if (attempt != null && !attempt.isDone()) {
+                cancel(attempt);
+            }
+        }
+    }
+
+    private static void cancel(RpcFuture attempt) {
+        if (PendingRpcHolder.remove(attempt.getRequest().getRequestId()) != null) {
+            attempt.cancel(false);
+        }
+    }
+
+    public RpcFuture getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package com.polyu.rpc.client.hedge;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动窗口延迟直方图 用于估计延迟分位数
+ * 按微秒对数分桶 每个 2 的幂区间再分 4 段(相对误差约 25%)
+ * 保留当前与上一窗口 窗口到期时轮转 分位数每记录一定次数或轮转时重算 读取无开销
+ */
+public class LatencyHistogram {
+
+    /**
+     * 覆盖 0 ~ 2^31 微秒
+     */
+    static final int BUCKETS = 124;
+    /**
+     * 样本数不足时不给出分位数
+     */
+    private static final int MIN_SAMPLES = 32;
+    private static final int RECOMPUTE_INTERVAL = 64;
+    private static final long DEFAULT_WINDOW_MILLIS = 10000L;
+
+    private final double percentile;
+    private final long windowNanos;
+    private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+    private volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+    private volatile long windowStart = System.nanoTime();
+    private final AtomicInteger sinceRecompute = new AtomicInteger();
+    /**
+     * 最近一次计算的分位数(微秒) -1 表示样本不足
+     */
+    private volatile long valueMicros = -1L;
+
+    public LatencyHistogram(double percentile) {
+        this(percentile, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param percentile 分位数 (0, 100)
+     * @param windowMillis 窗口长度(毫秒) 统计覆盖最近 1 ~ 2 个窗口
+     */
+    public LatencyHistogram(double percentile, long windowMillis) {
+        this.percentile = percentile;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    /**
+     * 记录一次延迟
+     * @param latencyNanos 延迟(纳秒)
+     */
+    public void record(long latencyNanos) {
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos) {
+            rotate(now);
+        }
+        current.incrementAndGet(indexOf(TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (sinceRecompute.incrementAndGet() >= RECOMPUTE_INTERVAL) {
+            sinceRecompute.set(0);
+            recompute();
+        }
+    }
+
+    /**
+     * @return 分位数(微秒) 样本不足时返回 -1
+     */
+    public long getValueMicros() {
+        return valueMicros;
+    }
+
+    private synchronized void rotate(long now) {
+        if (now - windowStart < windowNanos) {
+            return;
+        }
+        previous = current;
+        current = new AtomicLongArray(BUCKETS);
+        windowStart = now;
+        recompute();
+    }
+
+    private void recompute() {
+        AtomicLongArray currentWindow = this.current;
+        AtomicLongArray previousWindow = this.previous;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = currentWindow.get(i) + previousWindow.get(i);
+            total += counts[i];
+        }
+        if (total < MIN_SAMPLES) {
+            valueMicros = -1L;
+            return;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                valueMicros = upperBoundOf(i);
+                return;
+            }
+        }
+        valueMicros = upperBoundOf(BUCKETS - 1);
+    }
+
+    /**
+     * 0 ~ 3 各占一桶 之后每个 [2^e, 2^(e+1)) 分为 4 桶
+     */
+    static int indexOf(long micros) {
+        if (micros < 4) {
+            return (int) Math.max(micros, 0L);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int index = exponent * 4 + (int) ((micros >>> (exponent - 2)) & 3) - 4;
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    /**
+     * 桶内最大值
+     */
+    static long upperBoundOf(int index) {
+        if (index < 4) {
+            return index;
+        }
+        int exponent = index / 4 + 1;
+        long width = 1L << (exponent - 2);
+        return (4 + index % 4) * width + width - 1;
+    }
+}
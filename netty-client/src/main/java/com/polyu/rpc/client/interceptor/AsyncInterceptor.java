@@ -0,0 +1,18 @@
+package com.polyu.rpc.client.interceptor;
+
+import com.polyu.rpc.client.invoke.Invocation;
+
+/**
+ * 关注调用完成的拦截器
+ * 同步调用在拦截链返回后回调 异步调用在 CompletableFuture 完成时回调
+ */
+public interface AsyncInterceptor extends Interceptor {
+
+    /**
+     * 调用完成
+     * @param invocation invoke 实例
+     * @param result 调用结果 失败时为null
+     * @param cause 失败原因 成功时为null
+     */
+    void onComplete(Invocation invocation, Object result, Throwable cause);
+}
@@ -0,0 +1,112 @@
+package com.polyu.rpc.client.interceptor;
+
+import com.polyu.rpc.client.interceptor.impl.CallBackInterceptor;
+import com.polyu.rpc.client.interceptor.impl.TimeCostInterceptor;
+import com.polyu.rpc.client.invoke.Invocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * 不可变拦截链 创建代理时构建一次 所有调用共享
+ * 顺序: CallBackInterceptor -> 用户拦截器 -> TimeCostInterceptor -> 发送请求
+ * 拦截器实例被并发调用 须无状态
+ */
+public final class InterceptorPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(InterceptorPipeline.class);
+
+    private static final Interceptor CALLBACK_INTERCEPTOR = new CallBackInterceptor();
+    private static final Interceptor TIME_COST_INTERCEPTOR = new TimeCostInterceptor();
+
+    /**
+     * 仅内置拦截器
+     */
+    public static final InterceptorPipeline DEFAULT = of(null);
+
+    private final Interceptor[] interceptors;
+    private final AsyncInterceptor[] asyncInterceptors;
+
+    private InterceptorPipeline(Interceptor[] interceptors, AsyncInterceptor[] asyncInterceptors) {
+        this.interceptors = interceptors;
+        this.asyncInterceptors = asyncInterceptors;
+    }
+
+    /**
+     * 构建拦截链
+     * @param userInterceptors 用户拦截器 按顺序执行 可为null
+     * @return pipeline
+     */
+    public static InterceptorPipeline of(Collection<? extends Interceptor> userInterceptors) {
+        List<Interceptor> interceptors = new ArrayList<>();
+        interceptors.add(CALLBACK_INTERCEPTOR);
+        if (userInterceptors != null) {
+            interceptors.addAll(userInterceptors);
+        }
+        interceptors.add(TIME_COST_INTERCEPTOR);
+        List<AsyncInterceptor> asyncInterceptors = new ArrayList<>();
+        for (Interceptor interceptor : interceptors) {
+            if (interceptor instanceof AsyncInterceptor) {
+                asyncInterceptors.add((AsyncInterceptor) interceptor);
+            }
+        }
+        return new InterceptorPipeline(interceptors.toArray(new Interceptor[0]),
+                asyncInterceptors.toArray(new AsyncInterceptor[0]));
+    }
+
+    public int size() {
+        return interceptors.length;
+    }
+
+    /**
+     * 获取第 index 个拦截器
+     * @param index 下标
+     * @return interceptor
+     */
+    public Interceptor get(int index) {
+        return interceptors[index];
+    }
+
+    /**
+     * 执行拦截链 完成后通知 AsyncInterceptor
+     * @param invocation invoke 实例
+     * @return 调用结果
+     */
+    public Object execute(final Invocation invocation) {
+        if (asyncInterceptors.length == 0) {
+            return invocation.invoke();
+        }
+        Object result;
+        try {
+            result = invocation.invoke();
+        } catch (RuntimeException | Error e) {
+            notifyComplete(invocation, null, e);
+            throw e;
+        }
+        if (invocation.isAsync() && result instanceof CompletableFuture) {
+            ((CompletableFuture<?>) result).whenComplete(new BiConsumer<Object, Throwable>() {
+                @Override
+                public void accept(Object value, Throwable cause) {
+                    notifyComplete(invocation, value, cause);
+                }
+            });
+        } else {
+            notifyComplete(invocation, result, null);
+        }
+        return result;
+    }
+
+    private void notifyComplete(Invocation invocation, Object result, Throwable cause) {
+        for (AsyncInterceptor interceptor : asyncInterceptors) {
+            try {
+                interceptor.onComplete(invocation, result, cause);
+            } catch (Exception e) {
+                logger.error("Interceptor onComplete failed. exception: {}.", e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -20,13 +20,15 @@ public class CallBackInterceptor implements Interceptor {
     }
 
     /**
-     * 调用回调
+     * 调用回调 未完成(异步调用)时由 future 在完成后回调
      * @param invocation invoke 实例
      */
     @Override
     public void afterInvoke(Invocation invocation) {
         RpcFuture rpcFuture = invocation.getRpcFuture();
-        rpcFuture.invokeCallbacks();
+        if (rpcFuture != null) {
+            rpcFuture.invokeCallbacks();
+        }
     }
 
 }
@@ -3,9 +3,12 @@ package com.polyu.rpc.client.interceptor.impl;
 import com.polyu.rpc.client.interceptor.Interceptor;
 import com.polyu.rpc.client.invoke.Invocation;
 import com.polyu.rpc.client.result.future.RpcFuture;
+import com.polyu.rpc.client.result.future.RpcTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CancellationException;
+
 /**
  * 保证此拦截器顺序 如果超时则不执行的逻辑在该拦截器之前加入
  */
@@ -29,17 +32,21 @@ public class TimeCostInterceptor implements Interceptor {
      * 超时异常处理
      * 惰性删除 or 提前释放
      * 都会在此抛 timeout 异常
+     * 异步调用的超时由时间轮完成其 CompletableFuture
      * @param invocation 调用实例
      */
     @Override
     public void afterInvoke(Invocation invocation) {
         RpcFuture rpcFuture = invocation.getRpcFuture();
+        if (rpcFuture == null || invocation.isAsync()) {
+            return;
+        }
         long timeEnd = System.currentTimeMillis();
         long timeStart = rpcFuture.getStartTime();
         if (timeEnd - timeStart > invocation.getTimeoutLength()) {
             logger.error("Invoke Timeout. timeStart: {}, timeEnd: {}.", timeStart, timeEnd);
-            rpcFuture.setTimeoutException();
-            throw rpcFuture.getTimeoutException();
+            CancellationException timeoutException = rpcFuture.getTimeoutException();
+            throw timeoutException != null ? timeoutException : new RpcTimeoutException(invocation.getRpcRequest().getRequestId());
         }
     }
 
@@ -1,9 +1,12 @@
 package com.polyu.rpc.client.invoke;
 
 import com.polyu.rpc.client.connect.HandlerManager;
+import com.polyu.rpc.client.failover.FailoverCall;
+import com.polyu.rpc.client.failover.FailoverPolicy;
+import com.polyu.rpc.client.hedge.HedgeDelay;
+import com.polyu.rpc.client.hedge.HedgedCall;
 import com.polyu.rpc.client.interceptor.Interceptor;
-import com.polyu.rpc.client.interceptor.impl.CallBackInterceptor;
-import com.polyu.rpc.client.interceptor.impl.TimeCostInterceptor;
+import com.polyu.rpc.client.interceptor.InterceptorPipeline;
 import com.polyu.rpc.client.netty.handler.RpcClientHandler;
 import com.polyu.rpc.client.result.future.RpcFuture;
 import com.polyu.rpc.codec.RpcRequest;
@@ -14,55 +17,103 @@ import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Data
 public class Invocation {
     private static final Logger logger = LoggerFactory.getLogger(Invocation.class);
 
-    private List<Interceptor> interceptors = new ArrayList<>();
+    private InterceptorPipeline pipeline;
     private int index = 0;
     private RpcRequest rpcRequest;
+    /**
+     * 预先计算的服务标识 为null时按请求计算
+     */
+    private String serviceKey;
     private RpcLoadBalance loadBalance;
     private long timeoutLength;
     private RpcFuture rpcFuture;
+    /**
+     * 异步调用 结果为 CompletableFuture 不阻塞调用线程
+     */
+    private boolean async;
+    /**
+     * 方法的对冲延迟 为null时不对冲
+     */
+    private HedgeDelay hedgeDelay;
+    /**
+     * 方法的重试策略 为null时不重试
+     */
+    private FailoverPolicy failoverPolicy;
 
     public Invocation(RpcRequest rpcRequest, RpcLoadBalance loadBalance, long timeoutLength) {
+        this(rpcRequest, loadBalance, timeoutLength, false);
+    }
+
+    public Invocation(RpcRequest rpcRequest, RpcLoadBalance loadBalance, long timeoutLength, boolean async) {
+        this(rpcRequest, null, loadBalance, timeoutLength, async, InterceptorPipeline.DEFAULT);
+    }
+
+    public Invocation(RpcRequest rpcRequest, String serviceKey, RpcLoadBalance loadBalance, long timeoutLength, boolean async,
+                      InterceptorPipeline pipeline) {
         this.rpcRequest = rpcRequest;
+        this.serviceKey = serviceKey;
         this.loadBalance = loadBalance;
         this.timeoutLength = timeoutLength;
+        this.async = async;
+        this.pipeline = pipeline;
+    }
 
-        this.interceptors.add(new CallBackInterceptor());
-        this.interceptors.add(new TimeCostInterceptor());
+    /**
+     * 执行调用 入口
+     * @return rpc result
+     */
+    public Object execute() {
+        return pipeline.execute(this);
     }
 
     /**
-     * invoke with interceptor
+     * invoke with interceptor 由拦截器调用以继续执行后续拦截器
      * @return rpc result
      */
     public Object invoke() {
-        if (index == interceptors.size()) {
+        if (index == pipeline.size()) {
             return this.sendRequest();
         }
-        Interceptor interceptor = interceptors.get(index++);
+        Interceptor interceptor = pipeline.get(index++);
         return interceptor.intercept(this);
     }
 
     /**
      * 发送请求
-     * @return result
+     * @return result 异步调用时为 CompletableFuture
      */
     private Object sendRequest() {
         Object res = null;
         try {
-            String serviceKey = ServiceUtil.makeServiceKey(rpcRequest.getClassName(), rpcRequest.getVersion());
-            RpcClientHandler handler = HandlerManager.chooseHandler(serviceKey, loadBalance == null ? DefaultRpcLoadBalanceHolder.getInstance() : loadBalance);
-            RpcFuture rpcFuture = handler.sendRequest(this.rpcRequest, this.timeoutLength);
+            String serviceKey = this.serviceKey != null ? this.serviceKey
+                    : ServiceUtil.makeServiceKey(rpcRequest.getClassName(), rpcRequest.getVersion());
+            RpcLoadBalance loadBalance = this.loadBalance == null ? DefaultRpcLoadBalanceHolder.getInstance() : this.loadBalance;
+            RpcFuture rpcFuture;
+            if (failoverPolicy != null) {
+                rpcFuture = new FailoverCall(serviceKey, rpcRequest, loadBalance, timeoutLength, failoverPolicy, hedgeDelay).start();
+            } else {
+                RpcClientHandler handler = HandlerManager.chooseHandler(serviceKey, rpcRequest, loadBalance);
+                rpcFuture = hedgeDelay == null ? handler.sendRequest(this.rpcRequest, this.timeoutLength)
+                        : new HedgedCall(serviceKey, rpcRequest, loadBalance, timeoutLength, hedgeDelay).start(handler);
+            }
             this.rpcFuture = rpcFuture;
+            if (async) {
+                return rpcFuture.toCompletableFuture();
+            }
             res = rpcFuture.get();
         } catch (Exception e) {
             logger.error("Invoke exception, exception: {}.", e.getMessage(), e);
+            if (async) {
+                CompletableFuture<Object> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
         }
         return res;
     }
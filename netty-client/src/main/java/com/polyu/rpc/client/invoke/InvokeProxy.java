@@ -1,22 +1,73 @@
 package com.polyu.rpc.client.invoke;
 
+import com.polyu.rpc.client.ConsumerOptions;
+import com.polyu.rpc.client.failover.FailoverPolicy;
+import com.polyu.rpc.client.hedge.HedgePolicy;
+import com.polyu.rpc.client.interceptor.InterceptorPipeline;
 import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.compress.CompressionPolicy;
 import com.polyu.rpc.route.RpcLoadBalance;
+import com.polyu.rpc.serializer.SerializerRegistry;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class InvokeProxy implements InvocationHandler {
 
+    /**
+     * 请求id生成 单调递增
+     */
+    private static final AtomicLong REQUEST_ID_GENERATOR = new AtomicLong();
+
     private String version;
     private RpcLoadBalance loadBalance;
     private long timeoutLength;
+    /**
+     * @BRpcConsumer 指定的序列化方式id 0表示未指定
+     */
+    private byte serializer;
+    /**
+     * @BRpcConsumer 指定的请求压缩策略 null表示使用连接默认
+     */
+    private CompressionPolicy compression;
+    /**
+     * 拦截链 创建代理时构建 所有调用共享
+     */
+    private InterceptorPipeline pipeline;
+    /**
+     * @BRpcConsumer 指定的对冲策略 null表示不对冲
+     */
+    private HedgePolicy hedgePolicy;
+    /**
+     * @BRpcConsumer 指定的重试策略 null表示不重试 方法上的 @Failover 优先
+     */
+    private FailoverPolicy failoverPolicy;
+    /**
+     * 方法 -> 方法描述 缓存 避免每次调用拼接字符串
+     */
+    private final Map<Method, MethodDescriptor> descriptorCache = new ConcurrentHashMap<>();
 
     public InvokeProxy(String version, RpcLoadBalance loadBalance, long timeoutLength) {
-        this.version = version;
-        this.loadBalance = loadBalance;
-        this.timeoutLength = timeoutLength;
+        this(ConsumerOptions.of(version, loadBalance, timeoutLength), null, InterceptorPipeline.DEFAULT);
+    }
+
+    /**
+     * @param options 代理配置
+     * @param compression 按配置解析的请求压缩策略 null表示使用连接默认
+     * @param pipeline 拦截链
+     */
+    public InvokeProxy(ConsumerOptions options, CompressionPolicy compression, InterceptorPipeline pipeline) {
+        this.version = options.getVersion();
+        this.loadBalance = options.getLoadBalance();
+        this.timeoutLength = options.getTimeoutLength();
+        this.serializer = SerializerRegistry.idOf(options.getSerializer());
+        this.compression = compression;
+        this.pipeline = pipeline;
+        this.hedgePolicy = options.getHedgePolicy();
+        this.failoverPolicy = options.getFailoverPolicy();
     }
 
     /**
@@ -29,16 +80,61 @@ public class InvokeProxy implements InvocationHandler {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) {
+        return invoke(descriptorCache.computeIfAbsent(method, this::newDescriptor), args);
+    }
+
+    /**
+     * 按预先计算的方法描述调用 生成的 stub 直接调用此方法
+     * @param descriptor 方法描述
+     * @param args 参数
+     * @return 调用结果 异步方法为 CompletableFuture
+     */
+    public Object invoke(MethodDescriptor descriptor, Object[] args) {
+        RpcRequest request = newRequest(descriptor.getClassName(), descriptor.getMethodName(), descriptor.getParameterTypes(),
+                args, version, descriptor.getMethodKey());
+        request.setSerializer(serializer);
+        request.setCompression(compression);
+
+        Invocation invocation = new Invocation(request, descriptor.getServiceKey(), this.loadBalance, this.timeoutLength,
+                descriptor.isAsync(), this.pipeline);
+        invocation.setHedgeDelay(descriptor.getHedgeDelay());
+        invocation.setFailoverPolicy(descriptor.getFailoverPolicy());
+        return invocation.execute();
+    }
+
+    /**
+     * 生成方法描述
+     * @param method 接口方法
+     * @return 方法描述
+     */
+    public MethodDescriptor newDescriptor(Method method) {
+        return new MethodDescriptor(method, version, hedgePolicy, failoverPolicy);
+    }
+
+    /**
+     * 分配请求id
+     * @return 单调递增的id
+     */
+    public static long nextRequestId() {
+        return REQUEST_ID_GENERATOR.incrementAndGet();
+    }
+
+    /**
+     * 构造请求 分配请求id
+     * @param methodKey ServiceUtil.makeMethodKey 生成的方法标识
+     * @return RpcRequest
+     */
+    public static RpcRequest newRequest(String className, String methodName, Class<?>[] parameterTypes, Object[] args,
+                                        String version, String methodKey) {
         RpcRequest request = new RpcRequest();
-        request.setRequestId(UUID.randomUUID().toString());
-        request.setClassName(method.getDeclaringClass().getName());
-        request.setMethodName(method.getName());
-        request.setParameterTypes(method.getParameterTypes());
+        request.setRequestId(nextRequestId());
+        request.setClassName(className);
+        request.setMethodName(methodName);
+        request.setParameterTypes(parameterTypes);
         request.setParameters(args);
         request.setVersion(version);
-
-        Invocation invocation = new Invocation(request, this.loadBalance, this.timeoutLength);
-        return invocation.invoke();
+        request.setMethodKey(methodKey);
+        return request;
     }
 
 }
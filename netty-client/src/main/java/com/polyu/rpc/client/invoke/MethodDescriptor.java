@@ -0,0 +1,60 @@
+package com.polyu.rpc.client.invoke;
+
+import com.polyu.rpc.annotation.Failover;
+import com.polyu.rpc.annotation.Hedge;
+import com.polyu.rpc.client.failover.FailoverPolicy;
+import com.polyu.rpc.client.hedge.HedgeDelay;
+import com.polyu.rpc.client.hedge.HedgePolicy;
+import com.polyu.rpc.util.ServiceUtil;
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 客户端方法描述 创建代理时预先计算 调用时不再反射取类名/参数类型或拼接字符串
+ */
+@Getter
+public class MethodDescriptor {
+
+    private final String className;
+    private final String methodName;
+    /**
+     * 只读 多次调用共享同一数组
+     */
+    private final Class<?>[] parameterTypes;
+    private final String serviceKey;
+    private final String methodKey;
+    /**
+     * 返回值为 CompletableFuture / CompletionStage / Future 时异步调用
+     */
+    private final boolean async;
+    /**
+     * 该方法的对冲延迟 方法上的 @Hedge 优先 未开启对冲时为 null
+     */
+    private final HedgeDelay hedgeDelay;
+    /**
+     * 该方法的重试策略 方法上的 @Failover 优先 不重试时为 null
+     */
+    private final FailoverPolicy failoverPolicy;
+
+    /**
+     * @param hedgePolicy 代理的对冲策略 可为null
+     * @param failoverPolicy 代理的重试策略 可为null
+     */
+    public MethodDescriptor(Method method, String version, HedgePolicy hedgePolicy, FailoverPolicy failoverPolicy) {
+        this.className = method.getDeclaringClass().getName();
+        this.methodName = method.getName();
+        this.parameterTypes = method.getParameterTypes();
+        this.serviceKey = ServiceUtil.makeServiceKey(className, version);
+        this.methodKey = ServiceUtil.makeMethodKey(serviceKey, methodName, parameterTypes);
+        Class<?> returnType = method.getReturnType();
+        this.async = returnType != Object.class && returnType.isAssignableFrom(CompletableFuture.class);
+        Hedge hedge = method.getAnnotation(Hedge.class);
+        HedgePolicy methodHedgePolicy = hedge == null ? hedgePolicy
+                : HedgePolicy.of(hedge.maxHedges(), hedge.hedgeAfterMillis(), hedge.percentile());
+        this.hedgeDelay = methodHedgePolicy == null ? null : new HedgeDelay(methodHedgePolicy);
+        Failover failover = method.getAnnotation(Failover.class);
+        this.failoverPolicy = failover == null ? failoverPolicy : FailoverPolicy.of(failover.retries(), failover.backoffMillis());
+    }
+}
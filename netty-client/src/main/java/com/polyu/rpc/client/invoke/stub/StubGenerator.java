@@ -0,0 +1,297 @@
+package com.polyu.rpc.client.invoke.stub;
+
+import com.polyu.rpc.client.invoke.InvokeProxy;
+import com.polyu.rpc.client.invoke.MethodDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 为服务接口生成 stub 类(ASM 使用 spring-core 内置版本)
+ * 生成类继承 StubSupport 每个接口方法直接装箱参数并以常量下标调用 StubSupport.invoke
+ * 省去 JDK 动态代理的 InvocationHandler 分派与 Method 查找
+ * 接口或方法签名中的类型不可访问时返回null 由调用方退回 JDK 动态代理
+ */
+public class StubGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(StubGenerator.class);
+
+    private static final String STUB_SUPPORT = Type.getInternalName(StubSupport.class);
+    private static final String INVOKE_DESC = "(I[Ljava/lang/Object;)Ljava/lang/Object;";
+    private static final String CONSTRUCTOR_DESC = Type.getMethodDescriptor(Type.VOID_TYPE,
+            Type.getType(InvokeProxy.class), Type.getType(MethodDescriptor[].class));
+    private static final StubClass UNSUPPORTED = new StubClass(null, null);
+
+    private static final Map<Class<?>, StubClass> stubClasses = new ConcurrentHashMap<>();
+
+    /**
+     * 创建 stub 实例
+     * @param interfaceClass 服务接口
+     * @param handler 调用处理 提供版本/负载均衡/超时等配置
+     * @return stub 无法生成时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newInstance(Class<T> interfaceClass, InvokeProxy handler) {
+        StubClass stubClass = stubClasses.computeIfAbsent(interfaceClass, StubGenerator::generate);
+        if (stubClass == UNSUPPORTED) {
+            return null;
+        }
+        MethodDescriptor[] descriptors = new MethodDescriptor[stubClass.methods.length];
+        for (int i = 0; i < descriptors.length; i++) {
+            descriptors[i] = handler.newDescriptor(stubClass.methods[i]);
+        }
+        try {
+            return (T) stubClass.constructor.newInstance(handler, descriptors);
+        } catch (Exception e) {
+            logger.warn("Instantiate stub for {} failed, exception: {}.", interfaceClass.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static StubClass generate(Class<?> interfaceClass) {
+        if (!interfaceClass.isInterface() || !isAccessible(interfaceClass)) {
+            logger.info("Interface {} is not public, use jdk proxy.", interfaceClass.getName());
+            return UNSUPPORTED;
+        }
+        List<Method> methods = collectMethods(interfaceClass);
+        for (Method method : methods) {
+            if (!isAccessible(method)) {
+                logger.info("Method {} uses non-public types, use jdk proxy for {}.", method, interfaceClass.getName());
+                return UNSUPPORTED;
+            }
+        }
+        String className = STUB_SUPPORT.substring(0, STUB_SUPPORT.lastIndexOf('/') + 1)
+                + interfaceClass.getName().replace('.', '_') + "$BRpcStub";
+        try {
+            byte[] bytecode = generateBytecode(className, interfaceClass, methods);
+            Class<?> clazz = new StubClassLoader(interfaceClass.getClassLoader()).define(className.replace('/', '.'), bytecode);
+            Constructor<?> constructor = clazz.getConstructor(InvokeProxy.class, MethodDescriptor[].class);
+            return new StubClass(constructor, methods.toArray(new Method[0]));
+        } catch (Throwable t) {
+            logger.warn("Generate stub for {} failed, use jdk proxy. exception: {}.", interfaceClass.getName(), t.toString());
+            return UNSUPPORTED;
+        }
+    }
+
+    /**
+     * 接口全部实例方法 同签名只保留一个 Object 的 equals/hashCode/toString 不转发
+     */
+    private static List<Method> collectMethods(Class<?> interfaceClass) {
+        List<Method> methods = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        for (Method method : interfaceClass.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || isObjectMethod(method)) {
+                continue;
+            }
+            if (signatures.add(method.getName() + Type.getMethodDescriptor(method))) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static byte[] generateBytecode(String className, Class<?> interfaceClass, List<Method> methods) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null,
+                STUB_SUPPORT, new String[]{Type.getInternalName(interfaceClass)});
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, STUB_SUPPORT, "<init>", CONSTRUCTOR_DESC, false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        for (int i = 0; i < methods.size(); i++) {
+            generateMethod(cw, methods.get(i), i);
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * return (R) invoke(methodIndex, new Object[]{arg0, arg1, ...});
+     */
+    private static void generateMethod(ClassWriter cw, Method method, int methodIndex) {
+        Class<?>[] exceptionTypes = method.getExceptionTypes();
+        String[] exceptions = new String[exceptionTypes.length];
+        for (int i = 0; i < exceptionTypes.length; i++) {
+            exceptions[i] = Type.getInternalName(exceptionTypes[i]);
+        }
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(), Type.getMethodDescriptor(method), null, exceptions);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        pushInt(mv, methodIndex);
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length == 0) {
+            mv.visitInsn(Opcodes.ACONST_NULL);
+        } else {
+            pushInt(mv, parameterTypes.length);
+            mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+            int slot = 1;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                Type type = Type.getType(parameterTypes[i]);
+                mv.visitInsn(Opcodes.DUP);
+                pushInt(mv, i);
+                mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), slot);
+                box(mv, type);
+                mv.visitInsn(Opcodes.AASTORE);
+                slot += type.getSize();
+            }
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STUB_SUPPORT, "invoke", INVOKE_DESC, false);
+
+        Type returnType = Type.getReturnType(method);
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(Opcodes.POP);
+            mv.visitInsn(Opcodes.RETURN);
+        } else {
+            unbox(mv, returnType);
+            mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        String wrapper = wrapperOf(type);
+        if (wrapper != null) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf",
+                    "(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+        }
+    }
+
+    /**
+     * 基本类型返回值为null(如超时)时与 JDK 动态代理一致抛出 NullPointerException
+     */
+    private static void unbox(MethodVisitor mv, Type type) {
+        String wrapper = wrapperOf(type);
+        if (wrapper == null) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+            return;
+        }
+        mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getClassName() + "Value", "()" + type.getDescriptor(), false);
+    }
+
+    private static String wrapperOf(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return "java/lang/Boolean";
+            case Type.CHAR:
+                return "java/lang/Character";
+            case Type.BYTE:
+                return "java/lang/Byte";
+            case Type.SHORT:
+                return "java/lang/Short";
+            case Type.INT:
+                return "java/lang/Integer";
+            case Type.FLOAT:
+                return "java/lang/Float";
+            case Type.LONG:
+                return "java/lang/Long";
+            case Type.DOUBLE:
+                return "java/lang/Double";
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isAccessible(Method method) {
+        if (!isAccessible(method.getReturnType())) {
+            return false;
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            if (!isAccessible(type)) {
+                return false;
+            }
+        }
+        for (Class<?> type : method.getExceptionTypes()) {
+            if (!isAccessible(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成类与接口不在同一运行时包 引用的类型(含外部类)须为 public
+     */
+    private static boolean isAccessible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        for (Class<?> current = type; current != null; current = current.getDeclaringClass()) {
+            if (!current.isPrimitive() && !Modifier.isPublic(current.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class StubClass {
+        private final Constructor<?> constructor;
+        private final Method[] methods;
+
+        StubClass(Constructor<?> constructor, Method[] methods) {
+            this.constructor = constructor;
+            this.methods = methods;
+        }
+    }
+
+    /**
+     * 以接口所在类加载器为父加载器 StubSupport 对父加载器不可见时从框架类加载器加载
+     */
+    private static final class StubClassLoader extends ClassLoader {
+
+        StubClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            return StubSupport.class.getClassLoader().loadClass(name);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.polyu.rpc.client.invoke.stub;
+
+import com.polyu.rpc.client.invoke.InvokeProxy;
+import com.polyu.rpc.client.invoke.MethodDescriptor;
+
+/**
+ * 生成的 stub 的父类
+ * stub 的每个接口方法以常量下标调用 invoke 方法描述在创建 stub 时预先计算
+ */
+public abstract class StubSupport {
+
+    private final InvokeProxy handler;
+    private final MethodDescriptor[] methods;
+
+    protected StubSupport(InvokeProxy handler, MethodDescriptor[] methods) {
+        this.handler = handler;
+        this.methods = methods;
+    }
+
+    /**
+     * 由生成的方法调用
+     * @param methodIndex 方法下标 与生成时的方法顺序一致
+     * @param args 参数 无参方法为null
+     * @return 调用结果
+     */
+    public final Object invoke(int methodIndex, Object[] args) {
+        return handler.invoke(methods[methodIndex], args);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+}
@@ -1,10 +1,17 @@
 package com.polyu.rpc.client.netty;
 
 import com.polyu.rpc.client.netty.handler.RpcClientHandler;
+import com.polyu.rpc.client.netty.handler.RpcHandshakeHandler;
 import com.polyu.rpc.client.netty.handler.RpcHeartBeatHandler;
 import com.polyu.rpc.codec.*;
-import com.polyu.rpc.serializer.Serializer;
+import com.polyu.rpc.codec.legacy.LegacyMessageConverter;
+import com.polyu.rpc.compress.CompressionPolicy;
+import com.polyu.rpc.compress.CompressionStats;
+import com.polyu.rpc.serializer.SerializerRegistry;
 import com.polyu.rpc.serializer.kryo.KryoSerializer;
+import com.polyu.rpc.transport.FlushBatchHandler;
+import com.polyu.rpc.transport.FlushBatchStats;
+import com.polyu.rpc.transport.TransportConfig;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
@@ -14,14 +21,39 @@ import java.util.concurrent.TimeUnit;
 
 
 public class RpcClientInitializer extends ChannelInitializer<SocketChannel> {
+    private CodecConfig codecConfig;
+    private TransportConfig transportConfig;
+
+    public RpcClientInitializer(CodecConfig codecConfig) {
+        this(codecConfig, new TransportConfig());
+    }
+
+    public RpcClientInitializer(CodecConfig codecConfig, TransportConfig transportConfig) {
+        this.codecConfig = codecConfig;
+        this.transportConfig = transportConfig;
+    }
+
     @Override
     protected void initChannel(SocketChannel socketChannel) throws Exception {
-        Serializer serializer = KryoSerializer.class.newInstance();
+        SerializerSelector serializerSelector;
+        LegacyMessageConverter legacyConverter = null;
+        if (codecConfig.isLegacyProtocol()) {
+            serializerSelector = new SerializerSelector(KryoSerializer.legacy());
+            legacyConverter = new LegacyMessageConverter();
+        } else {
+            serializerSelector = new SerializerSelector(SerializerRegistry.get(codecConfig.getSerializer()));
+        }
         ChannelPipeline cp = socketChannel.pipeline();
+        if (transportConfig.isFlushBatching()) {
+            cp.addLast(new FlushBatchHandler(transportConfig, FlushBatchStats.of(FlushBatchStats.CLIENT)));
+        }
         cp.addLast(new IdleStateHandler(0, 0, HeartBeat.BEAT_INTERVAL, TimeUnit.SECONDS));
-        cp.addLast(new RpcEncoder(RpcRequest.class, serializer));
+        CompressionPolicy defaultCompression = CompressionPolicy.of(codecConfig.getCompressor(), codecConfig.getCompressThreshold(), CompressionStats.DEFAULT);
+        cp.addLast(new RpcEncoder(RpcRequest.class, serializerSelector, codecConfig.isDirectEncode(), legacyConverter, defaultCompression));
         cp.addLast(new RpcHeartBeatHandler());
-        cp.addLast(new RpcDecoder(RpcResponse.class, serializer));
-        cp.addLast(new RpcClientHandler());
+        cp.addLast(new RpcDecoder(RpcResponse.class, serializerSelector, codecConfig.getMaxFrameLength(), legacyConverter));
+        RpcClientHandler clientHandler = new RpcClientHandler();
+        cp.addLast(new RpcHandshakeHandler(clientHandler, serializerSelector));
+        cp.addLast(clientHandler);
     }
 }
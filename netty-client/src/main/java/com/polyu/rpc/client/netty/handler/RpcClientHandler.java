@@ -1,16 +1,22 @@
 package com.polyu.rpc.client.netty.handler;
 
+import com.polyu.rpc.client.connect.ConnectionPool;
 import com.polyu.rpc.client.connect.Connector;
 import com.polyu.rpc.client.result.PendingRpcHolder;
+import com.polyu.rpc.codec.RpcHandshake;
 import com.polyu.rpc.codec.RpcRequest;
 import com.polyu.rpc.codec.RpcResponse;
 import com.polyu.rpc.info.RpcMetaData;
 import com.polyu.rpc.client.result.future.RpcFuture;
+import com.polyu.rpc.route.EndpointStats;
+import com.polyu.rpc.serializer.SerializerRegistry;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+
 
 public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
     private static final Logger logger = LoggerFactory.getLogger(RpcClientHandler.class);
@@ -19,6 +25,19 @@ public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
     private RpcMetaData rpcMetaData;
 
     private volatile boolean intentionalClose;
+    /**
+     * 握手信息 握手完成前为null 走全量请求
+     */
+    private volatile RpcHandshake handshake;
+    /**
+     * 所属连接池及槽位
+     */
+    private volatile ConnectionPool connectionPool;
+    private volatile int slot;
+    /**
+     * 本连接的待响应请求数与延迟 供连接池选择 channel 及负载均衡
+     */
+    private final EndpointStats endpointStats = new EndpointStats();
 
     @Override
     public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
@@ -28,13 +47,13 @@ public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
 
     @Override
     public void channelRead0(ChannelHandlerContext ctx, RpcResponse response) {
-        String requestId = response.getRequestId();
+        long requestId = response.getRequestId();
         logger.debug("Receive response: {}.", requestId);
-        RpcFuture rpcFuture = PendingRpcHolder.getPendingRPC().get(requestId);
+        // 已超时/取消的请求已结束计数 迟到的响应直接忽略
+        RpcFuture rpcFuture = PendingRpcHolder.removeOnResponse(requestId);
         if (rpcFuture == null) {
             return;
         }
-        PendingRpcHolder.getPendingRPC().remove(requestId);
         rpcFuture.done(response);
     }
 
@@ -54,26 +73,103 @@ public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
      * @return result future
      */
     public RpcFuture sendRequest(RpcRequest request, long timeoutLength) {
-        RpcFuture rpcFuture = new RpcFuture(request, timeoutLength);
-        PendingRpcHolder.getPendingRPC().put(request.getRequestId(), rpcFuture);
-        try {
-            ChannelFuture channelFuture = channel.writeAndFlush(request).sync();
-            if (!channelFuture.isSuccess()) {
-                logger.error("Send request {} error.", request.getRequestId());
+        final long requestId = request.getRequestId();
+        final RpcFuture rpcFuture = new RpcFuture(request, timeoutLength);
+        rpcFuture.setEndpointStats(endpointStats);
+        endpointStats.requestStarted();
+        PendingRpcHolder.add(requestId, rpcFuture);
+        channel.writeAndFlush(compact(request)).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (future.isSuccess()) {
+                    return;
+                }
+                logger.error("Send request {} error: {}.", requestId, String.valueOf(future.cause()));
+                if (PendingRpcHolder.remove(requestId) != null) {
+                    rpcFuture.fail(future.cause());
+                }
             }
-        } catch (InterruptedException e) {
-            logger.error("Send request exception: {}.", e.getMessage());
-        }
+        });
         return rpcFuture;
     }
 
+    /**
+     * 服务端已下发该方法id时 只发送 methodId 与参数
+     * 请求未指定序列化方式时 采用服务端偏好的序列化方式(本地可用时)
+     * @param request 全量请求
+     * @return 实际写出的请求
+     */
+    private RpcRequest compact(RpcRequest request) {
+        RpcHandshake handshake = this.handshake;
+        String methodKey = request.getMethodKey();
+        if (handshake == null || methodKey == null) {
+            return request;
+        }
+        Map<String, Integer> methodIds = handshake.getMethodIds();
+        Integer methodId = methodIds == null ? null : methodIds.get(methodKey);
+        if (methodId == null) {
+            return request;
+        }
+        RpcRequest compacted = request.compact(methodId);
+        byte[] methodSerializers = handshake.getMethodSerializers();
+        if (compacted.getSerializer() == 0 && methodSerializers != null && methodId < methodSerializers.length) {
+            byte preferred = methodSerializers[methodId];
+            if (preferred != 0 && SerializerRegistry.get(preferred) != null) {
+                compacted.setSerializer(preferred);
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * 握手完成后设置
+     * @param handshake 服务端下发的握手信息
+     */
+    public void setHandshake(RpcHandshake handshake) {
+        this.handshake = handshake;
+    }
+
     public void setRpcMetaData(RpcMetaData rpcMetaData) {
         this.rpcMetaData = rpcMetaData;
     }
 
+    /**
+     * 连接建立后设置
+     * @param connectionPool 所属连接池
+     * @param slot 槽位
+     */
+    public void setConnectionPool(ConnectionPool connectionPool, int slot) {
+        this.connectionPool = connectionPool;
+        this.slot = slot;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * 所属 channel 的 IO 线程 用于调度与该连接相关的定时任务
+     * @return eventLoop
+     */
+    public EventLoop eventLoop() {
+        return channel.eventLoop();
+    }
+
+    /**
+     * 待响应的请求数 请求移出待响应表(响应/超时/取消/发送失败)时减少
+     * @return count
+     */
+    public int getPendingCount() {
+        return endpointStats.getPending();
+    }
+
+    public EndpointStats getEndpointStats() {
+        return endpointStats;
+    }
+
     /**
      * server端超时主动关闭
-     * 触发client端重连 以此机制保持长链接
+     * 触发client端重连该槽位 以此机制保持长链接
      * 主动关闭则不进行重连接
      * @param ctx
      */
@@ -85,14 +181,18 @@ public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
         }
         logger.info("Connection to server lose, active reconnect mechanism.");
         Connector connector = Connector.getInstance();
+        ConnectionPool pool = this.connectionPool;
+        if (pool == null) {
+            connector.removeConnectRecord(rpcMetaData);
+            return;
+        }
         try {
-            connector.connectServerNode(rpcMetaData);
+            connector.reconnect(pool, slot, this);
         } catch (Exception e) {
-            connector.removeConnectRecord(rpcMetaData);
+            connector.removeAndCloseHandler(pool.getRpcMetaData());
         }
     }
 
-
     private boolean isIntentionalClose() {
         return intentionalClose;
     }
@@ -0,0 +1,72 @@
+package com.polyu.rpc.client.netty.handler;
+
+import com.polyu.rpc.codec.RpcEncoder;
+import com.polyu.rpc.codec.RpcHandshake;
+import com.polyu.rpc.codec.SerializerSelector;
+import com.polyu.rpc.compress.CompressorRegistry;
+import com.polyu.rpc.serializer.TypeAllowList;
+import com.polyu.rpc.serializer.kryo.KryoSerializer;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RpcHandshakeHandler extends ChannelInboundHandlerAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(RpcHandshakeHandler.class);
+
+    /**
+     * client 发给 server 的握手信息 告知本端支持的压缩方式
+     */
+    private static final RpcHandshake CLIENT_HANDSHAKE = new RpcHandshake();
+
+    static {
+        CLIENT_HANDSHAKE.setCompressors(CompressorRegistry.getSupportedMask());
+    }
+
+    private final RpcClientHandler clientHandler;
+    private final SerializerSelector serializerSelector;
+
+    public RpcHandshakeHandler(RpcClientHandler clientHandler, SerializerSelector serializerSelector) {
+        this.clientHandler = clientHandler;
+        this.serializerSelector = serializerSelector;
+    }
+
+    /**
+     * 连接建立后告知server本端支持的压缩方式
+     * @param ctx
+     * @throws Exception
+     */
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        ctx.writeAndFlush(CLIENT_HANDSHAKE);
+        super.channelActive(ctx);
+    }
+
+    /**
+     * 拦截server下发的握手信息 设置到本连接的RpcClientHandler
+     * 并按服务端的 Kryo 类注册表替换本连接的 Kryo 协商请求可用的压缩方式
+     *
+     * @param ctx
+     * @param msg
+     * @throws Exception
+     */
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof RpcHandshake) {
+            RpcHandshake handshake = (RpcHandshake) msg;
+            TypeAllowList.allowTypes(handshake.getKryoTypes());
+            if (handshake.getKryoTypes() != null && !handshake.getKryoTypes().isEmpty()) {
+                serializerSelector.override(KryoSerializer.withServiceTypes(handshake.getKryoTypes()));
+            }
+            RpcEncoder encoder = ctx.pipeline().get(RpcEncoder.class);
+            if (encoder != null) {
+                encoder.setPeerCompressors(handshake.getCompressors() & CLIENT_HANDSHAKE.getCompressors());
+            }
+            clientHandler.setHandshake(handshake);
+            logger.info("Handshake with {} done, methods: {}.", ctx.channel().remoteAddress(),
+                    handshake.getMethodIds() == null ? 0 : handshake.getMethodIds().size());
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+}
@@ -1,58 +1,159 @@
 package com.polyu.rpc.client.result;
 
 import com.polyu.rpc.client.result.future.RpcFuture;
+import com.polyu.rpc.route.EndpointStats;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * 待响应请求持有者
+ * 每个请求发送时在时间轮上单独登记超时任务 收到响应时取消 插入/取消均为 O(1)
+ * 请求移出(响应/超时/取消/发送失败)时结束所属连接的待响应计数 每个请求只结束一次
+ */
 public class PendingRpcHolder {
 
-    private static final ConcurrentHashMap<String, RpcFuture> pendingRPC = new ConcurrentHashMap<>();
-    private static final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
-    private static long timeoutCheckInterval = 1000L;
+    private static final PendingRpcTable pendingRPC = new PendingRpcTable();
+    private static final int TICKS_PER_WHEEL = 512;
+    /**
+     * 时间轮刻度(毫秒) 决定超时精度
+     */
+    private static long timeoutCheckInterval = 10L;
+    private static volatile HashedWheelTimer timer;
+
+    /**
+     * 启动超时时间轮
+     */
+    public static void start() {
+        getTimer().start();
+    }
+
+    /**
+     * client 关闭同时停止时间轮
+     */
+    public static synchronized void stop() {
+        if (timer != null) {
+            timer.stop();
+            timer = null;
+        }
+    }
 
     /**
-     * 启动超时检查线程
+     * 登记待响应请求 并按请求超时时间调度超时任务
+     * @param requestId 请求id
+     * @param rpcFuture future
      */
-    public static void startTimeoutThreadPool() {
-        scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+    public static void add(final long requestId, final RpcFuture rpcFuture) {
+        pendingRPC.put(requestId, rpcFuture);
+        Timeout timeout = getTimer().newTimeout(new TimerTask() {
             @Override
-            public void run() {
-                for (String requestId : pendingRPC.keySet()) {
-                    RpcFuture rpcFuture = pendingRPC.get(requestId);
-                    if (rpcFuture == null || !rpcFuture.isTimeout()) {
-                        continue;
-                    }
-                    rpcFuture.cancel(true);
-                    pendingRPC.remove(requestId);
+            public void run(Timeout timeout) {
+                if (pendingRPC.remove(requestId, rpcFuture)) {
+                    finish(rpcFuture, -1L);
+                    rpcFuture.setTimeoutException();
                 }
             }
-        }, 3000L, timeoutCheckInterval, TimeUnit.MILLISECONDS);
+        }, rpcFuture.getResponseTimeThreshold(), TimeUnit.MILLISECONDS);
+        rpcFuture.setTimeout(timeout);
+    }
+
+    /**
+     * 移除待响应请求 并取消其超时任务
+     * @param requestId 请求id
+     * @return future 已超时或不存在时返回null
+     */
+    public static RpcFuture remove(long requestId) {
+        RpcFuture rpcFuture = pendingRPC.remove(requestId);
+        if (rpcFuture != null) {
+            cancelTimeout(rpcFuture);
+            finish(rpcFuture, -1L);
+        }
+        return rpcFuture;
     }
 
     /**
-     * client 关闭同时调用关闭线程池资源
+     * 仍登记为该 future 时移除 用于取消
+     * @param requestId 请求id
+     * @param rpcFuture future
+     * @return 是否移除
      */
-    public static void stop() {
-        scheduledExecutorService.shutdown();
+    public static boolean remove(long requestId, RpcFuture rpcFuture) {
+        if (!pendingRPC.remove(requestId, rpcFuture)) {
+            return false;
+        }
+        cancelTimeout(rpcFuture);
+        finish(rpcFuture, -1L);
+        return true;
+    }
+
+    /**
+     * 收到响应 移除待响应请求并记录延迟
+     * @param requestId 请求id
+     * @return future 已超时、已取消或不存在(迟到的响应)时返回null
+     */
+    public static RpcFuture removeOnResponse(long requestId) {
+        RpcFuture rpcFuture = pendingRPC.remove(requestId);
+        if (rpcFuture != null) {
+            cancelTimeout(rpcFuture);
+            finish(rpcFuture, System.nanoTime() - rpcFuture.getStartNanos());
+        }
+        return rpcFuture;
+    }
+
+    private static void cancelTimeout(RpcFuture rpcFuture) {
+        Timeout timeout = rpcFuture.getTimeout();
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 结束所属连接的待响应计数
+     * @param latencyNanos 延迟 小于0表示无可用延迟
+     */
+    private static void finish(RpcFuture rpcFuture, long latencyNanos) {
+        EndpointStats endpointStats = rpcFuture.getEndpointStats();
+        if (endpointStats == null) {
+            return;
+        }
+        if (latencyNanos < 0L) {
+            endpointStats.requestFinished();
+        } else {
+            endpointStats.requestFinished(latencyNanos);
+        }
     }
 
     /**
      * 获取pendingRPC
      * @return map
      */
-    public static ConcurrentHashMap<String, RpcFuture> getPendingRPC() {
+    public static PendingRpcTable getPendingRPC() {
         return pendingRPC;
     }
 
     /**
-     * 设置巡查时间间隔
-     * @param timeoutCheckInterval 时间间隔
+     * 设置时间轮刻度 需在启动前设置
+     * @param timeoutCheckInterval 刻度(毫秒)
      */
     public static void setTimeoutCheckInterval(long timeoutCheckInterval) {
         PendingRpcHolder.timeoutCheckInterval = timeoutCheckInterval;
     }
 
+    private static HashedWheelTimer getTimer() {
+        HashedWheelTimer wheelTimer = timer;
+        if (wheelTimer != null) {
+            return wheelTimer;
+        }
+        synchronized (PendingRpcHolder.class) {
+            if (timer == null) {
+                timer = new HashedWheelTimer(new DefaultThreadFactory("bRPC-timeout", true),
+                        timeoutCheckInterval, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+            }
+            return timer;
+        }
+    }
+
 }
@@ -0,0 +1,191 @@
+package com.polyu.rpc.client.result;
+
+import com.polyu.rpc.client.result.future.RpcFuture;
+
+/**
+ * requestId -> RpcFuture 映射
+ * 按 requestId 分段加锁 段内为 long 主键的开放寻址表(线性探测) 避免装箱与 Entry 分配
+ */
+public class PendingRpcTable {
+
+    private static final int DEFAULT_STRIPES = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    public PendingRpcTable() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes 分段数 向上取整为2的幂
+     */
+    public PendingRpcTable(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentMask = size - 1;
+    }
+
+    public void put(long requestId, RpcFuture rpcFuture) {
+        if (rpcFuture == null) {
+            throw new NullPointerException("rpcFuture");
+        }
+        long hash = mix(requestId);
+        segmentOf(hash).put(requestId, (int) (hash >>> 32), rpcFuture);
+    }
+
+    public RpcFuture get(long requestId) {
+        long hash = mix(requestId);
+        return segmentOf(hash).get(requestId, (int) (hash >>> 32));
+    }
+
+    /**
+     * 移除映射
+     * @return 被移除的 future 不存在时返回null
+     */
+    public RpcFuture remove(long requestId) {
+        long hash = mix(requestId);
+        return segmentOf(hash).remove(requestId, (int) (hash >>> 32), null);
+    }
+
+    /**
+     * 仅当当前映射为指定 future 时移除
+     * @return 是否移除
+     */
+    public boolean remove(long requestId, RpcFuture rpcFuture) {
+        long hash = mix(requestId);
+        return segmentOf(hash).remove(requestId, (int) (hash >>> 32), rpcFuture) != null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentOf(long hash) {
+        return segments[(int) hash & segmentMask];
+    }
+
+    /**
+     * 单调递增的 id 打散 低位选段 高位定位槽
+     */
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    /**
+     * 段 value 为null的槽视为空槽 删除时回移后续元素 不使用墓碑
+     */
+    private static final class Segment {
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+        private RpcFuture[] values = new RpcFuture[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized void put(long key, int hash, RpcFuture value) {
+            int mask = values.length - 1;
+            int i = hash & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            if (++size > values.length >> 1) {
+                resize();
+            }
+        }
+
+        synchronized RpcFuture get(long key, int hash) {
+            int mask = values.length - 1;
+            int i = hash & mask;
+            RpcFuture value;
+            while ((value = values[i]) != null) {
+                if (keys[i] == key) {
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        synchronized RpcFuture remove(long key, int hash, RpcFuture expected) {
+            int mask = values.length - 1;
+            int i = hash & mask;
+            RpcFuture value;
+            while ((value = values[i]) != null) {
+                if (keys[i] == key) {
+                    if (expected != null && expected != value) {
+                        return null;
+                    }
+                    values[i] = null;
+                    size--;
+                    shiftBack(i, mask);
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /**
+         * 删除后将探测链上的后续元素前移 保证查找不中断
+         */
+        private void shiftBack(int gap, int mask) {
+            int i = (gap + 1) & mask;
+            while (values[i] != null) {
+                int home = slotOf(keys[i], mask);
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    values[i] = null;
+                    gap = i;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            RpcFuture[] oldValues = values;
+            int capacity = oldValues.length << 1;
+            int mask = capacity - 1;
+            keys = new long[capacity];
+            values = new RpcFuture[capacity];
+            for (int j = 0; j < oldValues.length; j++) {
+                if (oldValues[j] == null) {
+                    continue;
+                }
+                int i = slotOf(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int slotOf(long key, int mask) {
+            return (int) (mix(key) >>> 32) & mask;
+        }
+    }
+
+}
@@ -1,69 +1,160 @@
 package com.polyu.rpc.client.result.future;
 
 import com.polyu.rpc.client.RpcClient;
+import com.polyu.rpc.client.result.PendingRpcHolder;
 import com.polyu.rpc.codec.RpcRequest;
 import com.polyu.rpc.codec.RpcResponse;
+import com.polyu.rpc.route.EndpointStats;
+import io.netty.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
-import java.util.List;
-import java.util.concurrent.*;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+/**
+ * 调用结果
+ * 状态由 result 字段表示: null 未完成 / RpcResponse 已响应 / RpcTimeoutException 超时 / 其他 Throwable 失败或取消
+ * 通过 CAS 只完成一次 回调与完成监听均以单槽 + 链表保存 完成时一次性取出 按添加顺序执行
+ */
 public class RpcFuture implements Future<Object> {
     private static final Logger logger = LoggerFactory.getLogger(RpcFuture.class);
 
-    private Semaphore semaphore;
-    private RpcRequest request;
-    private RpcResponse response;
-    private long startTime;
-    private long responseTimeThreshold;
-    private List<AsyncRPCCallback> pendingCallbacks = new CopyOnWriteArrayList<>();
-    private volatile CancellationException timeoutException;
+    private static final AtomicReferenceFieldUpdater<RpcFuture, Object> RESULT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(RpcFuture.class, Object.class, "result");
+    private static final AtomicReferenceFieldUpdater<RpcFuture, Object> CALLBACKS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(RpcFuture.class, Object.class, "callbacks");
+    private static final AtomicReferenceFieldUpdater<RpcFuture, Object> LISTENERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(RpcFuture.class, Object.class, "listeners");
+    /**
+     * 回调/监听已执行标记 之后添加的直接执行
+     */
+    private static final Object FIRED = new Object();
+
+    private final RpcRequest request;
+    private final long startTime;
+    /**
+     * 用于统计延迟
+     */
+    private final long startNanos;
+    private final long responseTimeThreshold;
+    private volatile Object result;
+    /**
+     * null / AsyncRPCCallback / Node / FIRED
+     */
+    private volatile Object callbacks;
+    /**
+     * 完成监听 在完成线程直接执行 仅供框架内部组合多个请求(如重试、对冲)使用
+     * null / Runnable / Node / FIRED
+     */
+    private volatile Object listeners;
+    /**
+     * 阻塞等待结果的线程数 仅在持有 this 锁时修改 无等待线程时完成不加锁
+     */
+    private volatile int waiters;
+    /**
+     * 时间轮上的超时任务 收到响应时取消
+     */
+    private volatile Timeout timeout;
+    /**
+     * 发出请求的连接统计 请求移出待响应表时结束计数
+     */
+    private volatile EndpointStats endpointStats;
+    /**
+     * 异步调用结果 仅异步调用时创建
+     */
+    private volatile CompletableFuture<Object> completion;
 
     public RpcFuture(RpcRequest request, long responseTimeThreshold) {
-        this.semaphore = new Semaphore(0);
         this.request = request;
         this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
         this.responseTimeThreshold = responseTimeThreshold;
     }
 
     @Override
     public boolean isDone() {
-        return this.response != null || this.timeoutException != null;
+        return this.result != null;
     }
 
     @Override
     public Object get() throws InterruptedException {
-        semaphore.acquire(1);
-        if (this.response == null) {
-            return null;
+        Object res = this.result;
+        if (res == null) {
+            res = await(0L);
         }
-        return this.response.getResult();
+        return report(res);
     }
 
     @Override
     public Object get(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
-        boolean success = semaphore.tryAcquire(1, timeout, unit);
-        if (success) {
-            if (this.response == null) {
-                return null;
-            }
-            return this.response.getResult();
-        } else {
+        Object res = this.result;
+        if (res == null) {
+            res = await(Math.max(unit.toNanos(timeout), 1L));
+        }
+        if (res == null) {
             throw new RuntimeException("Timeout exception. Request id: " + this.request.getRequestId()
                     + ". Request class name: " + this.request.getClassName()
                     + ". Request method: " + this.request.getMethodName());
         }
+        return report(res);
+    }
+
+    /**
+     * 等待完成
+     * @param timeoutNanos 0表示不限时
+     * @return 结果 超时返回null
+     */
+    private Object await(long timeoutNanos) throws InterruptedException {
+        long deadline = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0L;
+        synchronized (this) {
+            waiters++;
+            try {
+                Object res;
+                while ((res = this.result) == null) {
+                    if (deadline == 0L) {
+                        wait();
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                return res;
+            } finally {
+                waiters--;
+            }
+        }
     }
 
     /**
-     * 超时异常设置
+     * 响应返回结果 超时/取消返回null 发送失败抛出异常
+     */
+    private Object report(Object res) {
+        if (res instanceof RpcResponse) {
+            return ((RpcResponse) res).getResult();
+        }
+        if (res instanceof CancellationException) {
+            return null;
+        }
+        throw new RuntimeException("Send request failed. Request id: " + this.request.getRequestId(), (Throwable) res);
+    }
+
+    /**
+     * 超时 未完成时以 RpcTimeoutException 完成
      */
     public void setTimeoutException() {
-        if (this.timeoutException == null) {
-            this.timeoutException = new CancellationException("Response timeout for request: " + this.request.getRequestId());
+        if (this.result == null) {
+            complete(new RpcTimeoutException(this.request.getRequestId()));
         }
     }
 
@@ -77,15 +168,18 @@ public class RpcFuture implements Future<Object> {
 
     @Override
     public boolean isCancelled() {
-        return this.timeoutException != null;
+        return this.result instanceof CancellationException;
     }
 
     /**
-     * 超时取消 释放线程
+     * 取消 释放等待线程 并移出待响应表
      */
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-        semaphore.release(1);
+        if (!complete(new CancellationException("Request cancelled: " + this.request.getRequestId()))) {
+            return false;
+        }
+        PendingRpcHolder.remove(this.request.getRequestId(), this);
         return true;
     }
 
@@ -93,51 +187,252 @@ public class RpcFuture implements Future<Object> {
      * 完成 设置结果
      */
     public void done(RpcResponse response) {
-        this.response = response;
-        semaphore.release(1);
+        complete(response);
     }
 
     /**
-     * 为保证性能 this.response 无volatile
-     * 需要确保 addCallback 后调用请求发送
+     * 发送失败 释放等待线程
+     * @param cause 失败原因
+     */
+    public void fail(Throwable cause) {
+        complete(cause);
+    }
+
+    /**
+     * 仅首次生效 唤醒等待线程 完成异步结果并执行回调
+     * @param res RpcResponse / Throwable
+     * @return 是否由本次调用完成
+     */
+    private boolean complete(Object res) {
+        if (!RESULT_UPDATER.compareAndSet(this, null, res)) {
+            return false;
+        }
+        if (waiters > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+        fireListeners();
+        completeAsync();
+        fireCallbacks();
+        return true;
+    }
+
+    /**
+     * 添加完成监听 已完成时直接执行 每个监听只执行一次 须轻量且不阻塞
+     * 可添加多个(如重试与对冲同时监听同一请求) 按添加顺序执行
+     * @param listener 监听
+     */
+    public void addListener(Runnable listener) {
+        for (;;) {
+            Object current = this.listeners;
+            if (current == FIRED) {
+                runListener(listener);
+                return;
+            }
+            Object next = current == null ? listener : new Node(listener, current);
+            if (LISTENERS_UPDATER.compareAndSet(this, current, next)) {
+                break;
+            }
+        }
+        if (isDone()) {
+            fireListeners();
+        }
+    }
+
+    private void fireListeners() {
+        Object current = LISTENERS_UPDATER.getAndSet(this, FIRED);
+        if (current == null || current == FIRED) {
+            return;
+        }
+        for (Object listener : inOrder(current)) {
+            runListener((Runnable) listener);
+        }
+    }
+
+    private void runListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (Throwable t) {
+            logger.error("Run completion listener failed. exception: {}.", t.getMessage(), t);
+        }
+    }
+
+    /**
+     * 获取响应
+     * @return 未完成或未收到响应(超时/失败/取消)时返回null
+     */
+    public RpcResponse getResponse() {
+        Object res = this.result;
+        return res instanceof RpcResponse ? (RpcResponse) res : null;
+    }
+
+    /**
+     * 获取失败原因
+     * @return 超时/发送失败/取消时的异常 未完成或已响应时返回null
+     */
+    public Throwable getFailure() {
+        Object res = this.result;
+        return res instanceof Throwable ? (Throwable) res : null;
+    }
+
+    public RpcRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * 获取异步结果 在响应到达(或超时/发送失败)时完成
+     * 默认在 IO 线程完成 设置了 RpcClient 完成线程池时在该线程池完成
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Object> toCompletableFuture() {
+        CompletableFuture<Object> future = this.completion;
+        if (future == null) {
+            synchronized (this) {
+                future = this.completion;
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    this.completion = future;
+                }
+            }
+        }
+        if (isDone()) {
+            completeAsync();
+        }
+        return future;
+    }
+
+    /**
+     * 完成异步结果 可重复调用 仅首次生效
+     * 完成线程池拒绝时在当前线程完成
+     */
+    private void completeAsync() {
+        final CompletableFuture<Object> future = this.completion;
+        if (future == null || future.isDone()) {
+            return;
+        }
+        Executor executor = RpcClient.getCompletionExecutor();
+        if (executor == null) {
+            completeNow(future);
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    completeNow(future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程池已满或已关闭 在当前线程完成 保证异步结果及后续回调不丢失
+            logger.warn("Completion executor rejected request {}, complete in caller thread.", request.getRequestId());
+            completeNow(future);
+        }
+    }
+
+    private void completeNow(CompletableFuture<Object> future) {
+        Object res = this.result;
+        if (res instanceof RpcResponse) {
+            RpcResponse response = (RpcResponse) res;
+            if (!response.isError()) {
+                future.complete(response.getResult());
+            } else {
+                future.completeExceptionally(new RuntimeException("Response error.", new Throwable(response.getError())));
+            }
+        } else if (res instanceof RpcTimeoutException) {
+            // CancellationException 会被 CompletableFuture 视为取消 超时以 TimeoutException 完成
+            future.completeExceptionally(new StacklessTimeoutException(((Throwable) res).getMessage()));
+        } else if (res != null) {
+            future.completeExceptionally((Throwable) res);
+        }
+    }
+
+    /**
+     * 添加回调 已完成时直接执行
      * @param callback 回调
      * @return this
      */
     public RpcFuture addCallback(AsyncRPCCallback callback) {
-        try {
-            if (isDone()) {
+        for (;;) {
+            Object current = this.callbacks;
+            if (current == FIRED) {
                 runCallback(callback);
-            } else {
-                this.pendingCallbacks.add(callback);
+                return this;
             }
-        } catch (Exception e) {
-            logger.error("addCallback failed. exception: {}.", e.getMessage(), e);
+            Object next = current == null ? callback : new Node(callback, current);
+            if (CALLBACKS_UPDATER.compareAndSet(this, current, next)) {
+                break;
+            }
+        }
+        if (isDone()) {
+            fireCallbacks();
         }
         return this;
     }
 
+    /**
+     * 执行已添加的回调 未完成时不执行(完成时自动执行) 重复调用无副作用
+     */
     public void invokeCallbacks() {
-        try {
-            for (final AsyncRPCCallback callback : pendingCallbacks) {
-                runCallback(callback);
+        if (isDone()) {
+            fireCallbacks();
+        }
+    }
+
+    private void fireCallbacks() {
+        Object current = CALLBACKS_UPDATER.getAndSet(this, FIRED);
+        if (current == null || current == FIRED) {
+            return;
+        }
+        for (Object callback : inOrder(current)) {
+            runCallback((AsyncRPCCallback) callback);
+        }
+    }
+
+    /**
+     * 链表头为最后添加的元素 按添加顺序返回
+     * @param head 单个元素或 Node
+     */
+    private static Object[] inOrder(Object head) {
+        if (!(head instanceof Node)) {
+            return new Object[]{head};
+        }
+        int count = 1;
+        for (Object next = head; next instanceof Node; next = ((Node) next).next) {
+            count++;
+        }
+        Object[] ordered = new Object[count];
+        Object current = head;
+        for (int i = count - 1; i >= 0; i--) {
+            if (current instanceof Node) {
+                Node node = (Node) current;
+                ordered[i] = node.item;
+                current = node.next;
+            } else {
+                ordered[i] = current;
             }
-        } catch (Exception e) {
-            logger.error("invokeCallbacks failed. exception: {}.", e.getMessage(), e);
         }
+        return ordered;
     }
 
     private void runCallback(final AsyncRPCCallback callback) {
-        final RpcResponse res = this.response;
-        RpcClient.submit(new Runnable() {
-            @Override
-            public void run() {
-                if (!res.isError()) {
-                    callback.success(res.getResult());
-                } else {
-                    callback.fail(new RuntimeException("Response error.", new Throwable(res.getError())));
+        final Object res = this.result;
+        try {
+            RpcClient.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (!(res instanceof RpcResponse)) {
+                        callback.fail(new RuntimeException("Request failed.", (Throwable) res));
+                    } else if (!((RpcResponse) res).isError()) {
+                        callback.success(((RpcResponse) res).getResult());
+                    } else {
+                        callback.fail(new RuntimeException("Response error.", new Throwable(((RpcResponse) res).getError())));
+                    }
                 }
-            }
-        });
+            });
+        } catch (Exception e) {
+            logger.error("Run callback failed. exception: {}.", e.getMessage(), e);
+        }
     }
 
     /**
@@ -148,23 +443,76 @@ public class RpcFuture implements Future<Object> {
         return startTime;
     }
 
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 获取超时时长
+     * @return 毫秒
+     */
+    public long getResponseTimeThreshold() {
+        return responseTimeThreshold;
+    }
+
+    public Timeout getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    public EndpointStats getEndpointStats() {
+        return endpointStats;
+    }
+
+    public void setEndpointStats(EndpointStats endpointStats) {
+        this.endpointStats = endpointStats;
+    }
+
     /**
      * 获取超时异常
-     * @return
+     * @return 未超时返回null
      */
     public CancellationException getTimeoutException() {
-        return timeoutException;
+        Object res = this.result;
+        return res instanceof RpcTimeoutException ? (RpcTimeoutException) res : null;
     }
 
     @Override
     public String toString() {
         return "RpcFuture{" +
                 "request=" + request +
-                ", response=" + response +
+                ", result=" + result +
                 ", startTime=" + startTime +
                 ", responseTimeThreshold=" + responseTimeThreshold +
-                ", pendingCallbacks=" + pendingCallbacks +
-                ", timeoutException=" + timeoutException +
                 '}';
     }
+
+    /**
+     * 回调/监听链表节点 next 为单个元素或 Node
+     */
+    private static final class Node {
+        private final Object item;
+        private final Object next;
+
+        Node(Object item, Object next) {
+            this.item = item;
+            this.next = next;
+        }
+    }
+
+    private static final class StacklessTimeoutException extends TimeoutException {
+        private static final long serialVersionUID = 1L;
+
+        StacklessTimeoutException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
 }
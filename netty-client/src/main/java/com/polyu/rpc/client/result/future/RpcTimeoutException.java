@@ -0,0 +1,19 @@
+package com.polyu.rpc.client.result.future;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * 请求超时异常 不填充堆栈 超时集中发生时避免大量堆栈采集
+ */
+public class RpcTimeoutException extends CancellationException {
+    private static final long serialVersionUID = 1L;
+
+    public RpcTimeoutException(long requestId) {
+        super("Response timeout for request: " + requestId);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -1,10 +1,18 @@
 package com.polyu.rpc.client.spring;
 
 import com.polyu.rpc.client.RpcClient;
+import com.polyu.rpc.client.connect.ConnectionPool;
+import com.polyu.rpc.client.connect.Connector;
+import com.polyu.rpc.client.failover.RetryBudget;
+import com.polyu.rpc.client.hedge.HedgeBudget;
+import com.polyu.rpc.codec.CodecConfig;
 import com.polyu.rpc.client.result.PendingRpcHolder;
 import com.polyu.rpc.registry.ServiceDiscovery;
 import com.polyu.rpc.registry.nacos.NacosDiscovery;
 import com.polyu.rpc.registry.zookeeper.ZKDiscovery;
+import com.polyu.rpc.route.EndpointStats;
+import com.polyu.rpc.route.impl.RpcLoadBalanceConsistentHash;
+import com.polyu.rpc.transport.TransportConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -25,13 +33,211 @@ public class ClientAutoConfig {
     @Value("${bRPC.client.registry.address}")
     private String registryAddress;
 
-    @Value("${bRPC.client.timeout.checkInterval:#{1500L}}")
+    /**
+     * 超时时间轮刻度(毫秒)
+     */
+    @Value("${bRPC.client.timeout.checkInterval:#{10L}}")
     private Long timeoutCheckInterval;
 
+    /**
+     * 单帧最大长度
+     */
+    @Value("${bRPC.client.maxFrameLength:#{null}}")
+    private Integer maxFrameLength;
+
+    /**
+     * 是否直接序列化进出站缓冲区
+     */
+    @Value("${bRPC.client.directEncode:#{true}}")
+    private Boolean directEncode;
+
+    /**
+     * 旧协议兼容开关
+     */
+    @Value("${bRPC.client.legacyProtocol:#{false}}")
+    private Boolean legacyProtocol;
+
+    /**
+     * 连接默认序列化方式
+     */
+    @Value("${bRPC.client.serializer:kryo}")
+    private String serializer;
+
+    /**
+     * 连接默认压缩方式 none / deflate / lz4
+     */
+    @Value("${bRPC.client.compressor:none}")
+    private String compressor;
+
+    /**
+     * 默认压缩阈值(字节)
+     */
+    @Value("${bRPC.client.compressThreshold:#{null}}")
+    private Integer compressThreshold;
+
+    /**
+     * 异步调用结果是否在回调线程池完成 默认在 IO 线程完成
+     */
+    @Value("${bRPC.client.async.completeOnCallbackPool:#{false}}")
+    private Boolean completeOnCallbackPool;
+
+    /**
+     * 每个服务节点的连接数
+     */
+    @Value("${bRPC.client.connection.poolSize:#{1}}")
+    private Integer connectionPoolSize;
+
+    /**
+     * 节点内 channel 选择策略 leastPending / roundRobin
+     */
+    @Value("${bRPC.client.connection.selectStrategy:leastPending}")
+    private String channelSelectStrategy;
+
+    /**
+     * 负载均衡延迟均值衰减时间(毫秒)
+     */
+    @Value("${bRPC.client.loadBalance.decayTime:#{10000L}}")
+    private Long loadBalanceDecayTime;
+
+    /**
+     * 一致性哈希每个节点的虚拟节点数
+     */
+    @Value("${bRPC.client.loadBalance.virtualNodes:#{160}}")
+    private Integer virtualNodes;
+
+    /**
+     * 对冲请求数占开启对冲的调用数的比例上限
+     */
+    @Value("${bRPC.client.hedge.budgetRatio:#{0.1}}")
+    private Double hedgeBudgetRatio;
+
+    /**
+     * 对冲预算可累积的令牌数
+     */
+    @Value("${bRPC.client.hedge.budgetBurst:#{100}}")
+    private Integer hedgeBudgetBurst;
+
+    /**
+     * 重试请求数占开启重试的调用数的比例上限
+     */
+    @Value("${bRPC.client.retry.budgetRatio:#{0.1}}")
+    private Double retryBudgetRatio;
+
+    /**
+     * 重试预算可累积的令牌数
+     */
+    @Value("${bRPC.client.retry.budgetBurst:#{10}}")
+    private Integer retryBudgetBurst;
+
+    /**
+     * 传输实现 auto / epoll / io_uring / nio
+     */
+    @Value("${bRPC.client.transport.type:auto}")
+    private String transport;
+
+    /**
+     * IO 线程数 0 表示 CPU核数/2
+     */
+    @Value("${bRPC.client.transport.ioThreads:#{0}}")
+    private Integer ioThreads;
+
+    @Value("${bRPC.client.transport.tcpNoDelay:#{true}}")
+    private Boolean tcpNoDelay;
+
+    /**
+     * SO_SNDBUF / SO_RCVBUF 0 表示系统默认
+     */
+    @Value("${bRPC.client.transport.sendBufferSize:#{0}}")
+    private Integer sendBufferSize;
+
+    @Value("${bRPC.client.transport.receiveBufferSize:#{0}}")
+    private Integer receiveBufferSize;
+
+    /**
+     * TCP_QUICKACK / SO_BUSY_POLL(微秒) 仅 epoll 生效
+     */
+    @Value("${bRPC.client.transport.tcpQuickAck:#{false}}")
+    private Boolean tcpQuickAck;
+
+    @Value("${bRPC.client.transport.busyPollMicros:#{0}}")
+    private Integer busyPollMicros;
+
+    /**
+     * 写缓冲水位(字节)
+     */
+    @Value("${bRPC.client.transport.writeBufferLowWaterMark:#{null}}")
+    private Integer writeBufferLowWaterMark;
+
+    @Value("${bRPC.client.transport.writeBufferHighWaterMark:#{null}}")
+    private Integer writeBufferHighWaterMark;
+
+    /**
+     * 合并刷写 相邻的写合并为一次 flush
+     */
+    @Value("${bRPC.client.transport.flushBatching:#{false}}")
+    private Boolean flushBatching;
+
+    /**
+     * 合并刷写最大延迟(微秒) 0 表示只合并已排队的写
+     */
+    @Value("${bRPC.client.transport.flushMaxDelayMicros:#{0}}")
+    private Integer flushMaxDelayMicros;
+
+    @Value("${bRPC.client.transport.flushMaxFrames:#{null}}")
+    private Integer flushMaxFrames;
+
+    @Value("${bRPC.client.transport.flushMaxBytes:#{null}}")
+    private Integer flushMaxBytes;
+
     @Bean
     public RpcClient createRpcClientBean() throws Exception {
         ServiceDiscovery serviceDiscovery = null;
         PendingRpcHolder.setTimeoutCheckInterval(this.timeoutCheckInterval);
+        if (completeOnCallbackPool) {
+            RpcClient.setCompletionExecutor(RpcClient.getCallbackExecutor());
+        }
+        EndpointStats.setDecayTime(loadBalanceDecayTime);
+        RpcLoadBalanceConsistentHash.setDefaultVirtualNodes(virtualNodes);
+        HedgeBudget.setRatio(hedgeBudgetRatio);
+        HedgeBudget.setBurst(hedgeBudgetBurst);
+        RetryBudget.setRatio(retryBudgetRatio);
+        RetryBudget.setBurst(retryBudgetBurst);
+        Connector connector = Connector.getInstance();
+        connector.setConnectionsPerEndpoint(connectionPoolSize);
+        connector.setChannelSelectStrategy(ConnectionPool.SelectStrategy.of(channelSelectStrategy));
+        CodecConfig codecConfig = connector.getCodecConfig();
+        if (maxFrameLength != null) {
+            codecConfig.setMaxFrameLength(maxFrameLength);
+        }
+        codecConfig.setDirectEncode(directEncode);
+        codecConfig.setLegacyProtocol(legacyProtocol);
+        codecConfig.setSerializer(serializer);
+        codecConfig.setCompressor(compressor);
+        if (compressThreshold != null) {
+            codecConfig.setCompressThreshold(compressThreshold);
+        }
+        TransportConfig transportConfig = connector.getTransportConfig();
+        transportConfig.setTransport(transport);
+        transportConfig.setIoThreads(ioThreads);
+        transportConfig.setTcpNoDelay(tcpNoDelay);
+        transportConfig.setSendBufferSize(sendBufferSize);
+        transportConfig.setReceiveBufferSize(receiveBufferSize);
+        transportConfig.setTcpQuickAck(tcpQuickAck);
+        transportConfig.setBusyPollMicros(busyPollMicros);
+        if (writeBufferLowWaterMark != null) {
+            transportConfig.setWriteBufferLowWaterMark(writeBufferLowWaterMark);
+        }
+        if (writeBufferHighWaterMark != null) {
+            transportConfig.setWriteBufferHighWaterMark(writeBufferHighWaterMark);
+        }
+        transportConfig.setFlushBatching(flushBatching);
+        transportConfig.setFlushMaxDelayMicros(flushMaxDelayMicros);
+        if (flushMaxFrames != null) {
+            transportConfig.setFlushMaxFrames(flushMaxFrames);
+        }
+        if (flushMaxBytes != null) {
+            transportConfig.setFlushMaxBytes(flushMaxBytes);
+        }
         if (registryCenter != null && !"".equals(registryAddress)) {
             switch (registryCenter) {
                 case NACOS_CONFIG_TYPE:
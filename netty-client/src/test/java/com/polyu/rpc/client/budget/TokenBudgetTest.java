@@ -0,0 +1,134 @@
+package com.polyu.rpc.client.budget;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBudgetTest {
+
+    @Test
+    public void initialBalance() {
+        assertEquals(0D, new TokenBudget("empty", 0.1, 10, false).getBalance(), 0D);
+        assertEquals(10D, new TokenBudget("full", 0.1, 10, true).getBalance(), 0D);
+    }
+
+    /**
+     * 每次调用存入 ratio 个令牌 每个追加请求取出 1 个
+     */
+    @Test
+    public void depositsFundAcquires() {
+        TokenBudget budget = new TokenBudget("test", 0.1, 10, false);
+        assertFalse(budget.tryAcquire());
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertEquals(0.9D, budget.getBalance(), 1e-9);
+        assertFalse(budget.tryAcquire());
+        budget.deposit();
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+        assertEquals(10, budget.getCalls());
+        assertEquals(1, budget.getAcquired());
+        assertEquals(3, budget.getRejected());
+        assertEquals(0D, budget.getBalance(), 1e-9);
+    }
+
+    @Test
+    public void depositsAreCappedAtBurst() {
+        TokenBudget budget = new TokenBudget("test", 0.5, 2, false);
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        assertEquals(2D, budget.getBalance(), 0D);
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    public void releaseReturnsTokenWithinBurst() {
+        TokenBudget budget = new TokenBudget("test", 1, 2, true);
+        assertTrue(budget.tryAcquire());
+        assertEquals(1D, budget.getBalance(), 0D);
+        budget.release();
+        assertEquals(2D, budget.getBalance(), 0D);
+        assertEquals(0, budget.getAcquired());
+
+        // 取出后桶已被存满 归还不超过上限
+        assertTrue(budget.tryAcquire());
+        budget.deposit();
+        budget.release();
+        assertEquals(2D, budget.getBalance(), 0D);
+        assertEquals(0, budget.getAcquired());
+    }
+
+    @Test
+    public void shrinkingBurstCapsDeposits() {
+        TokenBudget budget = new TokenBudget("test", 1, 10, true);
+        budget.setBurst(3);
+        budget.deposit();
+        assertEquals(3D, budget.getBurst(), 0D);
+        int acquired = 0;
+        while (budget.tryAcquire()) {
+            acquired++;
+        }
+        // 已有令牌保留 之后的存入与归还不超过新上限
+        assertEquals(10, acquired);
+        budget.release();
+        budget.release();
+        budget.release();
+        budget.release();
+        assertEquals(3D, budget.getBalance(), 0D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ratioMustBeInRange() {
+        new TokenBudget("test", 1.5, 10, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void burstMustNotBeNegative() {
+        new TokenBudget("test", 0.1, 10, false).setBurst(-1);
+    }
+
+    @Test
+    public void concurrentAcquiresNeverExceedBalance() throws InterruptedException {
+        TokenBudget budget = new TokenBudget("test", 0.1, 1000, false);
+        int threads = 8;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    budget.deposit();
+                    if (budget.tryAcquire()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        // 8000 次调用共存入 800 个 未达上限
+        assertEquals(800D, granted.get() + budget.getBalance(), 1e-9);
+        assertEquals(granted.get(), budget.getAcquired());
+        assertEquals(threads * 1000, budget.getCalls());
+    }
+}
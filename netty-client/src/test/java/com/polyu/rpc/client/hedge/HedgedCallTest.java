@@ -0,0 +1,158 @@
+package com.polyu.rpc.client.hedge;
+
+import com.polyu.rpc.client.connect.ConnectionPool;
+import com.polyu.rpc.client.invoke.InvokeProxy;
+import com.polyu.rpc.client.netty.handler.RpcClientHandler;
+import com.polyu.rpc.client.result.PendingRpcHolder;
+import com.polyu.rpc.client.result.future.RpcFuture;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.codec.RpcResponse;
+import com.polyu.rpc.info.RpcMetaData;
+import com.polyu.rpc.info.RpcServiceInfo;
+import com.polyu.rpc.route.MetaDataKeeper;
+import com.polyu.rpc.route.impl.RpcLoadBalanceRoundRobin;
+import com.polyu.rpc.util.ServiceUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedCallTest {
+
+    private static final long HEDGE_AFTER_MILLIS = 20L;
+
+    /**
+     * 一个节点 一个连接(EmbeddedChannel)
+     */
+    private static class Node {
+        private final RpcClientHandler handler = new RpcClientHandler();
+        private final EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        Node(String serviceName, int port) {
+            RpcMetaData rpcMetaData = new RpcMetaData();
+            rpcMetaData.setHost("10.0.1.1");
+            rpcMetaData.setPort(port);
+            rpcMetaData.setServiceInfoList(Collections.singletonList(new RpcServiceInfo(serviceName, "1.0")));
+            ConnectionPool pool = new ConnectionPool(rpcMetaData, 1, ConnectionPool.SelectStrategy.LEAST_PENDING) {
+                @Override
+                public RpcClientHandler select() {
+                    return handler;
+                }
+            };
+            handler.setRpcMetaData(rpcMetaData);
+            handler.setConnectionPool(pool, 0);
+            MetaDataKeeper.addZkChild(rpcMetaData, pool);
+        }
+
+        /**
+         * @return 该连接写出的请求 无则为 null
+         */
+        RpcRequest sent() {
+            channel.runPendingTasks();
+            return channel.readOutbound();
+        }
+
+        void respond(RpcRequest request, Object result) {
+            RpcResponse response = new RpcResponse();
+            response.setRequestId(request.getRequestId());
+            response.setResult(result);
+            channel.writeInbound(response);
+        }
+    }
+
+    private static RpcRequest request(String serviceName) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(InvokeProxy.nextRequestId());
+        request.setClassName(serviceName);
+        request.setMethodName("get");
+        request.setParameterTypes(new Class<?>[0]);
+        request.setParameters(new Object[0]);
+        return request;
+    }
+
+    private static HedgedCall newCall(String serviceName, RpcRequest request) {
+        for (int i = 0; i < 20; i++) {
+            HedgeBudget.deposit();
+        }
+        HedgeDelay delay = new HedgeDelay(HedgePolicy.of(1, HEDGE_AFTER_MILLIS, 0));
+        return new HedgedCall(ServiceUtil.makeServiceKey(serviceName, "1.0"), request,
+                new RpcLoadBalanceRoundRobin(), 5000L, delay);
+    }
+
+    private static void waitHedgeDelay() throws InterruptedException {
+        Thread.sleep(HEDGE_AFTER_MILLIS * 3);
+    }
+
+    @Test
+    public void fastResponseIsNotHedged() throws InterruptedException {
+        String serviceName = "hedge.fast";
+        Node first = new Node(serviceName, 9301);
+        Node second = new Node(serviceName, 9302);
+        RpcRequest request = request(serviceName);
+        RpcFuture result = newCall(serviceName, request).start(first.handler);
+
+        RpcRequest sent = first.sent();
+        assertSame(request, sent);
+        first.respond(sent, "first");
+        assertTrue(result.isDone());
+        assertEquals("first", result.get());
+
+        waitHedgeDelay();
+        first.sent();
+        assertNull(second.sent());
+        assertEquals(0, first.handler.getPendingCount());
+    }
+
+    @Test
+    public void slowResponseIsHedgedToAnotherNode() throws InterruptedException {
+        String serviceName = "hedge.slow";
+        Node first = new Node(serviceName, 9311);
+        Node second = new Node(serviceName, 9312);
+        RpcRequest request = request(serviceName);
+        long hedges = HedgeBudget.getHedges();
+        long wins = HedgeBudget.getHedgeWins();
+        RpcFuture result = newCall(serviceName, request).start(first.handler);
+        RpcRequest original = first.sent();
+
+        waitHedgeDelay();
+        assertNull(first.sent());
+        RpcRequest hedged = second.sent();
+        assertTrue(hedged != null && hedged.getRequestId() != original.getRequestId());
+        assertEquals(original.getMethodName(), hedged.getMethodName());
+        assertEquals(hedges + 1, HedgeBudget.getHedges());
+
+        second.respond(hedged, "second");
+        assertEquals("second", result.get());
+        assertEquals(wins + 1, HedgeBudget.getHedgeWins());
+        // 原请求被取消 迟到的响应被忽略
+        assertNull(PendingRpcHolder.getPendingRPC().get(original.getRequestId()));
+        assertEquals(0, first.handler.getPendingCount());
+        first.respond(original, "first");
+        assertEquals("second", result.get());
+        assertEquals(0, first.handler.getPendingCount());
+        assertEquals(0, second.handler.getPendingCount());
+    }
+
+    @Test
+    public void cancelStopsHedging() throws InterruptedException {
+        String serviceName = "hedge.cancel";
+        Node first = new Node(serviceName, 9321);
+        Node second = new Node(serviceName, 9322);
+        RpcRequest request = request(serviceName);
+        RpcFuture result = newCall(serviceName, request).start(first.handler);
+        RpcRequest original = first.sent();
+
+        assertTrue(result.cancel(false));
+        waitHedgeDelay();
+        first.sent();
+        assertNull(second.sent());
+        assertNull(PendingRpcHolder.getPendingRPC().get(original.getRequestId()));
+        assertEquals(0, first.handler.getPendingCount());
+        assertTrue(result.isCancelled());
+    }
+}
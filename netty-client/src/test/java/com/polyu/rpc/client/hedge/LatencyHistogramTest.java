@@ -0,0 +1,101 @@
+package com.polyu.rpc.client.hedge;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void everyValueFallsInsideItsBucket() {
+        for (long micros = 0; micros < 1 << 20; micros += micros < 4096 ? 1 : 997) {
+            int index = LatencyHistogram.indexOf(micros);
+            assertTrue(micros <= LatencyHistogram.upperBoundOf(index));
+            if (index > 0) {
+                assertTrue(micros > LatencyHistogram.upperBoundOf(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void bucketBoundsIncreaseWithBoundedRelativeError() {
+        for (int index = 1; index < LatencyHistogram.BUCKETS; index++) {
+            long lower = LatencyHistogram.upperBoundOf(index - 1) + 1;
+            long upper = LatencyHistogram.upperBoundOf(index);
+            assertTrue(upper >= lower);
+            assertEquals(index, LatencyHistogram.indexOf(lower));
+            assertEquals(index, LatencyHistogram.indexOf(upper));
+            if (lower >= 4) {
+                assertTrue("bucket " + index, (upper - lower + 1) <= lower / 4 + 1);
+            }
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+        assertEquals(0, LatencyHistogram.indexOf(-5L));
+    }
+
+    @Test
+    public void noValueUntilEnoughSamples() {
+        LatencyHistogram histogram = new LatencyHistogram(95);
+        for (int i = 0; i < 63; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(-1L, histogram.getValueMicros());
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(1000)), histogram.getValueMicros());
+    }
+
+    /**
+     * 1 ~ 1000 微秒均匀分布 分位数落在真实值所在的桶
+     */
+    @Test
+    public void percentileOfUniformLatencies() {
+        LatencyHistogram p50 = new LatencyHistogram(50);
+        LatencyHistogram p99 = new LatencyHistogram(99);
+        for (int round = 0; round < 64; round++) {
+            for (long micros = 1; micros <= 1000; micros++) {
+                p50.record(TimeUnit.MICROSECONDS.toNanos(micros));
+                p99.record(TimeUnit.MICROSECONDS.toNanos(micros));
+            }
+        }
+        assertEquals(LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(500)), p50.getValueMicros());
+        assertEquals(LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(990)), p99.getValueMicros());
+    }
+
+    @Test
+    public void tailSamplesMoveHighPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram(99);
+        for (int i = 0; i < 980; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        // 共 1024 个样本 p99 (第 1014 个)落在 200ms 桶
+        for (int i = 0; i < 44; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        long value = histogram.getValueMicros();
+        assertTrue("p99 " + value, value >= 200000 && value < 250000);
+    }
+
+    /**
+     * 超过两个窗口的旧样本不再参与统计
+     */
+    @Test
+    public void oldWindowsExpire() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(50, 50L);
+        for (int i = 0; i < 128; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertTrue(histogram.getValueMicros() >= 100000);
+        Thread.sleep(60L);
+        for (int i = 0; i < 64; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        Thread.sleep(60L);
+        for (int i = 0; i < 128; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertTrue("p50 " + histogram.getValueMicros(), histogram.getValueMicros() < 2000);
+    }
+}
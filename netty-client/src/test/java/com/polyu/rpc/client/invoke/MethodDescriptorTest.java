@@ -0,0 +1,60 @@
+package com.polyu.rpc.client.invoke;
+
+import com.polyu.rpc.annotation.Failover;
+import com.polyu.rpc.annotation.Hedge;
+import com.polyu.rpc.client.failover.FailoverPolicy;
+import com.polyu.rpc.client.hedge.HedgePolicy;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MethodDescriptorTest {
+
+    public interface Service {
+        String plain(String key);
+
+        @Hedge(maxHedges = 0)
+        String nonIdempotent(String key);
+
+        @Hedge(maxHedges = 2, hedgeAfterMillis = 5L, percentile = 90.0)
+        String idempotent(String key);
+
+        @Failover(retries = 0)
+        String noRetry(String key);
+    }
+
+    private static MethodDescriptor descriptor(String methodName, HedgePolicy hedgePolicy, FailoverPolicy failoverPolicy)
+            throws NoSuchMethodException {
+        return new MethodDescriptor(Service.class.getMethod(methodName, String.class), "1.0", hedgePolicy, failoverPolicy);
+    }
+
+    @Test
+    public void consumerPolicyAppliesWithoutAnnotation() throws NoSuchMethodException {
+        HedgePolicy hedgePolicy = HedgePolicy.of(1, 10L, 95.0);
+        FailoverPolicy failoverPolicy = FailoverPolicy.of(2, 10L);
+        MethodDescriptor descriptor = descriptor("plain", hedgePolicy, failoverPolicy);
+        assertSame(hedgePolicy, descriptor.getHedgeDelay().getPolicy());
+        assertSame(failoverPolicy, descriptor.getFailoverPolicy());
+        assertNull(descriptor("plain", null, null).getHedgeDelay());
+    }
+
+    @Test
+    public void hedgeAnnotationOptsOut() throws NoSuchMethodException {
+        assertNull(descriptor("nonIdempotent", HedgePolicy.of(1, 10L, 95.0), null).getHedgeDelay());
+    }
+
+    @Test
+    public void hedgeAnnotationOptsIn() throws NoSuchMethodException {
+        HedgePolicy policy = descriptor("idempotent", null, null).getHedgeDelay().getPolicy();
+        assertEquals(2, policy.getMaxHedges());
+        assertEquals(5L, policy.getHedgeAfterMillis());
+        assertEquals(90.0, policy.getPercentile(), 0D);
+    }
+
+    @Test
+    public void failoverAnnotationOptsOut() throws NoSuchMethodException {
+        assertNull(descriptor("noRetry", null, FailoverPolicy.of(2, 10L)).getFailoverPolicy());
+    }
+}
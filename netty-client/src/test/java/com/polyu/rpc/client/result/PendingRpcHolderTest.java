@@ -0,0 +1,78 @@
+package com.polyu.rpc.client.result;
+
+import com.polyu.rpc.client.result.future.RpcFuture;
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.route.EndpointStats;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PendingRpcHolderTest {
+
+    private static final AtomicLong REQUEST_ID = new AtomicLong(1L << 40);
+
+    private static RpcFuture send(EndpointStats stats, long timeoutMillis) {
+        RpcRequest request = new RpcRequest();
+        request.setRequestId(REQUEST_ID.incrementAndGet());
+        RpcFuture future = new RpcFuture(request, timeoutMillis);
+        future.setEndpointStats(stats);
+        stats.requestStarted();
+        PendingRpcHolder.add(request.getRequestId(), future);
+        return future;
+    }
+
+    @Test
+    public void responseFinishesPendingOnce() {
+        EndpointStats stats = new EndpointStats();
+        RpcFuture future = send(stats, 10000L);
+        assertEquals(1, stats.getPending());
+        assertSame(future, PendingRpcHolder.removeOnResponse(future.getRequest().getRequestId()));
+        assertEquals(0, stats.getPending());
+        assertTrue(stats.getLatencyEwma() > 0D);
+        // 重复的响应被忽略
+        assertNull(PendingRpcHolder.removeOnResponse(future.getRequest().getRequestId()));
+        assertEquals(0, stats.getPending());
+    }
+
+    @Test
+    public void cancelFinishesPendingAndIgnoresLateResponse() {
+        EndpointStats stats = new EndpointStats();
+        RpcFuture future = send(stats, 10000L);
+        assertTrue(future.cancel(false));
+        assertEquals(0, stats.getPending());
+        assertFalse(future.cancel(false));
+        assertNull(PendingRpcHolder.removeOnResponse(future.getRequest().getRequestId()));
+        assertEquals(0, stats.getPending());
+    }
+
+    @Test
+    public void timeoutFinishesPendingAndIgnoresLateResponse() throws InterruptedException {
+        EndpointStats stats = new EndpointStats();
+        RpcFuture future = send(stats, 20L);
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!future.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertTrue(future.getTimeoutException() != null);
+        assertEquals(0, stats.getPending());
+        assertNull(PendingRpcHolder.removeOnResponse(future.getRequest().getRequestId()));
+        assertEquals(0, stats.getPending());
+    }
+
+    @Test
+    public void removeFinishesPendingOnce() {
+        EndpointStats stats = new EndpointStats();
+        RpcFuture future = send(stats, 10000L);
+        long requestId = future.getRequest().getRequestId();
+        assertSame(future, PendingRpcHolder.remove(requestId));
+        assertNull(PendingRpcHolder.remove(requestId));
+        assertFalse(PendingRpcHolder.remove(requestId, future));
+        assertEquals(0, stats.getPending());
+    }
+}
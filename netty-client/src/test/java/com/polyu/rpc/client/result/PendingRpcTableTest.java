@@ -0,0 +1,159 @@
+package com.polyu.rpc.client.result;
+
+import com.polyu.rpc.client.result.future.RpcFuture;
+import com.polyu.rpc.codec.RpcRequest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PendingRpcTableTest {
+
+    private static RpcFuture newFuture() {
+        return new RpcFuture(new RpcRequest(), 1000L);
+    }
+
+    @Test
+    public void putGetRemove() {
+        PendingRpcTable table = new PendingRpcTable();
+        RpcFuture future = newFuture();
+        table.put(1L, future);
+        assertSame(future, table.get(1L));
+        assertEquals(1, table.size());
+        assertSame(future, table.remove(1L));
+        assertNull(table.get(1L));
+        assertNull(table.remove(1L));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void putReplacesExistingMapping() {
+        PendingRpcTable table = new PendingRpcTable();
+        RpcFuture first = newFuture();
+        RpcFuture second = newFuture();
+        table.put(7L, first);
+        table.put(7L, second);
+        assertSame(second, table.get(7L));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void conditionalRemoveOnlyRemovesExpectedFuture() {
+        PendingRpcTable table = new PendingRpcTable();
+        RpcFuture future = newFuture();
+        table.put(3L, future);
+        assertFalse(table.remove(3L, newFuture()));
+        assertSame(future, table.get(3L));
+        assertTrue(table.remove(3L, future));
+        assertNull(table.get(3L));
+    }
+
+    /**
+     * 单段 大量删除触发回移 每次删除后剩余元素都应可查到
+     */
+    @Test
+    public void backwardShiftKeepsProbeChainsIntact() {
+        PendingRpcTable table = new PendingRpcTable(1);
+        Map<Long, RpcFuture> expected = new HashMap<>();
+        for (long id = 0; id < 1000; id++) {
+            RpcFuture future = newFuture();
+            table.put(id, future);
+            expected.put(id, future);
+        }
+        Random random = new Random(42);
+        List<Long> ids = new ArrayList<>(expected.keySet());
+        while (!ids.isEmpty()) {
+            long id = ids.remove(random.nextInt(ids.size()));
+            assertSame(expected.remove(id), table.remove(id));
+            if (ids.size() % 50 == 0) {
+                for (Map.Entry<Long, RpcFuture> entry : expected.entrySet()) {
+                    assertSame(entry.getValue(), table.get(entry.getKey()));
+                }
+            }
+        }
+        assertEquals(0, table.size());
+    }
+
+    /**
+     * 随机增删查 与 HashMap 对比
+     */
+    @Test
+    public void randomOperationsMatchHashMap() {
+        PendingRpcTable table = new PendingRpcTable(2);
+        Map<Long, RpcFuture> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            long id = random.nextInt(512);
+            int op = random.nextInt(3);
+            if (op == 0) {
+                RpcFuture future = newFuture();
+                table.put(id, future);
+                expected.put(id, future);
+            } else if (op == 1) {
+                assertSame(expected.remove(id), table.remove(id));
+            } else {
+                assertSame(expected.get(id), table.get(id));
+            }
+        }
+        assertEquals(expected.size(), table.size());
+        for (Map.Entry<Long, RpcFuture> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), table.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void concurrentPutAndRemove() throws InterruptedException {
+        PendingRpcTable table = new PendingRpcTable(4);
+        int threads = 8;
+        int perThread = 20000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (long id = base; id < base + perThread; id++) {
+                        RpcFuture future = newFuture();
+                        table.put(id, future);
+                        assertSame(future, table.get(id));
+                        if ((id & 1) == 0) {
+                            assertSame(future, table.remove(id));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(threads * perThread / 2, table.size());
+        for (long id = 0; id < (long) threads * perThread; id++) {
+            if ((id & 1) == 0) {
+                assertNull(table.get(id));
+            } else {
+                assertTrue(table.get(id) != null);
+            }
+        }
+    }
+}
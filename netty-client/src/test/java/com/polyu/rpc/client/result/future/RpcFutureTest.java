@@ -0,0 +1,86 @@
+package com.polyu.rpc.client.result.future;
+
+import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.codec.RpcResponse;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class RpcFutureTest {
+
+    private static RpcFuture newFuture() {
+        return new RpcFuture(new RpcRequest(), 1000L);
+    }
+
+    @Test
+    public void everyListenerRunsOnceInRegistrationOrder() {
+        RpcFuture future = newFuture();
+        List<Integer> fired = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 3; i++) {
+            final int index = i;
+            future.addListener(() -> fired.add(index));
+        }
+        future.done(new RpcResponse());
+        future.done(new RpcResponse());
+        future.cancel(false);
+        assertEquals(Arrays.asList(0, 1, 2), fired);
+    }
+
+    @Test
+    public void listenerAddedAfterCompletionRunsImmediately() {
+        RpcFuture future = newFuture();
+        AtomicInteger fired = new AtomicInteger();
+        future.addListener(fired::incrementAndGet);
+        future.fail(new IllegalStateException("test"));
+        future.addListener(fired::incrementAndGet);
+        assertEquals(2, fired.get());
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOthers() {
+        RpcFuture future = newFuture();
+        AtomicInteger fired = new AtomicInteger();
+        future.addListener(() -> {
+            throw new IllegalStateException("test");
+        });
+        future.addListener(fired::incrementAndGet);
+        future.cancel(false);
+        assertEquals(1, fired.get());
+    }
+
+    @Test
+    public void concurrentAddAndCompleteRunsEachListenerOnce() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            RpcFuture future = newFuture();
+            AtomicInteger fired = new AtomicInteger();
+            int threads = 4;
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 50; i++) {
+                            future.addListener(fired::incrementAndGet);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            start.countDown();
+            future.done(new RpcResponse());
+            done.await();
+            assertEquals(threads * 50, fired.get());
+        }
+    }
+}
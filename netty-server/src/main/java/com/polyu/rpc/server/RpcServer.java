@@ -34,7 +34,8 @@ public class RpcServer extends NettyServer implements ApplicationContextAware, I
             String version = annotation.version();
             int coreThreadPoolSize = annotation.coreThreadPoolSize();
             int maxThreadPoolSize = annotation.maxThreadPoolSize();
-            super.addService(serviceName, version, value);
+            super.addService(serviceName, version, value,
+                    annotation.serializer(), annotation.compressor(), annotation.compressThreshold());
             if (maxThreadPoolSize >= coreThreadPoolSize && !threadPoolSetting.get()) {
                 threadPoolSetting.set(true);
                 super.setCoreThreadPoolSize(coreThreadPoolSize);
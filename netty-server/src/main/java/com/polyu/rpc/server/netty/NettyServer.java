@@ -1,8 +1,13 @@
 package com.polyu.rpc.server.netty;
 
 
+import com.polyu.rpc.codec.CodecConfig;
+import com.polyu.rpc.compress.CompressionPolicy;
 import com.polyu.rpc.registry.ServiceRegistry;
+import com.polyu.rpc.serializer.SerializerRegistry;
 import com.polyu.rpc.server.Server;
+import com.polyu.rpc.server.reflect.MethodTable;
+import com.polyu.rpc.transport.TransportConfig;
 import com.polyu.rpc.util.ServiceUtil;
 import lombok.NoArgsConstructor;
 import org.slf4j.Logger;
@@ -28,6 +33,26 @@ public class NettyServer extends Server {
     private String serverAddress;
     private ServiceRegistry serviceRegistry;
     private Map<String, Object> serviceKey2BeanMap = new HashMap<>();
+    /**
+     * 方法表 methodId -> 方法
+     */
+    private MethodTable methodTable = new MethodTable();
+    /**
+     * 编解码配置 需在start前设置
+     */
+    private CodecConfig codecConfig = new CodecConfig();
+    /**
+     * 传输层配置 需在start前设置
+     */
+    private TransportConfig transportConfig = new TransportConfig();
+    /**
+     * 节点权重 未设置(-1)时按 CPU 核数与业务线程池大小推算
+     */
+    private volatile int weight = -1;
+    /**
+     * 推算权重时每个可用核心的权重
+     */
+    private static final int WEIGHT_PER_CORE = 10;
 
     public NettyServer(String serverAddress, ServiceRegistry serviceRegistry) {
         this.serverAddress = serverAddress;
@@ -51,7 +76,11 @@ public class NettyServer extends Server {
                 NettyServer.class.getSimpleName(),
                 serverAddress,
                 serviceKey2BeanMap,
-                serviceRegistry);
+                methodTable,
+                serviceRegistry,
+                codecConfig,
+                transportConfig,
+                getWeight());
         thread = new Thread(nettyServerBootstrap);
         thread.start();
     }
@@ -72,9 +101,72 @@ public class NettyServer extends Server {
      * @param serviceBean 服务实现类
      */
     public void addService(String interfaceName, String version, Object serviceBean) {
+        addService(interfaceName, version, serviceBean, null, null, -1);
+    }
+
+    /**
+     * 添加服务到serviceMap 并指定序列化及压缩方式
+     * @param interfaceName 接口名
+     * @param version 版本
+     * @param serviceBean 服务实现类
+     * @param serializer 偏好的序列化方式名称 为空表示无偏好
+     * @param compressor 响应压缩方式名称 为空表示使用连接默认
+     * @param compressThreshold 压缩阈值 小于0表示使用连接默认
+     */
+    public void addService(String interfaceName, String version, Object serviceBean,
+                           String serializer, String compressor, int compressThreshold) {
         logger.info("Adding service, interface: {}, version: {}, bean：{}", interfaceName, version, serviceBean);
         String serviceKey = ServiceUtil.makeServiceKey(interfaceName, version);
         serviceKey2BeanMap.put(serviceKey, serviceBean);
+        CompressionPolicy compression = null;
+        if (compressor != null && !compressor.isEmpty()) {
+            int threshold = compressThreshold < 0 ? codecConfig.getCompressThreshold() : compressThreshold;
+            compression = CompressionPolicy.of(compressor, threshold, serviceKey);
+        }
+        methodTable.register(serviceKey, interfaceName, serviceBean, SerializerRegistry.idOf(serializer), compression);
+    }
+
+    /**
+     * 获取编解码配置
+     * @return codecConfig
+     */
+    public CodecConfig getCodecConfig() {
+        return codecConfig;
+    }
+
+    /**
+     * 获取传输层配置
+     * @return transportConfig
+     */
+    public TransportConfig getTransportConfig() {
+        return transportConfig;
+    }
+
+    /**
+     * 注册中心发布的节点权重
+     * 未设置时按可用核心数(不超过业务线程池最大线程数) * 10 推算
+     * @return weight
+     */
+    public int getWeight() {
+        if (weight >= 0) {
+            return weight;
+        }
+        int cores = Math.min(Runtime.getRuntime().availableProcessors(), maxThreadPoolSize);
+        return Math.max(cores, 1) * WEIGHT_PER_CORE;
+    }
+
+    /**
+     * 设置节点权重 启动后设置时更新注册中心 订阅方无需重建连接
+     * @param weight 节点权重 仅加权负载均衡使用 0 表示加权负载均衡不再选择该节点
+     */
+    public void setWeight(int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative: " + weight);
+        }
+        this.weight = weight;
+        if (thread != null && serviceRegistry != null) {
+            serviceRegistry.updateWeight(weight);
+        }
     }
 
     protected void setCoreThreadPoolSize(int coreThreadPoolSize) {
@@ -1,13 +1,14 @@
 package com.polyu.rpc.server.netty;
 
+import com.polyu.rpc.codec.CodecConfig;
 import com.polyu.rpc.registry.ServiceRegistry;
+import com.polyu.rpc.server.reflect.MethodTable;
+import com.polyu.rpc.transport.Transport;
+import com.polyu.rpc.transport.TransportConfig;
 import com.polyu.rpc.util.ThreadPoolUtil;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import lombok.NoArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,17 +29,36 @@ public class NettyServerBootstrap implements Runnable {
 
     private Map<String, Object> serviceKey2BeanMap;
 
+    private MethodTable methodTable;
+
     private ThreadPoolExecutor businessTaskThreadPool;
 
+    private CodecConfig codecConfig;
+
+    private TransportConfig transportConfig;
+
+    /**
+     * 注册中心发布的节点权重
+     */
+    private int weight;
+
     NettyServerBootstrap(
             int corePoolSize, int maxPoolSize,
             String serverName,
             String serverAddress,
             Map<String, Object> serviceKey2BeanMap,
-            ServiceRegistry serviceRegistry) {
+            MethodTable methodTable,
+            ServiceRegistry serviceRegistry,
+            CodecConfig codecConfig,
+            TransportConfig transportConfig,
+            int weight) {
         this.serverAddress = serverAddress;
         this.serviceKey2BeanMap = serviceKey2BeanMap;
+        this.methodTable = methodTable;
         this.serviceRegistry = serviceRegistry;
+        this.codecConfig = codecConfig;
+        this.transportConfig = transportConfig;
+        this.weight = weight;
         this.CORE_THREAD_POOL_SIZE = corePoolSize;
         this.MAX_THREAD_POOL_SIZE = maxPoolSize;
         this.businessTaskThreadPool = ThreadPoolUtil.makeServerThreadPool(
@@ -52,10 +72,18 @@ public class NettyServerBootstrap implements Runnable {
             String serverName,
             String serverAddress,
             Map<String, Object> serviceKey2BeanMap,
-            ServiceRegistry serviceRegistry) {
+            MethodTable methodTable,
+            ServiceRegistry serviceRegistry,
+            CodecConfig codecConfig,
+            TransportConfig transportConfig,
+            int weight) {
         this.serverAddress = serverAddress;
         this.serviceKey2BeanMap = serviceKey2BeanMap;
+        this.methodTable = methodTable;
         this.serviceRegistry = serviceRegistry;
+        this.codecConfig = codecConfig;
+        this.transportConfig = transportConfig;
+        this.weight = weight;
         this.businessTaskThreadPool = ThreadPoolUtil.makeServerThreadPool(
                 serverName,
                 CORE_THREAD_POOL_SIZE,
@@ -68,23 +96,29 @@ public class NettyServerBootstrap implements Runnable {
      */
     @Override
     public void run() {
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        Transport transport = Transport.resolve(transportConfig.getTransport());
+        // SO_REUSEPORT 下每个 acceptor 线程独立绑定同一端口 由内核分发连接
+        int acceptors = transportConfig.isReusePort() && transport.supportsReusePort()
+                ? Math.max(1, transportConfig.getAcceptorThreads()) : 1;
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(acceptors, "bRPC-server-boss");
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(transportConfig.getIoThreads(), "bRPC-server-io");
         try {
             ServerBootstrap bootstrap = new ServerBootstrap();
             bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .childHandler(new RpcServerInitializer(serviceKey2BeanMap, businessTaskThreadPool))
-                    .option(ChannelOption.SO_BACKLOG, 128)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true);
+                    .channel(transport.serverSocketChannelClass())
+                    .childHandler(new RpcServerInitializer(serviceKey2BeanMap, methodTable, businessTaskThreadPool, codecConfig, transportConfig));
+            transport.configure(bootstrap, transportConfig);
 
             String[] array = serverAddress.split(":");
             String host = array[0];
             int port = Integer.parseInt(array[1]);
             ChannelFuture future = bootstrap.bind(port).sync();
+            for (int i = 1; i < acceptors; i++) {
+                bootstrap.bind(port).sync();
+            }
             // 服务注册
             registerService(host, port);
-            logger.info("Server started on port {}.", port);
+            logger.info("Server started on port {}. transport: {}, acceptors: {}.", port, transport, acceptors);
             future.channel().closeFuture().sync();
         } catch (Exception e) {
             if (e instanceof InterruptedException) {
@@ -94,8 +128,9 @@ public class NettyServerBootstrap implements Runnable {
             }
         } finally {
             try {
-                assert serviceRegistry != null;
-                serviceRegistry.unregisterService();
+                if (serviceRegistry != null) {
+                    serviceRegistry.unregisterService();
+                }
                 workerGroup.shutdownGracefully();
                 bossGroup.shutdownGracefully();
             } catch (Exception ex) {
@@ -116,7 +151,7 @@ public class NettyServerBootstrap implements Runnable {
             return;
         }
         try {
-            serviceRegistry.registerService(host, port, serviceKey2BeanMap);
+            serviceRegistry.registerService(host, port, serviceKey2BeanMap, weight);
         } catch (Exception e) {
             logger.error("Rpc server register server failed. host: {}, port: {}", host, port);
             throw new Exception("register failed.");
@@ -1,10 +1,19 @@
 package com.polyu.rpc.server.netty;
 
-import com.polyu.rpc.serializer.Serializer;
+import com.polyu.rpc.compress.CompressionPolicy;
+import com.polyu.rpc.compress.CompressionStats;
+import com.polyu.rpc.compress.CompressorRegistry;
+import com.polyu.rpc.serializer.SerializerRegistry;
 import com.polyu.rpc.serializer.kryo.KryoSerializer;
 import com.polyu.rpc.server.netty.handler.BusinessHandler;
+import com.polyu.rpc.server.netty.handler.HandshakeHandler;
 import com.polyu.rpc.server.netty.handler.HeartBeatHandler;
+import com.polyu.rpc.server.reflect.MethodTable;
+import com.polyu.rpc.transport.FlushBatchHandler;
+import com.polyu.rpc.transport.FlushBatchStats;
+import com.polyu.rpc.transport.TransportConfig;
 import com.polyu.rpc.codec.*;
+import com.polyu.rpc.codec.legacy.LegacyMessageConverter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
@@ -16,21 +25,60 @@ import java.util.concurrent.TimeUnit;
 
 public class RpcServerInitializer extends ChannelInitializer<SocketChannel> {
     private Map<String, Object> serviceKey2BeanMap;
+    private MethodTable methodTable;
     private ThreadPoolExecutor businessTaskThreadPool;
+    private CodecConfig codecConfig;
+    private TransportConfig transportConfig;
+    /**
+     * 各连接共享的握手信息
+     */
+    private RpcHandshake handshake;
+    /**
+     * 注册了本服务全部业务类型的 Kryo
+     */
+    private KryoSerializer kryoSerializer;
+    /**
+     * 连接默认响应压缩策略
+     */
+    private CompressionPolicy defaultCompression;
 
-    RpcServerInitializer(Map<String, Object> serviceKey2BeanMap, ThreadPoolExecutor businessTaskThreadPool) {
+    RpcServerInitializer(Map<String, Object> serviceKey2BeanMap, MethodTable methodTable, ThreadPoolExecutor businessTaskThreadPool, CodecConfig codecConfig, TransportConfig transportConfig) {
         this.serviceKey2BeanMap = serviceKey2BeanMap;
+        this.methodTable = methodTable;
         this.businessTaskThreadPool = businessTaskThreadPool;
+        this.codecConfig = codecConfig;
+        this.transportConfig = transportConfig;
+        this.handshake = new RpcHandshake();
+        this.handshake.setMethodIds(methodTable.getMethodIds());
+        this.handshake.setMethodSerializers(methodTable.getMethodSerializers());
+        this.handshake.setKryoTypes(methodTable.getServiceTypeNames());
+        this.handshake.setCompressors(CompressorRegistry.getSupportedMask());
+        this.kryoSerializer = KryoSerializer.withServiceTypes(handshake.getKryoTypes());
+        this.defaultCompression = CompressionPolicy.of(codecConfig.getCompressor(), codecConfig.getCompressThreshold(), CompressionStats.DEFAULT);
     }
 
     @Override
     public void initChannel(SocketChannel channel) throws Exception {
-        Serializer serializer = KryoSerializer.class.newInstance();
+        SerializerSelector serializerSelector;
+        LegacyMessageConverter legacyConverter = null;
+        if (codecConfig.isLegacyProtocol()) {
+            serializerSelector = new SerializerSelector(KryoSerializer.legacy());
+            legacyConverter = new LegacyMessageConverter();
+        } else {
+            serializerSelector = new SerializerSelector(SerializerRegistry.get(codecConfig.getSerializer()));
+            serializerSelector.override(kryoSerializer);
+        }
         ChannelPipeline cp = channel.pipeline();
+        if (transportConfig.isFlushBatching()) {
+            cp.addLast(new FlushBatchHandler(transportConfig, FlushBatchStats.of(FlushBatchStats.SERVER)));
+        }
         cp.addLast(new IdleStateHandler(0, 0, HeartBeat.BEAT_TIMEOUT, TimeUnit.SECONDS));
-        cp.addLast(new RpcDecoder(RpcRequest.class, serializer));
-        cp.addLast(new RpcEncoder(RpcResponse.class, serializer));
+        cp.addLast(new RpcDecoder(RpcRequest.class, serializerSelector, codecConfig.getMaxFrameLength(), legacyConverter));
+        cp.addLast(new RpcEncoder(RpcResponse.class, serializerSelector, codecConfig.isDirectEncode(), legacyConverter, defaultCompression));
+        if (legacyConverter == null) {
+            cp.addLast(new HandshakeHandler(handshake));
+        }
         cp.addLast(new HeartBeatHandler());
-        cp.addLast(new BusinessHandler(serviceKey2BeanMap, businessTaskThreadPool));
+        cp.addLast(new BusinessHandler(serviceKey2BeanMap, methodTable, businessTaskThreadPool));
     }
 }
@@ -1,6 +1,7 @@
 package com.polyu.rpc.server.netty.handler;
 
 import com.polyu.rpc.codec.RpcRequest;
+import com.polyu.rpc.server.reflect.MethodTable;
 import com.polyu.rpc.server.task.BusinessTask;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -18,14 +19,16 @@ public class BusinessHandler extends ChannelInboundHandlerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(BusinessHandler.class);
 
     private final Map<String, Object> serviceKey2BeanMap;
+    private final MethodTable methodTable;
 
     /**
      * 业务线程池
      */
     private final ThreadPoolExecutor businessTaskThreadPool;
 
-    public BusinessHandler(Map<String, Object> serviceKey2BeanMap, final ThreadPoolExecutor businessTaskThreadPool) {
+    public BusinessHandler(Map<String, Object> serviceKey2BeanMap, MethodTable methodTable, final ThreadPoolExecutor businessTaskThreadPool) {
         this.serviceKey2BeanMap = serviceKey2BeanMap;
+        this.methodTable = methodTable;
         this.businessTaskThreadPool = businessTaskThreadPool;
     }
 
@@ -36,7 +39,7 @@ public class BusinessHandler extends ChannelInboundHandlerAdapter {
      */
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
-        businessTaskThreadPool.execute(new BusinessTask((RpcRequest) msg, serviceKey2BeanMap, ctx));
+        businessTaskThreadPool.execute(new BusinessTask((RpcRequest) msg, serviceKey2BeanMap, methodTable, ctx));
     }
 
     @Override
@@ -0,0 +1,49 @@
+package com.polyu.rpc.server.netty.handler;
+
+import com.polyu.rpc.codec.RpcEncoder;
+import com.polyu.rpc.codec.RpcHandshake;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class HandshakeHandler extends ChannelInboundHandlerAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(HandshakeHandler.class);
+
+    private final RpcHandshake handshake;
+
+    public HandshakeHandler(RpcHandshake handshake) {
+        this.handshake = handshake;
+    }
+
+    /**
+     * 连接建立后下发方法表 client 据此用 methodId 代替类名/方法名/参数类型
+     * @param ctx
+     * @throws Exception
+     */
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        logger.debug("Send handshake to {}, methods: {}.", ctx.channel().remoteAddress(), handshake.getMethodIds().size());
+        ctx.writeAndFlush(handshake);
+        super.channelActive(ctx);
+    }
+
+    /**
+     * 拦截client发送的握手信息 协商响应可用的压缩方式
+     * @param ctx
+     * @param msg
+     * @throws Exception
+     */
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof RpcHandshake) {
+            RpcEncoder encoder = ctx.pipeline().get(RpcEncoder.class);
+            if (encoder != null) {
+                encoder.setPeerCompressors(((RpcHandshake) msg).getCompressors() & handshake.getCompressors());
+            }
+            logger.debug("Receive handshake from {}.", ctx.channel().remoteAddress());
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+}
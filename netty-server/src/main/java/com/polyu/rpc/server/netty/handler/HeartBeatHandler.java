@@ -1,7 +1,6 @@
 package com.polyu.rpc.server.netty.handler;
 
 import com.polyu.rpc.codec.HeartBeat;
-import com.polyu.rpc.codec.RpcRequest;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.timeout.IdleStateEvent;
@@ -12,7 +11,7 @@ public class HeartBeatHandler extends ChannelInboundHandlerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(HeartBeatHandler.class);
 
     /**
-     * 拦截client发送的心跳
+     * 拦截client发送的心跳 心跳帧在解码阶段只解析帧头
      *
      * @param ctx
      * @param msg
@@ -20,12 +19,9 @@ public class HeartBeatHandler extends ChannelInboundHandlerAdapter {
      */
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        if (msg instanceof RpcRequest) {
-            RpcRequest request = (RpcRequest) msg;
-            if (HeartBeat.BEAT_ID.equalsIgnoreCase(request.getRequestId())) {
-                logger.info("Server read heartbeat ping from {}", ctx.channel().remoteAddress().toString());
-                return;
-            }
+        if (msg instanceof HeartBeat) {
+            logger.info("Server read heartbeat ping from {}", ctx.channel().remoteAddress().toString());
+            return;
         }
         super.channelRead(ctx, msg);
     }
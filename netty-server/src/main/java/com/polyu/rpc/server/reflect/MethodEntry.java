@@ -0,0 +1,52 @@
+package com.polyu.rpc.server.reflect;
+
+import com.polyu.rpc.compress.CompressionPolicy;
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * 方法表条目 服务启动前生成 之后只读
+ */
+@Getter
+public class MethodEntry {
+    /**
+     * 统一调用签名 Object (Object[])
+     */
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final int methodId;
+    private final String methodKey;
+    private final Method method;
+    private final Object serviceBean;
+    /**
+     * 服务端偏好的序列化方式id 0表示无偏好
+     */
+    private final byte serializer;
+    /**
+     * 服务端(@BRpcProvider)指定的响应压缩策略 null表示使用连接默认
+     */
+    private final CompressionPolicy compression;
+    /**
+     * 绑定了serviceBean并展开参数数组的MethodHandle 签名为 INVOKER_TYPE
+     */
+    private final MethodHandle invoker;
+
+    MethodEntry(int methodId, String methodKey, Method method, Object serviceBean, byte serializer,
+                CompressionPolicy compression) throws IllegalAccessException {
+        this.methodId = methodId;
+        this.methodKey = methodKey;
+        this.method = method;
+        this.serviceBean = serviceBean;
+        this.serializer = serializer;
+        this.compression = compression;
+        this.invoker = MethodHandles.lookup()
+                .unreflect(method)
+                .bindTo(serviceBean)
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(INVOKER_TYPE);
+    }
+}
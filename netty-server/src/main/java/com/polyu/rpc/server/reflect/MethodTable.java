@@ -0,0 +1,135 @@
+package com.polyu.rpc.server.reflect;
+
+import com.polyu.rpc.compress.CompressionPolicy;
+import com.polyu.rpc.serializer.TypeAllowList;
+import com.polyu.rpc.serializer.kryo.ServiceTypeCollector;
+import com.polyu.rpc.util.ServiceUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务端方法表 methodId 为数组下标
+ * addService 时注册并预先解析 MethodHandle server 启动后只读
+ * 连接建立时通过握手下发 methodKey -> methodId
+ */
+public class MethodTable {
+    private static final Logger logger = LoggerFactory.getLogger(MethodTable.class);
+
+    private final List<MethodEntry> entries = new ArrayList<>();
+    private final Map<String, MethodEntry> methodKey2Entry = new HashMap<>();
+    /**
+     * 服务接口用到的业务类型 用于 Kryo 类注册
+     */
+    private final ServiceTypeCollector serviceTypeCollector = new ServiceTypeCollector();
+
+    /**
+     * 注册服务接口的全部方法
+     * @param serviceKey 服务key
+     * @param interfaceName 接口名
+     * @param serviceBean 服务实现类
+     * @param serializer 偏好的序列化方式id 0表示无偏好
+     * @param compression 响应压缩策略 null表示使用连接默认
+     */
+    public synchronized void register(String serviceKey, String interfaceName, Object serviceBean, byte serializer,
+                                      CompressionPolicy compression) {
+        Class<?> interfaceClass = findInterface(interfaceName, serviceBean);
+        if (interfaceClass == null) {
+            logger.warn("Can not resolve interface {}, method table disabled for it.", interfaceName);
+            return;
+        }
+        serviceTypeCollector.collect(interfaceClass);
+        TypeAllowList.allowService(interfaceClass);
+        for (Method method : interfaceClass.getMethods()) {
+            String methodKey = ServiceUtil.makeMethodKey(serviceKey, method.getName(), method.getParameterTypes());
+            if (methodKey2Entry.containsKey(methodKey)) {
+                continue;
+            }
+            try {
+                method.setAccessible(true);
+                MethodEntry entry = new MethodEntry(entries.size(), methodKey, method, serviceBean, serializer, compression);
+                entries.add(entry);
+                methodKey2Entry.put(methodKey, entry);
+            } catch (Exception e) {
+                logger.warn("Resolve method handle for {} failed: {}.", methodKey, e.toString());
+            }
+        }
+    }
+
+    /**
+     * 按id查找方法
+     * @param methodId 方法id
+     * @return MethodEntry 不存在返回null
+     */
+    public MethodEntry get(int methodId) {
+        if (methodId < 0 || methodId >= entries.size()) {
+            return null;
+        }
+        return entries.get(methodId);
+    }
+
+    /**
+     * 按methodKey查找方法 供未握手的全量请求使用
+     * @param methodKey ServiceUtil.makeMethodKey 生成
+     * @return MethodEntry 不存在返回null
+     */
+    public MethodEntry get(String methodKey) {
+        return methodKey2Entry.get(methodKey);
+    }
+
+    /**
+     * 握手下发的 methodKey -> methodId
+     * 返回普通HashMap副本 保证各序列化方式可直接反序列化
+     * @return map副本
+     */
+    public synchronized Map<String, Integer> getMethodIds() {
+        Map<String, Integer> methodIds = new HashMap<>(entries.size() * 2);
+        for (MethodEntry entry : entries) {
+            methodIds.put(entry.getMethodKey(), entry.getMethodId());
+        }
+        return methodIds;
+    }
+
+    /**
+     * 握手下发的各方法偏好序列化方式
+     * @return 下标为 methodId
+     */
+    public synchronized byte[] getMethodSerializers() {
+        byte[] methodSerializers = new byte[entries.size()];
+        for (MethodEntry entry : entries) {
+            methodSerializers[entry.getMethodId()] = entry.getSerializer();
+        }
+        return methodSerializers;
+    }
+
+    /**
+     * 握手下发的 Kryo 服务类型注册表
+     * @return 按类名排序的列表
+     */
+    public synchronized List<String> getServiceTypeNames() {
+        return serviceTypeCollector.getServiceTypeNames();
+    }
+
+    /**
+     * 从实现类的接口中按名称查找 找不到再尝试加载
+     */
+    private static Class<?> findInterface(String interfaceName, Object serviceBean) {
+        for (Class<?> clazz = serviceBean.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            for (Class<?> interfaceClass : clazz.getInterfaces()) {
+                if (interfaceClass.getName().equals(interfaceName)) {
+                    return interfaceClass;
+                }
+            }
+        }
+        try {
+            return Class.forName(interfaceName, false, serviceBean.getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -7,7 +7,18 @@ import java.lang.reflect.Method;
 public class ReflectInvoker {
 
     /**
-     * jdk反射调用
+     * 方法表调用 MethodHandle 在注册时已解析 业务异常原样抛出
+     * @param entry 方法表条目
+     * @param parameters 参数
+     * @return
+     * @throws Throwable
+     */
+    public static Object handle(MethodEntry entry, Object[] parameters) throws Throwable {
+        return (Object) entry.getInvoker().invokeExact(parameters);
+    }
+
+    /**
+     * jdk反射调用 仅用于方法表中不存在的方法
      * @param request 请求
      * @param serviceBean 实现类
      * @return
@@ -6,6 +6,7 @@ import com.polyu.rpc.registry.nacos.NacosRegistry;
 import com.polyu.rpc.registry.zookeeper.ZKDiscovery;
 import com.polyu.rpc.registry.zookeeper.ZKRegistry;
 import com.polyu.rpc.server.RpcServer;
+import com.polyu.rpc.transport.TransportConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 
@@ -50,6 +51,120 @@ public class ServerAutoConfig {
     @Value("${bRPC.server.maxThreadPoolSize:#{null}}")
     private Integer maxThreadPoolSize;
 
+    /**
+     * 节点权重 未设置时按 CPU 核数与业务线程池大小推算
+     */
+    @Value("${bRPC.server.weight:#{null}}")
+    private Integer weight;
+
+    /**
+     * 单帧最大长度
+     */
+    @Value("${bRPC.server.maxFrameLength:#{null}}")
+    private Integer maxFrameLength;
+
+    /**
+     * 是否直接序列化进出站缓冲区
+     */
+    @Value("${bRPC.server.directEncode:#{true}}")
+    private Boolean directEncode;
+
+    /**
+     * 旧协议兼容开关
+     */
+    @Value("${bRPC.server.legacyProtocol:#{false}}")
+    private Boolean legacyProtocol;
+
+    /**
+     * 连接默认序列化方式
+     */
+    @Value("${bRPC.server.serializer:kryo}")
+    private String serializer;
+
+    /**
+     * 连接默认压缩方式 none / deflate / lz4
+     */
+    @Value("${bRPC.server.compressor:none}")
+    private String compressor;
+
+    /**
+     * 默认压缩阈值(字节)
+     */
+    @Value("${bRPC.server.compressThreshold:#{null}}")
+    private Integer compressThreshold;
+
+    /**
+     * 传输实现 auto / epoll / io_uring / nio
+     */
+    @Value("${bRPC.server.transport.type:auto}")
+    private String transport;
+
+    /**
+     * IO 线程数 0 表示 Netty 默认(CPU核数*2)
+     */
+    @Value("${bRPC.server.transport.ioThreads:#{0}}")
+    private Integer ioThreads;
+
+    /**
+     * acceptor 线程数 需开启 reusePort(epoll)
+     */
+    @Value("${bRPC.server.transport.acceptorThreads:#{1}}")
+    private Integer acceptorThreads;
+
+    @Value("${bRPC.server.transport.reusePort:#{false}}")
+    private Boolean reusePort;
+
+    @Value("${bRPC.server.transport.backlog:#{128}}")
+    private Integer backlog;
+
+    @Value("${bRPC.server.transport.tcpNoDelay:#{true}}")
+    private Boolean tcpNoDelay;
+
+    /**
+     * SO_SNDBUF / SO_RCVBUF 0 表示系统默认
+     */
+    @Value("${bRPC.server.transport.sendBufferSize:#{0}}")
+    private Integer sendBufferSize;
+
+    @Value("${bRPC.server.transport.receiveBufferSize:#{0}}")
+    private Integer receiveBufferSize;
+
+    /**
+     * TCP_QUICKACK / SO_BUSY_POLL(微秒) 仅 epoll 生效
+     */
+    @Value("${bRPC.server.transport.tcpQuickAck:#{false}}")
+    private Boolean tcpQuickAck;
+
+    @Value("${bRPC.server.transport.busyPollMicros:#{0}}")
+    private Integer busyPollMicros;
+
+    /**
+     * 写缓冲水位(字节)
+     */
+    @Value("${bRPC.server.transport.writeBufferLowWaterMark:#{null}}")
+    private Integer writeBufferLowWaterMark;
+
+    @Value("${bRPC.server.transport.writeBufferHighWaterMark:#{null}}")
+    private Integer writeBufferHighWaterMark;
+
+    /**
+     * 合并刷写 相邻的写合并为一次 flush
+     */
+    @Value("${bRPC.server.transport.flushBatching:#{false}}")
+    private Boolean flushBatching;
+
+    /**
+     * 合并刷写最大延迟(微秒) 0 表示只合并已排队的写
+     */
+    @Value("${bRPC.server.transport.flushMaxDelayMicros:#{0}}")
+    private Integer flushMaxDelayMicros;
+
+    @Value("${bRPC.server.transport.flushMaxFrames:#{null}}")
+    private Integer flushMaxFrames;
+
+    @Value("${bRPC.server.transport.flushMaxBytes:#{null}}")
+    private Integer flushMaxBytes;
+
     @Bean
     public RpcServer createRpcServerBean() throws Exception {
         ServiceRegistry serviceRegistry = null;
@@ -65,9 +180,50 @@ public class ServerAutoConfig {
                     throw new Exception("Wrong type of registry type for " + registryCenter);
             }
         }
+        RpcServer rpcServer;
         if (!enableThreadPoolSize) {
-            return new RpcServer(serverAddress, serviceRegistry);
+            rpcServer = new RpcServer(serverAddress, serviceRegistry);
+        } else {
+            rpcServer = new RpcServer(serverAddress, serviceRegistry, coreThreadPoolSize, maxThreadPoolSize);
+        }
+        if (weight != null) {
+            rpcServer.setWeight(weight);
+        }
+        if (maxFrameLength != null) {
+            rpcServer.getCodecConfig().setMaxFrameLength(maxFrameLength);
+        }
+        rpcServer.getCodecConfig().setDirectEncode(directEncode);
+        rpcServer.getCodecConfig().setLegacyProtocol(legacyProtocol);
+        rpcServer.getCodecConfig().setSerializer(serializer);
+        rpcServer.getCodecConfig().setCompressor(compressor);
+        if (compressThreshold != null) {
+            rpcServer.getCodecConfig().setCompressThreshold(compressThreshold);
+        }
+        TransportConfig transportConfig = rpcServer.getTransportConfig();
+        transportConfig.setTransport(transport);
+        transportConfig.setIoThreads(ioThreads);
+        transportConfig.setAcceptorThreads(acceptorThreads);
+        transportConfig.setReusePort(reusePort);
+        transportConfig.setBacklog(backlog);
+        transportConfig.setTcpNoDelay(tcpNoDelay);
+        transportConfig.setSendBufferSize(sendBufferSize);
+        transportConfig.setReceiveBufferSize(receiveBufferSize);
+        transportConfig.setTcpQuickAck(tcpQuickAck);
+        transportConfig.setBusyPollMicros(busyPollMicros);
+        if (writeBufferLowWaterMark != null) {
+            transportConfig.setWriteBufferLowWaterMark(writeBufferLowWaterMark);
+        }
+        if (writeBufferHighWaterMark != null) {
+            transportConfig.setWriteBufferHighWaterMark(writeBufferHighWaterMark);
+        }
+        transportConfig.setFlushBatching(flushBatching);
+        transportConfig.setFlushMaxDelayMicros(flushMaxDelayMicros);
+        if (flushMaxFrames != null) {
+            transportConfig.setFlushMaxFrames(flushMaxFrames);
+        }
+        if (flushMaxBytes != null) {
+            transportConfig.setFlushMaxBytes(flushMaxBytes);
         }
-        return new RpcServer(serverAddress, serviceRegistry, coreThreadPoolSize, maxThreadPoolSize);
+        return rpcServer;
     }
 }
@@ -2,26 +2,34 @@ package com.polyu.rpc.server.task;
 
 import com.polyu.rpc.codec.RpcRequest;
 import com.polyu.rpc.codec.RpcResponse;
+import com.polyu.rpc.server.reflect.MethodEntry;
+import com.polyu.rpc.server.reflect.MethodTable;
 import com.polyu.rpc.server.reflect.ReflectInvoker;
 import com.polyu.rpc.util.ServiceUtil;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
 
 public class BusinessTask implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(BusinessTask.class);
 
     private RpcRequest request;
     private final Map<String, Object> serviceKey2BeanMap;
+    private final MethodTable methodTable;
     private final ChannelHandlerContext ctx;
 
-    public BusinessTask(RpcRequest request, Map<String, Object> serviceKey2BeanMap, ChannelHandlerContext ctx) {
+    public BusinessTask(RpcRequest request, Map<String, Object> serviceKey2BeanMap, MethodTable methodTable, ChannelHandlerContext ctx) {
         this.request = request;
         this.serviceKey2BeanMap = serviceKey2BeanMap;
+        this.methodTable = methodTable;
         this.ctx = ctx;
     }
 
@@ -35,25 +43,90 @@ public class BusinessTask implements Runnable {
      */
     private void task() {
         logger.info("Receive request {}.", request.getRequestId());
-        RpcResponse response = new RpcResponse();
+        final RpcResponse response = new RpcResponse();
         response.setRequestId(request.getRequestId());
+        response.setSerializer(request.getSerializer());
         try {
-            Object result = handle(request);
+            MethodEntry entry = findMethod(request);
+            Object result;
+            if (entry != null) {
+                response.setCompression(entry.getCompression());
+                result = ReflectInvoker.handle(entry, request.getParameters());
+            } else {
+                result = handle(request);
+            }
+            if (result instanceof CompletionStage) {
+                ((CompletionStage<?>) result).whenComplete(new BiConsumer<Object, Throwable>() {
+                    @Override
+                    public void accept(Object value, Throwable throwable) {
+                        if (throwable != null) {
+                            setError(response, throwable instanceof CompletionException && throwable.getCause() != null
+                                    ? throwable.getCause() : throwable);
+                        } else {
+                            response.setResult(value);
+                        }
+                        writeResponse(response);
+                    }
+                });
+                return;
+            }
             response.setResult(result);
         } catch (Throwable t) {
-            response.setError(t.toString());
-            logger.error("RPC Server handle request error.", t);
+            setError(response, t);
         }
+        writeResponse(response);
+    }
+
+    private void setError(RpcResponse response, Throwable t) {
+        response.setError(t.toString());
+        logger.error("RPC Server handle request error.", t);
+    }
+
+    /**
+     * 写出响应 异步结果(CompletionStage)在完成时写出
+     * 结果无法编码时改为写出错误响应 避免客户端等待至超时
+     * @param response 响应
+     */
+    private void writeResponse(RpcResponse response) {
         ctx.writeAndFlush(response).addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture channelFuture) throws Exception {
-                logger.info("Send response for request {}.", request.getRequestId());
+                if (channelFuture.isSuccess()) {
+                    logger.info("Send response for request {}.", request.getRequestId());
+                    return;
+                }
+                logger.error("Send response for request {} error: {}.", request.getRequestId(), String.valueOf(channelFuture.cause()));
+                if (channelFuture.cause() instanceof EncoderException && !response.isError()) {
+                    RpcResponse errorResponse = new RpcResponse();
+                    errorResponse.setRequestId(response.getRequestId());
+                    errorResponse.setSerializer(response.getSerializer());
+                    errorResponse.setError(String.valueOf(channelFuture.cause()));
+                    writeResponse(errorResponse);
+                }
             }
         });
     }
 
     /**
-     * 根据service标识获取bean进行调用
+     * 有methodId时直接查方法表 否则根据service标识与方法签名查方法表
+     * @param request
+     * @return 方法表中不存在返回null
+     */
+    private MethodEntry findMethod(RpcRequest request) {
+        int methodId = request.getMethodId();
+        if (methodId >= 0) {
+            MethodEntry entry = methodTable.get(methodId);
+            if (entry == null) {
+                throw new IllegalStateException("Unknown method id: " + methodId);
+            }
+            return entry;
+        }
+        String serviceKey = ServiceUtil.makeServiceKey(request.getClassName(), request.getVersion());
+        return methodTable.get(ServiceUtil.makeMethodKey(serviceKey, request.getMethodName(), request.getParameterTypes()));
+    }
+
+    /**
+     * 方法表中不存在时 根据service标识获取bean进行反射调用
      * @param request
      * @return
      * @throws Throwable
@@ -24,6 +24,10 @@ public class NacosRegistry implements ServiceRegistry {
 
     private String ip;
     private int port;
+    /**
+     * 已注册的节点信息 更新权重时重新发布
+     */
+    private volatile RpcMetaData registeredMetaData;
 
     public NacosRegistry(String registryAddress, String applicationName) {
         try {
@@ -48,9 +52,10 @@ public class NacosRegistry implements ServiceRegistry {
      * @param host 主机地址
      * @param port 端口地址
      * @param serviceKey2BeanMap serviceKey -> bean
+     * @param weight 节点权重
      */
     @Override
-    public void registerService(String host, int port, Map<String, Object> serviceKey2BeanMap) {
+    public void registerService(String host, int port, Map<String, Object> serviceKey2BeanMap, int weight) {
         List<RpcServiceInfo> serviceInfoList = ServiceUtil.beanMap2RpcServiceInfos(serviceKey2BeanMap);
         this.ip = host;
         this.port = port;
@@ -58,22 +63,49 @@ public class NacosRegistry implements ServiceRegistry {
             RpcMetaData rpcMetaData = new RpcMetaData();
             rpcMetaData.setHost(host);
             rpcMetaData.setPort(port);
+            rpcMetaData.setWeight(weight);
             rpcMetaData.setServiceInfoList(serviceInfoList);
-            String serviceData = rpcMetaData.toJson();
             this.nacosNameSpace = RegistryConfigEnum.NACOS_REGISTRY_PATH.getValue().concat(applicationName);
-            Instance serviceInstance = new Instance();
-            serviceInstance.setIp(host);
-            serviceInstance.setPort(port);
-            Map<String, String> instanceMeta = new HashMap<>();
-            instanceMeta.put("rpcProtocol", serviceData);
-            serviceInstance.setMetadata(instanceMeta);
-            namingService.registerInstance(nacosNameSpace, serviceInstance);
-            logger.info("Register {} new service, host: {}, port: {}.", serviceInfoList.size(), host, port);
+            registerInstance(rpcMetaData);
+            this.registeredMetaData = rpcMetaData;
+            logger.info("Register {} new service, host: {}, port: {}, weight: {}.", serviceInfoList.size(), host, port, weight);
         } catch (Exception e) {
             logger.error("Register service fail, exception: {}.", e.getMessage());
         }
     }
 
+    /**
+     * 更新节点权重 以相同 ip & port 重新注册实例覆盖元数据
+     * @param weight 节点权重
+     */
+    @Override
+    public void updateWeight(int weight) {
+        RpcMetaData registered = this.registeredMetaData;
+        if (registered == null) {
+            logger.warn("Service is not registered, skip weight update.");
+            return;
+        }
+        try {
+            RpcMetaData rpcMetaData = RpcMetaData.fromJson(registered.toJson());
+            rpcMetaData.setWeight(weight);
+            registerInstance(rpcMetaData);
+            this.registeredMetaData = rpcMetaData;
+            logger.info("Update weight {} -> {}, host: {}, port: {}.", registered.getWeight(), weight, ip, port);
+        } catch (Exception e) {
+            logger.error("Update weight fail, exception: {}.", e.getMessage());
+        }
+    }
+
+    private void registerInstance(RpcMetaData rpcMetaData) throws Exception {
+        Instance serviceInstance = new Instance();
+        serviceInstance.setIp(rpcMetaData.getHost());
+        serviceInstance.setPort(rpcMetaData.getPort());
+        Map<String, String> instanceMeta = new HashMap<>();
+        instanceMeta.put("rpcProtocol", rpcMetaData.toJson());
+        serviceInstance.setMetadata(instanceMeta);
+        namingService.registerInstance(nacosNameSpace, serviceInstance);
+    }
+
     /**
      * 注销服务
      */
@@ -27,6 +27,11 @@ public class ZKRegistry implements ServiceRegistry {
      */
     private String applicationName;
 
+    /**
+     * 已注册的节点信息 更新权重时重新发布
+     */
+    private volatile RpcMetaData registeredMetaData;
+
     public ZKRegistry(String registryAddress) {
         this.zkClient = new CuratorClient(registryAddress, TIME_OUT_LENGTH);
         this.applicationName = "DefaultApplication";
@@ -42,21 +47,24 @@ public class ZKRegistry implements ServiceRegistry {
      * @param host 主机地址
      * @param port 端口
      * @param serviceKey2BeanMap 提供服务信息
+     * @param weight 节点权重
      */
     @Override
-    public void registerService(String host, int port, Map<String, Object> serviceKey2BeanMap) {
+    public void registerService(String host, int port, Map<String, Object> serviceKey2BeanMap, int weight) {
         List<RpcServiceInfo> serviceInfoList = ServiceUtil.beanMap2RpcServiceInfos(serviceKey2BeanMap);
         try {
             RpcMetaData rpcMetaData = new RpcMetaData();
             rpcMetaData.setHost(host);
             rpcMetaData.setPort(port);
+            rpcMetaData.setWeight(weight);
             rpcMetaData.setServiceInfoList(serviceInfoList);
             String serviceData = rpcMetaData.toJson();
             byte[] bytes = serviceData.getBytes();
             String path = RegistryConfigEnum.ZK_REGISTRY_PATH.getValue().concat(this.applicationName) + "/data-" + rpcMetaData.hashCode();
             path = this.zkClient.createPathData(path, bytes);
             this.zkPath = path;
-            logger.info("Register {} new service, host: {}, port: {}.", serviceInfoList.size(), host, port);
+            this.registeredMetaData = rpcMetaData;
+            logger.info("Register {} new service, host: {}, port: {}, weight: {}.", serviceInfoList.size(), host, port, weight);
         } catch (Exception e) {
             logger.error("Register service fail, exception: {}.", e.getMessage());
         }
@@ -64,11 +72,34 @@ public class ZKRegistry implements ServiceRegistry {
         zkClient.addConnectionStateListener((curatorFramework, connectionState) -> {
             if (connectionState == ConnectionState.RECONNECTED) {
                 logger.info("Connection state: {}, register service after reconnected.", connectionState);
-                registerService(host, port, serviceKey2BeanMap);
+                RpcMetaData registered = this.registeredMetaData;
+                registerService(host, port, serviceKey2BeanMap, registered != null ? registered.getWeight() : weight);
             }
         });
     }
 
+    /**
+     * 更新节点权重 覆盖节点数据 订阅方收到 CHILD_UPDATED
+     * @param weight 节点权重
+     */
+    @Override
+    public void updateWeight(int weight) {
+        RpcMetaData registered = this.registeredMetaData;
+        if (registered == null || zkPath == null) {
+            logger.warn("Service is not registered, skip weight update.");
+            return;
+        }
+        try {
+            RpcMetaData rpcMetaData = RpcMetaData.fromJson(registered.toJson());
+            rpcMetaData.setWeight(weight);
+            this.zkClient.updatePathData(zkPath, rpcMetaData.toJson().getBytes());
+            this.registeredMetaData = rpcMetaData;
+            logger.info("Update weight {} -> {}, path: {}.", registered.getWeight(), weight, zkPath);
+        } catch (Exception e) {
+            logger.error("Update weight fail, exception: {}.", e.getMessage());
+        }
+    }
+
     /**
      * 注销服务
      */